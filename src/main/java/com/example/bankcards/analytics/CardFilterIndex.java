@@ -0,0 +1,391 @@
+package com.example.bankcards.analytics;
+
+import com.example.bankcards.entity.BankCardStatus;
+import com.example.bankcards.event.CardChangedEvent;
+import com.example.bankcards.util.Money;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Битовые индексы карт для фильтров администратора: по множеству id (CardIdBitmap) на каждый статус,
+// месяц окончания срока и диапазон баланса. Фильтр по нескольким атрибутам - пересечение множеств в памяти,
+// без составного индекса в базе на каждую комбинацию. Загружается при старте (до готовности принимать трафик)
+// и дальше поддерживается событиями CardChangedEvent после коммита, как CardSnapshot.
+@Component
+@ConditionalOnProperty(name = "app.card-index.enabled", havingValue = "true")
+public class CardFilterIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(CardFilterIndex.class);
+
+    private static final BankCardStatus[] STATUSES = BankCardStatus.values();
+
+    private static final String LOAD_SQL =
+            "SELECT c.id, c.status, c.expiry_date, c.balance_minor + COALESCE(s.total, 0) " +
+            "FROM bank_cards c LEFT JOIN (SELECT card_id, SUM(balance_minor) AS total " +
+            "FROM bank_card_balance_stripes GROUP BY card_id) s ON s.card_id = c.id";
+    // Текущее состояние карт, изменившихся во время загрузки
+    private static final String RELOAD_SQL =
+            "SELECT c.id, c.status, c.expiry_date, c.balance_minor + COALESCE((SELECT SUM(s.balance_minor) " +
+            "FROM bank_card_balance_stripes s WHERE s.card_id = c.id), 0) FROM bank_cards c WHERE c.id IN (:ids)";
+    private static final int RELOAD_CHUNK_SIZE = 1000;
+
+    // Перечитанная строка bank_cards
+    private record CardRow(long id, BankCardStatus status, String expiryDate, long balance) {}
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.card-index.fetch-size:10000}")
+    private int fetchSize;
+
+    // Верхние границы диапазонов баланса в рублях; диапазон i - баланс ниже bounds[i], последний - от последней границы
+    @Value("${app.card-index.balance-band-bounds:1000,10000,100000,1000000}")
+    private BigDecimal[] balanceBandBounds;
+
+    private long[] bandBoundsMinor;
+
+    // Множества меняются под write lock, пересечение строится под read lock и возвращается копией
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Bitmaps bitmaps;
+    // id карт, изменившихся во время загрузки: перечитываются целиком после нее (см. CardSnapshot.changedDuringLoad)
+    private Set<Long> changedDuringLoad = new HashSet<>();
+
+    private volatile boolean loaded;
+
+    // Все множества индекса и баланс каждой карты (нужен, чтобы по приращению понять, сменился ли диапазон).
+    // Балансы лежат страницами по BALANCE_PAGE_SIZE соседних id: память только под занятые диапазоны id,
+    // а не массив до наибольшего id
+    static final class Bitmaps {
+        static final int BALANCE_PAGE_SHIFT = 10;
+        static final int BALANCE_PAGE_SIZE = 1 << BALANCE_PAGE_SHIFT;
+
+        final long[] bandBounds;
+        final CardIdBitmap all = new CardIdBitmap();
+        final CardIdBitmap[] byStatus = new CardIdBitmap[STATUSES.length];
+        final Map<Integer, CardIdBitmap> byExpiryMonth = new HashMap<>();
+        final CardIdBitmap[] byBalanceBand;
+        final Map<Long, BalancePage> balancePages = new HashMap<>();
+
+        // Балансы карт одной страницы и число карт в ней; пустая страница удаляется
+        static final class BalancePage {
+            final long[] balances = new long[BALANCE_PAGE_SIZE];
+            int cards;
+        }
+
+        Bitmaps(long[] bandBounds) {
+            this.bandBounds = bandBounds;
+            byBalanceBand = new CardIdBitmap[bandBounds.length + 1];
+            for (int i = 0; i < byStatus.length; i++) {
+                byStatus[i] = new CardIdBitmap();
+            }
+            for (int i = 0; i < byBalanceBand.length; i++) {
+                byBalanceBand[i] = new CardIdBitmap();
+            }
+        }
+
+        void apply(CardChangedEvent event) {
+            long id = event.cardId();
+            if (event.type() == CardChangedEvent.Type.DELETED) {
+                remove(id, CardSnapshot.expiryMonth(event.expiryDate()));
+                return;
+            }
+            long balance = all.contains(id) ? balance(id) + event.balanceDelta() : event.balanceDelta();
+            put(id, event.status(), event.expiryDate(), balance);
+        }
+
+        // Карта с абсолютным балансом: новая или поверх существующей
+        void put(long id, BankCardStatus cardStatus, String expiryDate, long newBalance) {
+            boolean created = all.add(id);
+            long oldBalance = created ? 0 : balance(id);
+            BalancePage page = balancePages.computeIfAbsent(id >>> BALANCE_PAGE_SHIFT, key -> new BalancePage());
+            if (created) {
+                page.cards++;
+            }
+            page.balances[(int) (id & (BALANCE_PAGE_SIZE - 1))] = newBalance;
+
+            for (BankCardStatus status : STATUSES) {
+                if (status == cardStatus) {
+                    byStatus[status.ordinal()].add(id);
+                } else if (!created) {
+                    byStatus[status.ordinal()].remove(id);
+                }
+            }
+
+            // Срок действия после выпуска не меняется; если все же сменился - карта убирается из всех месяцев
+            int month = CardSnapshot.expiryMonth(expiryDate);
+            CardIdBitmap monthBitmap = byExpiryMonth.get(month);
+            if (!created && (monthBitmap == null || !monthBitmap.contains(id))) {
+                removeExpiry(id, CardSnapshot.NO_EXPIRY);
+            }
+            if (month != CardSnapshot.NO_EXPIRY) {
+                byExpiryMonth.computeIfAbsent(month, key -> new CardIdBitmap()).add(id);
+            }
+
+            int newBand = band(newBalance);
+            if (!created) {
+                int oldBand = band(oldBalance);
+                if (oldBand == newBand) {
+                    return;
+                }
+                byBalanceBand[oldBand].remove(id);
+            }
+            byBalanceBand[newBand].add(id);
+        }
+
+        // month == NO_EXPIRY - месяц неизвестен
+        void remove(long id, int month) {
+            if (!all.remove(id)) {
+                return;
+            }
+            removeFromAll(byStatus, id);
+            removeExpiry(id, month);
+            byBalanceBand[band(balance(id))].remove(id);
+
+            long pageKey = id >>> BALANCE_PAGE_SHIFT;
+            BalancePage page = balancePages.get(pageKey);
+            page.balances[(int) (id & (BALANCE_PAGE_SIZE - 1))] = 0;
+            if (--page.cards == 0) {
+                balancePages.remove(pageKey);
+            }
+        }
+
+        long balance(long id) {
+            BalancePage page = balancePages.get(id >>> BALANCE_PAGE_SHIFT);
+            return page != null ? page.balances[(int) (id & (BALANCE_PAGE_SIZE - 1))] : 0;
+        }
+
+        int band(long balance) {
+            int band = 0;
+            while (band < bandBounds.length && balance >= bandBounds[band]) {
+                band++;
+            }
+            return band;
+        }
+
+        // month == NO_EXPIRY - месяц неизвестен, карта ищется во всех
+        private void removeExpiry(long id, int month) {
+            if (month != CardSnapshot.NO_EXPIRY) {
+                CardIdBitmap bitmap = byExpiryMonth.get(month);
+                if (bitmap != null && bitmap.remove(id)) {
+                    if (bitmap.isEmpty()) {
+                        byExpiryMonth.remove(month);
+                    }
+                    return;
+                }
+            }
+            byExpiryMonth.values().forEach(bitmap -> bitmap.remove(id));
+            byExpiryMonth.values().removeIf(CardIdBitmap::isEmpty);
+        }
+
+        private static void removeFromAll(CardIdBitmap[] bitmaps, long id) {
+            for (CardIdBitmap bitmap : bitmaps) {
+                bitmap.remove(id);
+            }
+        }
+
+        long sizeInBytes() {
+            long bytes = all.sizeInBytes() + (long) balancePages.size() * BALANCE_PAGE_SIZE * Long.BYTES;
+            for (CardIdBitmap bitmap : byStatus) {
+                bytes += bitmap.sizeInBytes();
+            }
+            for (CardIdBitmap bitmap : byExpiryMonth.values()) {
+                bytes += bitmap.sizeInBytes();
+            }
+            for (CardIdBitmap bitmap : byBalanceBand) {
+                bytes += bitmap.sizeInBytes();
+            }
+            return bytes;
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        bandBoundsMinor = new long[balanceBandBounds.length];
+        for (int i = 0; i < balanceBandBounds.length; i++) {
+            bandBoundsMinor[i] = Money.toMinorUnits(balanceBandBounds[i]);
+            if (i > 0 && bandBoundsMinor[i] <= bandBoundsMinor[i - 1]) {
+                throw new IllegalStateException("Границы диапазонов баланса должны возрастать: "
+                        + Arrays.toString(balanceBandBounds));
+            }
+        }
+        bitmaps = new Bitmaps(bandBoundsMinor);
+    }
+
+    // Потоковое чтение bank_cards в транзакции (см. CardSnapshot.load). Повторный вызов пересобирает индекс целиком
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        beginLoad();
+        completeLoad();
+    }
+
+    // С этого момента изменения только отмечаются
+    void beginLoad() {
+        lock.writeLock().lock();
+        try {
+            if (changedDuringLoad == null) {
+                changedDuringLoad = new HashSet<>();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void completeLoad() {
+        long startedAt = System.nanoTime();
+        Bitmaps loading = new Bitmaps(bandBoundsMinor);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setFetchSize(fetchSize);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            jdbcTemplate.query(LOAD_SQL, resultSet -> {
+                loading.put(resultSet.getLong(1), BankCardStatus.valueOf(resultSet.getString(2)),
+                        resultSet.getString(3), resultSet.getLong(4));
+            });
+        });
+
+        lock.writeLock().lock();
+        try {
+            bitmaps = loading;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        reloadChanged();
+
+        long cards;
+        long bytes;
+        lock.readLock().lock();
+        try {
+            cards = bitmaps.all.cardinality();
+            bytes = bitmaps.sizeInBytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+        log.info("Индекс карт загружен: {} карт, {} КБ за {} ms", cards, bytes / 1024,
+                (System.nanoTime() - startedAt) / 1_000_000);
+    }
+
+    // Вызывается в потоке, закоммитившем изменение; без транзакции - сразу
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCardChanged(CardChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (changedDuringLoad != null) {
+                changedDuringLoad.add(event.cardId());
+            } else {
+                bitmaps.apply(event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Перечитывает отмеченные карты, пока во время перечитывания появляются новые отметки;
+    // пустой набор под write lock - переход к применению событий
+    private void reloadChanged() {
+        NamedParameterJdbcTemplate jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+        while (true) {
+            List<Long> cardIds;
+            lock.writeLock().lock();
+            try {
+                if (changedDuringLoad.isEmpty()) {
+                    changedDuringLoad = null;
+                    loaded = true;
+                    return;
+                }
+                cardIds = new ArrayList<>(changedDuringLoad);
+                changedDuringLoad = new HashSet<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            for (int from = 0; from < cardIds.size(); from += RELOAD_CHUNK_SIZE) {
+                List<Long> chunk = cardIds.subList(from, Math.min(cardIds.size(), from + RELOAD_CHUNK_SIZE));
+                Set<Long> missing = new HashSet<>(chunk);
+                List<CardRow> rows = jdbcTemplate.query(RELOAD_SQL, Map.of("ids", chunk), (resultSet, rowNum) ->
+                        new CardRow(resultSet.getLong(1), BankCardStatus.valueOf(resultSet.getString(2)),
+                                resultSet.getString(3), resultSet.getLong(4)));
+                lock.writeLock().lock();
+                try {
+                    for (CardRow row : rows) {
+                        missing.remove(row.id());
+                        bitmaps.put(row.id(), row.status(), row.expiryDate(), row.balance());
+                    }
+                    missing.forEach(id -> bitmaps.remove(id, CardSnapshot.NO_EXPIRY));
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public int getBalanceBandCount() {
+        return bandBoundsMinor.length + 1;
+    }
+
+    // Id карт, подходящих под все заданные условия (null - условие не задано).
+    // restrictTo - уже известное множество id (например, карты владельца из базы)
+    public CardIdBitmap find(BankCardStatus status, YearMonth expiryMonth, Integer balanceBand, CardIdBitmap restrictTo) {
+        lock.readLock().lock();
+        try {
+            List<CardIdBitmap> conditions = new ArrayList<>(4);
+            if (status != null) {
+                conditions.add(bitmaps.byStatus[status.ordinal()]);
+            }
+            if (expiryMonth != null) {
+                CardIdBitmap month = bitmaps.byExpiryMonth.get(CardSnapshot.monthIndex(expiryMonth));
+                if (month == null) {
+                    return new CardIdBitmap();
+                }
+                conditions.add(month);
+            }
+            if (balanceBand != null) {
+                conditions.add(bitmaps.byBalanceBand[balanceBand]);
+            }
+            if (restrictTo != null) {
+                conditions.add(restrictTo);
+            }
+            if (conditions.isEmpty() || (conditions.size() == 1 && restrictTo != null)) {
+                conditions.add(bitmaps.all);
+            }
+
+            // Начинаем с самого маленького множества: дальше пересечения только сужают его
+            conditions.sort(Comparator.comparingLong(CardIdBitmap::cardinality));
+            CardIdBitmap result = conditions.size() == 1 ? conditions.get(0).copy() : conditions.get(0).and(conditions.get(1));
+            for (int i = 2; i < conditions.size() && !result.isEmpty(); i++) {
+                result = result.and(conditions.get(i));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
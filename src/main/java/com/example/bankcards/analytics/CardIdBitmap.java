@@ -0,0 +1,359 @@
+package com.example.bankcards.analytics;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+// Сжатое множество id карт по схеме Roaring: старшие 16 бит id выбирают контейнер, младшие 16 бит хранятся в нем.
+// Контейнер до ARRAY_MAX значений - отсортированный char[] (2 байта на id), больше - битовая карта на 2^16 бит (8 КБ).
+// Разреженные множества (карты одного месяца окончания) не платят за весь диапазон id, плотные - бит на id.
+// Не потокобезопасен: синхронизация на стороне владельца (CardFilterIndex).
+public final class CardIdBitmap {
+
+    // Id карт - 32 бита без знака
+    public static final long MAX_ID = 0xFFFF_FFFFL;
+
+    static final int ARRAY_MAX = 4096;
+    private static final int BITMAP_WORDS = 1 << 10;
+
+    // Ключи контейнеров (старшие 16 бит) по возрастанию
+    private char[] keys;
+    private Container[] containers;
+    private int size;
+
+    public CardIdBitmap() {
+        this(4);
+    }
+
+    private CardIdBitmap(int capacity) {
+        keys = new char[capacity];
+        containers = new Container[capacity];
+    }
+
+    public static CardIdBitmap of(Collection<Long> ids) {
+        CardIdBitmap bitmap = new CardIdBitmap();
+        ids.forEach(bitmap::add);
+        return bitmap;
+    }
+
+    public boolean add(long id) {
+        int value = checkedValue(id);
+        char key = (char) (value >>> 16);
+        int index = indexOf(key);
+        if (index < 0) {
+            index = -index - 1;
+            insertContainer(index, key, new Container());
+        }
+        return containers[index].add((char) value);
+    }
+
+    public boolean remove(long id) {
+        int value = checkedValue(id);
+        int index = indexOf((char) (value >>> 16));
+        if (index < 0 || !containers[index].remove((char) value)) {
+            return false;
+        }
+        if (containers[index].cardinality == 0) {
+            removeContainer(index);
+        }
+        return true;
+    }
+
+    public boolean contains(long id) {
+        if (id < 0 || id > MAX_ID) {
+            return false;
+        }
+        int value = (int) id;
+        int index = indexOf((char) (value >>> 16));
+        return index >= 0 && containers[index].contains((char) value);
+    }
+
+    public long cardinality() {
+        long cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += containers[i].cardinality;
+        }
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Приблизительный объем данных контейнеров в байтах
+    public long sizeInBytes() {
+        long bytes = (long) keys.length * Character.BYTES;
+        for (int i = 0; i < size; i++) {
+            Container container = containers[i];
+            bytes += container.words != null ? (long) container.words.length * Long.BYTES
+                    : (long) container.values.length * Character.BYTES;
+        }
+        return bytes;
+    }
+
+    public CardIdBitmap copy() {
+        CardIdBitmap copy = new CardIdBitmap(Math.max(size, 1));
+        for (int i = 0; i < size; i++) {
+            copy.keys[i] = keys[i];
+            copy.containers[i] = containers[i].copy();
+        }
+        copy.size = size;
+        return copy;
+    }
+
+    // Пересечение: проходятся только контейнеры с общими ключами
+    public CardIdBitmap and(CardIdBitmap other) {
+        CardIdBitmap result = new CardIdBitmap(Math.max(Math.min(size, other.size), 1));
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                Container container = containers[i].and(other.containers[j]);
+                if (container != null) {
+                    result.keys[result.size] = keys[i];
+                    result.containers[result.size] = container;
+                    result.size++;
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    // До limit id по возрастанию или убыванию после пропуска offset первых; целые контейнеры пропускаются по cardinality
+    public long[] page(long offset, int limit, boolean descending) {
+        long[] result = new long[(int) Math.max(0, Math.min(limit, cardinality() - offset))];
+        int written = 0;
+        long skip = offset;
+        for (int n = 0; n < size && written < result.length; n++) {
+            int index = descending ? size - 1 - n : n;
+            Container container = containers[index];
+            if (skip >= container.cardinality) {
+                skip -= container.cardinality;
+                continue;
+            }
+            written = container.collect((long) keys[index] << 16, (int) skip, descending, result, written);
+            skip = 0;
+        }
+        return result;
+    }
+
+    private static int checkedValue(long id) {
+        if (id < 0 || id > MAX_ID) {
+            throw new IllegalArgumentException("Id карты вне диапазона индекса: " + id);
+        }
+        return (int) id;
+    }
+
+    private int indexOf(char key) {
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    private void insertContainer(int index, char key, Container container) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = container;
+        size++;
+    }
+
+    private void removeContainer(int index) {
+        System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+        System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+        size--;
+        containers[size] = null;
+    }
+
+    // Младшие 16 бит id: либо values (отсортированный массив), либо words (битовая карта)
+    static final class Container {
+
+        char[] values;
+        long[] words;
+        int cardinality;
+
+        Container() {
+            values = new char[4];
+        }
+
+        private Container(char[] values, long[] words, int cardinality) {
+            this.values = values;
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        boolean isBitmap() {
+            return words != null;
+        }
+
+        boolean contains(char low) {
+            if (words != null) {
+                return (words[low >>> 6] & (1L << low)) != 0;
+            }
+            return Arrays.binarySearch(values, 0, cardinality, low) >= 0;
+        }
+
+        boolean add(char low) {
+            if (words != null) {
+                long before = words[low >>> 6];
+                words[low >>> 6] = before | (1L << low);
+                if (before == words[low >>> 6]) {
+                    return false;
+                }
+                cardinality++;
+                return true;
+            }
+
+            int index = Arrays.binarySearch(values, 0, cardinality, low);
+            if (index >= 0) {
+                return false;
+            }
+            if (cardinality == ARRAY_MAX) {
+                toBitmap();
+                return add(low);
+            }
+            index = -index - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(cardinality * 2, ARRAY_MAX));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = low;
+            cardinality++;
+            return true;
+        }
+
+        boolean remove(char low) {
+            if (words != null) {
+                long before = words[low >>> 6];
+                words[low >>> 6] = before & ~(1L << low);
+                if (before == words[low >>> 6]) {
+                    return false;
+                }
+                cardinality--;
+                // Обратно в массив с запасом, чтобы не переключаться туда-обратно на границе
+                if (cardinality <= ARRAY_MAX / 2) {
+                    toArray();
+                }
+                return true;
+            }
+
+            int index = Arrays.binarySearch(values, 0, cardinality, low);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+            cardinality--;
+            return true;
+        }
+
+        Container copy() {
+            return new Container(values != null ? Arrays.copyOf(values, Math.max(cardinality, 1)) : null,
+                    words != null ? words.clone() : null, cardinality);
+        }
+
+        // null - пустое пересечение
+        Container and(Container other) {
+            Container result;
+            if (words != null && other.words != null) {
+                long[] anded = new long[BITMAP_WORDS];
+                int cardinality = 0;
+                for (int i = 0; i < BITMAP_WORDS; i++) {
+                    anded[i] = words[i] & other.words[i];
+                    cardinality += Long.bitCount(anded[i]);
+                }
+                result = new Container(null, anded, cardinality);
+                if (cardinality <= ARRAY_MAX) {
+                    result.toArray();
+                }
+            } else if (words != null || other.words != null) {
+                Container array = words != null ? other : this;
+                Container bitmap = words != null ? this : other;
+                char[] filtered = new char[Math.max(array.cardinality, 1)];
+                int cardinality = 0;
+                for (int i = 0; i < array.cardinality; i++) {
+                    if (bitmap.contains(array.values[i])) {
+                        filtered[cardinality++] = array.values[i];
+                    }
+                }
+                result = new Container(filtered, null, cardinality);
+            } else {
+                char[] merged = new char[Math.max(Math.min(cardinality, other.cardinality), 1)];
+                int cardinality = 0;
+                int i = 0;
+                int j = 0;
+                while (i < this.cardinality && j < other.cardinality) {
+                    if (values[i] < other.values[j]) {
+                        i++;
+                    } else if (values[i] > other.values[j]) {
+                        j++;
+                    } else {
+                        merged[cardinality++] = values[i];
+                        i++;
+                        j++;
+                    }
+                }
+                result = new Container(merged, null, cardinality);
+            }
+            return result.cardinality == 0 ? null : result;
+        }
+
+        // Дописывает в out значения high | low, пропустив skip первых в заданном порядке; возвращает новую позицию
+        int collect(long high, int skip, boolean descending, long[] out, int position) {
+            if (words == null) {
+                for (int n = skip; n < cardinality && position < out.length; n++) {
+                    out[position++] = high | values[descending ? cardinality - 1 - n : n];
+                }
+                return position;
+            }
+
+            for (int n = 0; n < BITMAP_WORDS && position < out.length; n++) {
+                int wordIndex = descending ? BITMAP_WORDS - 1 - n : n;
+                long word = words[wordIndex];
+                int bits = Long.bitCount(word);
+                if (skip >= bits) {
+                    skip -= bits;
+                    continue;
+                }
+                while (word != 0 && position < out.length) {
+                    int bit = descending ? 63 - Long.numberOfLeadingZeros(word) : Long.numberOfTrailingZeros(word);
+                    word &= ~(1L << bit);
+                    if (skip > 0) {
+                        skip--;
+                    } else {
+                        out[position++] = high | ((long) wordIndex << 6) | bit;
+                    }
+                }
+            }
+            return position;
+        }
+
+        private void toBitmap() {
+            words = new long[BITMAP_WORDS];
+            for (int i = 0; i < cardinality; i++) {
+                words[values[i] >>> 6] |= 1L << values[i];
+            }
+            values = null;
+        }
+
+        private void toArray() {
+            values = new char[Math.max(cardinality, 1)];
+            int index = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    int bit = Long.numberOfTrailingZeros(word);
+                    values[index++] = (char) ((i << 6) | bit);
+                    word &= word - 1;
+                }
+            }
+            words = null;
+        }
+    }
+}
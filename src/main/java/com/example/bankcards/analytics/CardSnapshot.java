@@ -0,0 +1,426 @@
+package com.example.bankcards.analytics;
+
+import com.example.bankcards.entity.BankCardStatus;
+import com.example.bankcards.event.CardChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+// Колоночный снимок карт в памяти для аналитики администратора: id, владелец, статус, месяц окончания срока
+// и баланс в копейках лежат в примитивных массивах. Агрегаты считаются параллельным проходом по массивам,
+// а не GROUP BY по bank_cards на primary. Снимок загружается один раз при старте (до готовности принимать трафик)
+// и дальше поддерживается событиями CardChangedEvent после коммита.
+@Component
+@ConditionalOnProperty(name = "app.card-snapshot.enabled", havingValue = "true")
+public class CardSnapshot {
+
+    private static final Logger log = LoggerFactory.getLogger(CardSnapshot.class);
+
+    // Строк на одну параллельную задачу прохода
+    static final int CHUNK_SIZE = 1 << 16;
+    static final int NO_EXPIRY = -1;
+
+    private static final BankCardStatus[] STATUSES = BankCardStatus.values();
+    // Статус удаленной строки; строка остается в массивах до уплотнения
+    private static final byte DELETED = -1;
+    private static final int INITIAL_CAPACITY = 1024;
+    // Порог ConcurrentHashMap.forEachValue, начиная с которого обход идет параллельно
+    private static final long USER_SCAN_PARALLELISM = 10_000;
+
+    private static final String LOAD_SQL =
+            "SELECT c.id, c.user_id, c.status, c.expiry_date, c.balance_minor + COALESCE(s.total, 0) " +
+            "FROM bank_cards c LEFT JOIN (SELECT card_id, SUM(balance_minor) AS total " +
+            "FROM bank_card_balance_stripes GROUP BY card_id) s ON s.card_id = c.id";
+    // Текущее состояние карт, изменившихся во время загрузки
+    private static final String RELOAD_SQL =
+            "SELECT c.id, c.user_id, c.status, c.expiry_date, c.balance_minor + COALESCE((SELECT SUM(s.balance_minor) " +
+            "FROM bank_card_balance_stripes s WHERE s.card_id = c.id), 0) FROM bank_cards c WHERE c.id IN (:ids)";
+    private static final int RELOAD_CHUNK_SIZE = 1000;
+
+    // Перечитанная строка bank_cards
+    private record CardRow(long id, long userId, byte status, int expiryMonth, long balance) {}
+
+    // Агрегат по статусу: число карт и сумма балансов в копейках
+    public record StatusTotal(BankCardStatus status, long cardCount, long balance) {}
+
+    // Массивы меняет только писатель под lock. Читатели берут ссылку на Columns один раз и проходят [0, size):
+    // строка записывается до увеличения volatile size, а при росте массивов публикуется новый Columns
+    static final class Columns {
+        final long[] ids;
+        final long[] userIds;
+        final byte[] statuses;
+        final int[] expiryMonths;
+        final long[] balances;
+        volatile int size;
+
+        Columns(int capacity) {
+            ids = new long[capacity];
+            userIds = new long[capacity];
+            statuses = new byte[capacity];
+            expiryMonths = new int[capacity];
+            balances = new long[capacity];
+        }
+
+        int capacity() {
+            return ids.length;
+        }
+    }
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.card-snapshot.fetch-size:10000}")
+    private int fetchSize;
+
+    private final Object lock = new Object();
+    private volatile Columns columns = new Columns(INITIAL_CAPACITY);
+    // Принадлежат писателю
+    private final Map<Long, Integer> rowsById = new HashMap<>();
+    private int deletedRows;
+    private volatile int cardCount;
+    // id карт, изменившихся во время загрузки. Приращение баланса поверх загрузки применить нельзя: неизвестно,
+    // закоммичено оно до чтения строки (и уже учтено) или после, поэтому такие карты перечитываются целиком
+    private Set<Long> changedDuringLoad = new HashSet<>();
+
+    // Число карт у каждого владельца - для гистограммы карт на пользователя
+    private final ConcurrentHashMap<Long, Integer> cardsPerUser = new ConcurrentHashMap<>();
+
+    private volatile boolean loaded;
+
+    // Потоковое чтение bank_cards в транзакции: без нее драйвер Postgres игнорирует fetchSize и читает все строки сразу.
+    // Повторный вызов пересобирает снимок целиком
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        beginLoad();
+        completeLoad();
+    }
+
+    // С этого момента изменения только отмечаются
+    void beginLoad() {
+        synchronized (lock) {
+            if (changedDuringLoad == null) {
+                changedDuringLoad = new HashSet<>();
+            }
+        }
+    }
+
+    void completeLoad() {
+        long startedAt = System.nanoTime();
+        CardSnapshot loading = new CardSnapshot();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setFetchSize(fetchSize);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            jdbcTemplate.query(LOAD_SQL, resultSet -> {
+                loading.append(resultSet.getLong(1), resultSet.getLong(2),
+                        (byte) BankCardStatus.valueOf(resultSet.getString(3)).ordinal(),
+                        expiryMonth(resultSet.getString(4)), resultSet.getLong(5));
+            });
+        });
+
+        synchronized (lock) {
+            columns = loading.columns;
+            rowsById.clear();
+            rowsById.putAll(loading.rowsById);
+            cardsPerUser.clear();
+            cardsPerUser.putAll(loading.cardsPerUser);
+            deletedRows = 0;
+            cardCount = loading.cardCount;
+        }
+        reloadChanged();
+        log.info("Снимок карт загружен: {} карт за {} ms", getCardCount(), (System.nanoTime() - startedAt) / 1_000_000);
+    }
+
+    // Вызывается в потоке, закоммитившем изменение; без транзакции - сразу
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCardChanged(CardChangedEvent event) {
+        synchronized (lock) {
+            if (changedDuringLoad != null) {
+                changedDuringLoad.add(event.cardId());
+            } else {
+                applyLocked(event);
+            }
+        }
+    }
+
+    // Перечитывает отмеченные карты, пока во время перечитывания появляются новые отметки;
+    // пустой набор под lock - переход к применению событий
+    private void reloadChanged() {
+        NamedParameterJdbcTemplate jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+        while (true) {
+            List<Long> cardIds;
+            synchronized (lock) {
+                if (changedDuringLoad.isEmpty()) {
+                    changedDuringLoad = null;
+                    loaded = true;
+                    return;
+                }
+                cardIds = new ArrayList<>(changedDuringLoad);
+                changedDuringLoad = new HashSet<>();
+            }
+            for (int from = 0; from < cardIds.size(); from += RELOAD_CHUNK_SIZE) {
+                List<Long> chunk = cardIds.subList(from, Math.min(cardIds.size(), from + RELOAD_CHUNK_SIZE));
+                Set<Long> missing = new HashSet<>(chunk);
+                List<CardRow> rows = jdbcTemplate.query(RELOAD_SQL, Map.of("ids", chunk), (resultSet, rowNum) ->
+                        new CardRow(resultSet.getLong(1), resultSet.getLong(2),
+                                (byte) BankCardStatus.valueOf(resultSet.getString(3)).ordinal(),
+                                expiryMonth(resultSet.getString(4)), resultSet.getLong(5)));
+                synchronized (lock) {
+                    for (CardRow row : rows) {
+                        missing.remove(row.id());
+                        put(row.id(), row.userId(), row.status(), row.expiryMonth(), row.balance());
+                    }
+                    missing.forEach(this::remove);
+                }
+            }
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public int getCardCount() {
+        return cardCount;
+    }
+
+    // Число карт и сумма балансов по каждому статусу
+    public List<StatusTotal> balanceByStatus() {
+        Columns c = columns;
+        int size = c.size;
+        long[] totals = chunks(size)
+                .mapToObj(chunk -> sumByStatus(c, chunk * CHUNK_SIZE, Math.min(size, (chunk + 1) * CHUNK_SIZE)))
+                .reduce(CardSnapshot::add)
+                .orElseGet(() -> new long[STATUSES.length * 2]);
+
+        List<StatusTotal> result = new ArrayList<>(STATUSES.length);
+        for (BankCardStatus status : STATUSES) {
+            result.add(new StatusTotal(status, totals[status.ordinal() * 2], totals[status.ordinal() * 2 + 1]));
+        }
+        return result;
+    }
+
+    // Число карт, срок которых заканчивается в каждом из months месяцев начиная с from
+    public long[] expiringPerMonth(YearMonth from, int months) {
+        Columns c = columns;
+        int size = c.size;
+        int firstMonth = monthIndex(from);
+        return chunks(size)
+                .mapToObj(chunk -> countExpiring(c, chunk * CHUNK_SIZE, Math.min(size, (chunk + 1) * CHUNK_SIZE),
+                        firstMonth, months))
+                .reduce(CardSnapshot::add)
+                .orElseGet(() -> new long[months]);
+    }
+
+    // Гистограмма: сколько пользователей имеют 1, 2, ... карт; последний элемент - maxCards и больше.
+    // Пользователи без карт в снимок не попадают
+    public long[] cardsPerUserHistogram(int maxCards) {
+        LongAdder[] buckets = new LongAdder[maxCards];
+        for (int i = 0; i < maxCards; i++) {
+            buckets[i] = new LongAdder();
+        }
+        cardsPerUser.forEachValue(USER_SCAN_PARALLELISM, count -> buckets[Math.min(count, maxCards) - 1].increment());
+
+        long[] histogram = new long[maxCards];
+        for (int i = 0; i < maxCards; i++) {
+            histogram[i] = buckets[i].sum();
+        }
+        return histogram;
+    }
+
+    private static IntStream chunks(int size) {
+        return IntStream.range(0, (size + CHUNK_SIZE - 1) / CHUNK_SIZE).parallel();
+    }
+
+    private static long[] sumByStatus(Columns c, int from, int to) {
+        long[] partial = new long[STATUSES.length * 2];
+        byte[] statuses = c.statuses;
+        long[] balances = c.balances;
+        for (int i = from; i < to; i++) {
+            int status = statuses[i];
+            if (status != DELETED) {
+                partial[status * 2]++;
+                partial[status * 2 + 1] += balances[i];
+            }
+        }
+        return partial;
+    }
+
+    private static long[] countExpiring(Columns c, int from, int to, int firstMonth, int months) {
+        long[] partial = new long[months];
+        byte[] statuses = c.statuses;
+        int[] expiryMonths = c.expiryMonths;
+        for (int i = from; i < to; i++) {
+            int offset = expiryMonths[i] - firstMonth;
+            if (offset >= 0 && offset < months && statuses[i] != DELETED && expiryMonths[i] != NO_EXPIRY) {
+                partial[offset]++;
+            }
+        }
+        return partial;
+    }
+
+    private static long[] add(long[] left, long[] right) {
+        for (int i = 0; i < left.length; i++) {
+            left[i] += right[i];
+        }
+        return left;
+    }
+
+    void applyLocked(CardChangedEvent event) {
+        if (event.type() == CardChangedEvent.Type.DELETED) {
+            remove(event.cardId());
+            return;
+        }
+
+        byte status = (byte) event.status().ordinal();
+        int expiryMonth = expiryMonth(event.expiryDate());
+        Integer row = rowsById.get(event.cardId());
+        if (row == null) {
+            append(event.cardId(), event.userId(), status, expiryMonth, event.balanceDelta());
+            return;
+        }
+
+        Columns c = updateRow(row, event.userId(), status, expiryMonth);
+        c.balances[row] += event.balanceDelta();
+    }
+
+    // Строка с абсолютным балансом: новая или поверх существующей
+    private void put(long id, long userId, byte status, int expiryMonth, long balance) {
+        Integer row = rowsById.get(id);
+        if (row == null) {
+            append(id, userId, status, expiryMonth, balance);
+            return;
+        }
+        Columns c = updateRow(row, userId, status, expiryMonth);
+        c.balances[row] = balance;
+    }
+
+    private Columns updateRow(int row, long userId, byte status, int expiryMonth) {
+        Columns c = columns;
+        if (c.userIds[row] != userId) {
+            decrementUser(c.userIds[row]);
+            cardsPerUser.merge(userId, 1, Integer::sum);
+            c.userIds[row] = userId;
+        }
+        c.statuses[row] = status;
+        c.expiryMonths[row] = expiryMonth;
+        return c;
+    }
+
+    private void append(long id, long userId, byte status, int expiryMonth, long balance) {
+        Columns c = columns;
+        int size = c.size;
+        if (size == c.capacity()) {
+            c = resize();
+            size = c.size;
+        }
+        c.ids[size] = id;
+        c.userIds[size] = userId;
+        c.statuses[size] = status;
+        c.expiryMonths[size] = expiryMonth;
+        c.balances[size] = balance;
+        c.size = size + 1;
+
+        rowsById.put(id, size);
+        cardsPerUser.merge(userId, 1, Integer::sum);
+        cardCount = rowsById.size();
+    }
+
+    private void remove(long id) {
+        Integer row = rowsById.remove(id);
+        if (row == null) {
+            return;
+        }
+        Columns c = columns;
+        c.statuses[row] = DELETED;
+        c.balances[row] = 0;
+        decrementUser(c.userIds[row]);
+        deletedRows++;
+        cardCount = rowsById.size();
+    }
+
+    private void decrementUser(long userId) {
+        cardsPerUser.computeIfPresent(userId, (user, count) -> count > 1 ? count - 1 : null);
+    }
+
+    // Новые массивы без удаленных строк; если удаленных меньше четверти, емкость удваивается.
+    // Читатели со старой ссылкой дочитывают старые массивы
+    private Columns resize() {
+        Columns old = columns;
+        int capacity = deletedRows >= old.capacity() / 4 ? old.capacity() : old.capacity() * 2;
+        Columns resized = new Columns(capacity);
+
+        int target = 0;
+        for (int i = 0; i < old.size; i++) {
+            if (old.statuses[i] == DELETED) {
+                continue;
+            }
+            resized.ids[target] = old.ids[i];
+            resized.userIds[target] = old.userIds[i];
+            resized.statuses[target] = old.statuses[i];
+            resized.expiryMonths[target] = old.expiryMonths[i];
+            resized.balances[target] = old.balances[i];
+            rowsById.put(old.ids[i], target);
+            target++;
+        }
+        resized.size = target;
+        deletedRows = 0;
+        columns = resized;
+        return resized;
+    }
+
+    static int monthIndex(YearMonth month) {
+        return month.getYear() * 12 + month.getMonthValue() - 1;
+    }
+
+    // "MM/yy" -> номер месяца (год * 12 + месяц - 1); некорректная дата - NO_EXPIRY
+    static int expiryMonth(String expiryDate) {
+        if (expiryDate == null || expiryDate.length() != 5 || expiryDate.charAt(2) != '/') {
+            return NO_EXPIRY;
+        }
+        int month = digits(expiryDate, 0);
+        int year = digits(expiryDate, 3);
+        if (month < 1 || month > 12 || year < 0) {
+            return NO_EXPIRY;
+        }
+        return (2000 + year) * 12 + month - 1;
+    }
+
+    private static int digits(String value, int offset) {
+        char high = value.charAt(offset);
+        char low = value.charAt(offset + 1);
+        if (high < '0' || high > '9' || low < '0' || low > '9') {
+            return -1;
+        }
+        return (high - '0') * 10 + (low - '0');
+    }
+
+    // Для проверки уплотнения в тестах
+    int getCapacity() {
+        return columns.capacity();
+    }
+}
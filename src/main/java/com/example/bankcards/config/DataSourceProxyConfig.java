@@ -0,0 +1,38 @@
+package com.example.bankcards.config;
+
+import com.example.bankcards.monitoring.QueryMonitoringListener;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+
+// Оборачивает DataSource в datasource-proxy для учета запросов вместо show-sql
+@Configuration
+@ConditionalOnProperty(name = "app.sql-monitoring.enabled", havingValue = "true", matchIfMissing = true)
+public class DataSourceProxyConfig {
+
+    @Bean
+    public static BeanPostProcessor dataSourceProxyPostProcessor(Environment environment) {
+        QueryMonitoringListener listener = new QueryMonitoringListener(
+                environment.getProperty("app.sql-monitoring.slow-query-ms", Long.class, 200L),
+                environment.getProperty("app.sql-monitoring.sample-rate", Double.class, 0.0),
+                environment.getProperty("app.sql-monitoring.n-plus-one-threshold", Integer.class, 5));
+
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ProxyDataSource)) {
+                    return ProxyDataSourceBuilder.create(beanName, dataSource)
+                            .listener(listener)
+                            .build();
+                }
+                return bean;
+            }
+        };
+    }
+}
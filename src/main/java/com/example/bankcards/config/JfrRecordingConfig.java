@@ -0,0 +1,85 @@
+package com.example.bankcards.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+// Непрерывная запись JFR в кольцевой буфер на диске: стандартный набор JDK плюс события приложения
+// из jfr/bankcards.jfc. Снимок за последние max-age: jcmd <pid> JFR.dump name=bankcards, при остановке - в dump-path.
+@Component
+@ConditionalOnProperty(name = "app.jfr.enabled", havingValue = "true")
+public class JfrRecordingConfig {
+
+    public static final String RECORDING_NAME = "bankcards";
+    static final String PROFILE = "jfr/bankcards.jfc";
+
+    private static final Logger log = LoggerFactory.getLogger(JfrRecordingConfig.class);
+
+    @Value("${app.jfr.settings:default}")
+    private String baseSettings;
+
+    @Value("${app.jfr.max-age:6h}")
+    private Duration maxAge;
+
+    @Value("${app.jfr.max-size-mb:256}")
+    private long maxSizeMb;
+
+    @Value("${app.jfr.dump-path:data/bankcards.jfr}")
+    private String dumpPath;
+
+    private Recording recording;
+
+    @PostConstruct
+    public void start() throws IOException, ParseException {
+        recording = new Recording(settings(baseSettings));
+        recording.setName(RECORDING_NAME);
+        recording.setToDisk(true);
+        recording.setMaxAge(maxAge);
+        recording.setMaxSize(maxSizeMb * 1024 * 1024);
+        recording.setDumpOnExit(true);
+        Path destination = Path.of(dumpPath);
+        if (destination.getParent() != null) {
+            Files.createDirectories(destination.getParent());
+        }
+        recording.setDestination(destination);
+        recording.start();
+        log.info("Запись JFR '{}' запущена: настройки {} + {}, хранение {}, до {} МБ",
+                RECORDING_NAME, baseSettings, PROFILE, maxAge, maxSizeMb);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (recording != null) {
+            // stop() сохраняет запись в destination
+            recording.stop();
+            recording.close();
+        }
+    }
+
+    // Настройки JDK (default или profile), поверх них - события приложения
+    static Map<String, String> settings(String baseSettings) throws IOException, ParseException {
+        Map<String, String> settings = new HashMap<>(Configuration.getConfiguration(baseSettings).getSettings());
+        try (Reader reader = new InputStreamReader(new ClassPathResource(PROFILE).getInputStream(), StandardCharsets.UTF_8)) {
+            settings.putAll(Configuration.create(reader).getSettings());
+        }
+        return settings;
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.bankcards.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+// Включается, только если задан app.datasource.replica.url; иначе используется обычный DataSource Spring Boot
+@Configuration
+@ConditionalOnProperty(name = "app.datasource.replica.url")
+public class ReplicaDataSourceConfig {
+
+    @Value("${app.datasource.replica.url}")
+    private String replicaUrl;
+
+    @Value("${app.datasource.replica.username:${spring.datasource.username:}}")
+    private String replicaUsername;
+
+    @Value("${app.datasource.replica.password:${spring.datasource.password:}}")
+    private String replicaPassword;
+
+    @Value("${app.datasource.replica.max-lag-ms:1000}")
+    private long maxLagMs;
+
+    @Value("${app.datasource.replica.lag-query:}")
+    private String lagQuery;
+
+    @Value("${app.datasource.replica.lag-check-interval-ms:1000}")
+    private long lagCheckIntervalMs;
+
+    private HikariDataSource primary;
+    private HikariDataSource replica;
+
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties properties) {
+        primary = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        primary.setPoolName("primary");
+
+        replica = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .url(replicaUrl)
+                .username(replicaUsername)
+                .password(replicaPassword)
+                .build();
+        replica.setPoolName("replica");
+        replica.setReadOnly(true);
+
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(
+                primary, replica, maxLagMs, lagQuery, lagCheckIntervalMs);
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    // Пулы не являются бинами (иначе их тоже обернул бы datasource-proxy), поэтому закрываем вручную
+    @PreDestroy
+    public void closePools() {
+        if (replica != null) {
+            replica.close();
+        }
+        if (primary != null) {
+            primary.close();
+        }
+    }
+}
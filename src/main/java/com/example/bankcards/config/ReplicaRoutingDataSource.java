@@ -0,0 +1,126 @@
+package com.example.bankcards.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+// Направляет readOnly-транзакции в реплику, все остальное - в primary.
+// Должен оборачиваться в LazyConnectionDataSourceProxy: соединение берется при первом запросе,
+// когда флаг readOnly транзакции уже выставлен.
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    // Атрибут запроса: в этом HTTP-запросе уже была пишущая транзакция, читаем свои записи из primary
+    static final String PRIMARY_PINNED_ATTRIBUTE = ReplicaRoutingDataSource.class.getName() + ".PRIMARY_PINNED";
+
+    public enum Route { PRIMARY, REPLICA }
+
+    private final DataSource replica;
+    private final long maxLagMs;
+    private final String lagQuery;
+    private final long lagCheckIntervalNanos;
+    private final LongSupplier nanoClock;
+
+    private final ReentrantLock lagCheckLock = new ReentrantLock();
+    private volatile long lastLagMs;
+    private volatile long lastLagCheckNanos;
+    private volatile boolean lagChecked;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica,
+                                    long maxLagMs, String lagQuery, long lagCheckIntervalMs) {
+        this(primary, replica, maxLagMs, lagQuery, lagCheckIntervalMs, System::nanoTime);
+    }
+
+    ReplicaRoutingDataSource(DataSource primary, DataSource replica,
+                             long maxLagMs, String lagQuery, long lagCheckIntervalMs, LongSupplier nanoClock) {
+        this.replica = replica;
+        this.maxLagMs = maxLagMs;
+        this.lagQuery = lagQuery;
+        this.lagCheckIntervalNanos = TimeUnit.MILLISECONDS.toNanos(lagCheckIntervalMs);
+        this.nanoClock = nanoClock;
+
+        setTargetDataSources(Map.of(Route.PRIMARY, primary, Route.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return Route.PRIMARY;
+        }
+
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            pinRequestToPrimary();
+            return Route.PRIMARY;
+        }
+
+        if (isRequestPinnedToPrimary() || !isReplicaFresh()) {
+            return Route.PRIMARY;
+        }
+        return Route.REPLICA;
+    }
+
+    private void pinRequestToPrimary() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            attributes.setAttribute(PRIMARY_PINNED_ATTRIBUTE, Boolean.TRUE, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
+    private boolean isRequestPinnedToPrimary() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes != null
+                && attributes.getAttribute(PRIMARY_PINNED_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) != null;
+    }
+
+    // Отставание реплики проверяется не чаще lagCheckInterval; пока один поток проверяет,
+    // остальные используют последнее известное значение
+    boolean isReplicaFresh() {
+        if (!StringUtils.hasText(lagQuery)) {
+            return true;
+        }
+
+        long now = nanoClock.getAsLong();
+        if ((!lagChecked || now - lastLagCheckNanos >= lagCheckIntervalNanos) && lagCheckLock.tryLock()) {
+            try {
+                lastLagMs = queryReplicaLagMs();
+                lastLagCheckNanos = now;
+                lagChecked = true;
+            } finally {
+                lagCheckLock.unlock();
+            }
+        }
+        return lagChecked && lastLagMs <= maxLagMs;
+    }
+
+    private long queryReplicaLagMs() {
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(lagQuery)) {
+            long lagMs = resultSet.next() ? resultSet.getLong(1) : Long.MAX_VALUE;
+            if (lagMs > maxLagMs) {
+                log.warn("Реплика отстает на {} ms (допустимо {} ms), чтение идет в primary", lagMs, maxLagMs);
+            }
+            return lagMs;
+        } catch (Exception e) {
+            // Недоступная реплика считается бесконечно отстающей
+            log.warn("Не удалось проверить отставание реплики: {}", e.getMessage());
+            return Long.MAX_VALUE;
+        }
+    }
+}
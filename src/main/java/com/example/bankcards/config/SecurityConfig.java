@@ -1,10 +1,14 @@
 package com.example.bankcards.config;
 
+import com.example.bankcards.security.PasswordEncoderCalibrator;
 import com.example.bankcards.security.jwt.AuthTokenFilter;
+import com.example.bankcards.security.ratelimit.RateLimitFilter;
 import com.example.bankcards.security.UserDetailsServiceImpl;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -14,7 +18,6 @@ import org.springframework.security.config.annotation.method.configuration.Enabl
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.AuthenticationEntryPoint;
 import org.springframework.security.web.SecurityFilterChain;
@@ -24,6 +27,7 @@ import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
@@ -39,16 +43,35 @@ public class SecurityConfig {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Value("${app.password.strength:0}")
+    private int passwordStrength;
+
+    @Value("${app.password.target-verify-time:250ms}")
+    private Duration passwordTargetVerifyTime;
+
+    @Value("${app.password.min-strength:" + PasswordEncoderCalibrator.MIN_STRENGTH + "}")
+    private int passwordMinStrength;
+
+    @Value("${app.password.max-strength:" + PasswordEncoderCalibrator.MAX_STRENGTH + "}")
+    private int passwordMaxStrength;
+
     @Bean
     public AuthTokenFilter authenticationJwtTokenFilter() {
         return new AuthTokenFilter();
     }
 
+    @Bean
+    public RateLimitFilter rateLimitFilter() {
+        return new RateLimitFilter();
+    }
+
     @Bean
     public DaoAuthenticationProvider authenticationProvider() {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(userDetailsService);
         authProvider.setPasswordEncoder(passwordEncoder());
+        // Устаревший хеш перезаписывается текущим кодировщиком после успешной проверки пароля
+        authProvider.setUserDetailsPasswordService(userDetailsService);
         return authProvider;
     }
 
@@ -59,7 +82,8 @@ public class SecurityConfig {
 
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        return PasswordEncoderCalibrator.create(passwordStrength, passwordTargetVerifyTime,
+                passwordMinStrength, passwordMaxStrength);
     }
 
     @Bean
@@ -115,6 +139,9 @@ public class SecurityConfig {
                         .accessDeniedHandler(accessDeniedHandler())
                 )
                 .authorizeHttpRequests(auth -> auth
+                        // Завершение асинхронного запроса (SSE): права проверены при исходном запросе,
+                        // а JWT при повторной диспетчеризации не разбирается
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers(
                                 "/api/auth/**",
                                 "/v3/api-docs/**",
@@ -124,11 +151,14 @@ public class SecurityConfig {
                                 "/swagger-resources/**"
                         ).permitAll()
                         .requestMatchers("/api/test/public").permitAll()
+                        .requestMatchers("/actuator/health/**").permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
                         .anyRequest().authenticated()
                 );
 
         http.authenticationProvider(authenticationProvider());
         http.addFilterBefore(authenticationJwtTokenFilter(), UsernamePasswordAuthenticationFilter.class);
+        http.addFilterAfter(rateLimitFilter(), AuthTokenFilter.class);
 
         return http.build();
     }
@@ -0,0 +1,19 @@
+package com.example.bankcards.config;
+
+import com.example.bankcards.monitoring.TimedJacksonHttpMessageConverter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+// При включенном Server-Timing стандартный JSON-конвертер Spring Boot заменяется замеряющим
+@Configuration
+@ConditionalOnProperty(name = "app.server-timing.enabled", havingValue = "true")
+public class ServerTimingConfig {
+
+    @Bean
+    public MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter(ObjectMapper objectMapper) {
+        return new TimedJacksonHttpMessageConverter(objectMapper);
+    }
+}
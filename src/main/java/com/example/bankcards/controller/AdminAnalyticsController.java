@@ -0,0 +1,82 @@
+package com.example.bankcards.controller;
+
+import com.example.bankcards.analytics.CardSnapshot;
+import com.example.bankcards.dto.CardStatusTotalResponse;
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.util.Money;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.YearMonth;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Аналитика по картам из снимка в памяти (CardSnapshot); к базе запросы не обращаются
+@RestController
+@RequestMapping("/api/admin/analytics/cards")
+@ConditionalOnProperty(name = "app.card-snapshot.enabled", havingValue = "true")
+@Tag(name = "Analytics", description = "API аналитики по картам")
+@SecurityRequirement(name = "bearerAuth")
+public class AdminAnalyticsController {
+
+    private static final int MAX_MONTHS = 120;
+    private static final int MAX_CARDS_BUCKET = 100;
+
+    @Autowired
+    private CardSnapshot cardSnapshot;
+
+    @GetMapping("/balance-by-status")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Число карт и сумма балансов по статусам", description = "Только для администраторов")
+    public ResponseEntity<List<CardStatusTotalResponse>> getBalanceByStatus() {
+        List<CardStatusTotalResponse> response = cardSnapshot.balanceByStatus().stream()
+                .map(total -> new CardStatusTotalResponse(total.status(), total.cardCount(),
+                        Money.fromMinorUnits(total.balance())))
+                .toList();
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/expiring")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Число карт с окончанием срока по месяцам",
+            description = "Только для администраторов. from - первый месяц (yyyy-MM), по умолчанию текущий")
+    public ResponseEntity<Map<String, Long>> getExpiringPerMonth(
+            @RequestParam(required = false) YearMonth from,
+            @RequestParam(defaultValue = "12") int months) {
+        if (months < 1 || months > MAX_MONTHS) {
+            throw new BadRequestException("Число месяцев должно быть от 1 до " + MAX_MONTHS);
+        }
+        YearMonth firstMonth = from != null ? from : YearMonth.now();
+        long[] counts = cardSnapshot.expiringPerMonth(firstMonth, months);
+
+        Map<String, Long> response = new LinkedHashMap<>();
+        for (int i = 0; i < months; i++) {
+            response.put(firstMonth.plusMonths(i).toString(), counts[i]);
+        }
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/per-user")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Гистограмма числа карт на пользователя",
+            description = "Только для администраторов. Ключ - число карт, последний ключ - maxCards и больше")
+    public ResponseEntity<Map<String, Long>> getCardsPerUser(@RequestParam(defaultValue = "10") int maxCards) {
+        if (maxCards < 1 || maxCards > MAX_CARDS_BUCKET) {
+            throw new BadRequestException("maxCards должно быть от 1 до " + MAX_CARDS_BUCKET);
+        }
+        long[] histogram = cardSnapshot.cardsPerUserHistogram(maxCards);
+
+        Map<String, Long> response = new LinkedHashMap<>();
+        for (int i = 0; i < maxCards; i++) {
+            response.put(i == maxCards - 1 ? maxCards + "+" : String.valueOf(i + 1), histogram[i]);
+        }
+        return ResponseEntity.ok(response);
+    }
+}
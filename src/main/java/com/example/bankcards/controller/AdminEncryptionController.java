@@ -0,0 +1,62 @@
+package com.example.bankcards.controller;
+
+import com.example.bankcards.dto.ReEncryptionStatusResponse;
+import com.example.bankcards.entity.CardKeyRotation;
+import com.example.bankcards.service.CardReEncryptionJob;
+import com.example.bankcards.service.EncryptionService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+// Перешифрование номеров карт на активный ключ (app.encryption.active-key-id)
+@RestController
+@RequestMapping("/api/admin/encryption/re-encryption")
+@Tag(name = "Encryption", description = "API управления ключами шифрования номеров карт")
+@SecurityRequirement(name = "bearerAuth")
+public class AdminEncryptionController {
+
+    @Autowired
+    private CardReEncryptionJob reEncryptionJob;
+
+    @Autowired
+    private EncryptionService encryptionService;
+
+    private ReEncryptionStatusResponse status() {
+        CardKeyRotation rotation = reEncryptionJob.getProgress().orElse(null);
+        return rotation == null
+                ? new ReEncryptionStatusResponse(encryptionService.getActiveKeyId(), reEncryptionJob.isRunning(),
+                        0, 0, null, null, null)
+                : new ReEncryptionStatusResponse(rotation.getKeyId(), reEncryptionJob.isRunning(),
+                        rotation.getLastCardId(), rotation.getCardsReencrypted(),
+                        rotation.getStartedAt(), rotation.getUpdatedAt(), rotation.getCompletedAt());
+    }
+
+    @GetMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Прогресс перешифрования", description = "Только для администраторов")
+    public ResponseEntity<ReEncryptionStatusResponse> getStatus() {
+        return ResponseEntity.ok(status());
+    }
+
+    @PostMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Запуск или продолжение перешифрования",
+            description = "Только для администраторов. Задача идет в фоне и продолжает с последней обработанной карты")
+    public ResponseEntity<ReEncryptionStatusResponse> start() {
+        reEncryptionJob.start();
+        return ResponseEntity.accepted().body(status());
+    }
+
+    @DeleteMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Остановка перешифрования",
+            description = "Только для администраторов. Останавливается после текущей порции, прогресс сохраняется")
+    public ResponseEntity<ReEncryptionStatusResponse> stop() {
+        reEncryptionJob.stop();
+        return ResponseEntity.accepted().body(status());
+    }
+}
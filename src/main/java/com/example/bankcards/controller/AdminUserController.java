@@ -0,0 +1,45 @@
+package com.example.bankcards.controller;
+
+import com.example.bankcards.dto.KeysetPageResponse;
+import com.example.bankcards.dto.SignupRequest;
+import com.example.bankcards.dto.UserImportResponse;
+import com.example.bankcards.dto.UserSummaryResponse;
+import com.example.bankcards.service.UserService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/admin/users")
+@Tag(name = "Users", description = "API для управления пользователями")
+@SecurityRequirement(name = "bearerAuth")
+public class AdminUserController {
+
+    @Autowired
+    private UserService userService;
+
+    @GetMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Справочник пользователей со сводкой по картам",
+            description = "Только для администраторов. Следующая страница - afterId из nextAfterId")
+    public ResponseEntity<KeysetPageResponse<UserSummaryResponse>> getUsers(
+            @RequestParam(defaultValue = "0") long afterId,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String usernamePrefix) {
+        return ResponseEntity.ok(userService.getUserDirectory(afterId, usernamePrefix, size));
+    }
+
+    @PostMapping("/import")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Массовый импорт пользователей", description = "Только для администраторов")
+    public ResponseEntity<UserImportResponse> importUsers(@RequestBody List<@Valid SignupRequest> requests) {
+        return ResponseEntity.ok(userService.importUsers(requests));
+    }
+}
@@ -4,20 +4,27 @@ import com.example.bankcards.dto.LoginRequest;
 import com.example.bankcards.dto.SignupRequest;
 import com.example.bankcards.dto.JwtResponse;
 import com.example.bankcards.dto.MessageResponse;
+import com.example.bankcards.exception.BadRequestException;
 import com.example.bankcards.service.UserService;
+import com.example.bankcards.security.LoginExecutor;
 import com.example.bankcards.security.jwt.JwtUtils;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
 @CrossOrigin(origins = "*", maxAge = 3600)
 @RestController
 @RequestMapping("/api/auth")
@@ -33,41 +40,49 @@ public class AuthController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private LoginExecutor loginExecutor;
+
+    @Value("${app.login.retry-after-seconds:1}")
+    private int loginRetryAfterSeconds;
+
     @PostMapping("/login")
     @Operation(summary = "Вход в систему", description = "Аутентификация пользователя и получение JWT токена")
-    public ResponseEntity<?> authenticateUser(@Valid @RequestBody LoginRequest loginRequest) {
-        Authentication authentication = authenticationManager
-                .authenticate(new UsernamePasswordAuthenticationToken(loginRequest.getUsername(), loginRequest.getPassword()));
-
-        SecurityContextHolder.getContext().setAuthentication(authentication);
+    public CompletableFuture<ResponseEntity<?>> authenticateUser(@Valid @RequestBody LoginRequest loginRequest) {
+        try {
+            // Проверка пароля (BCrypt) выполняется в отдельном ограниченном пуле, поток Tomcat освобождается
+            return loginExecutor.submit(() -> {
+                Authentication authentication = authenticationManager
+                        .authenticate(new UsernamePasswordAuthenticationToken(loginRequest.getUsername(), loginRequest.getPassword()));
 
-        String username = authentication.getName();
-        String jwt = jwtUtils.generateTokenFromUsername(username);
+                String username = authentication.getName();
+                String jwt = jwtUtils.generateTokenFromUsername(username);
 
-        String role = authentication.getAuthorities().stream()
-                .findFirst()
-                .map(GrantedAuthority::getAuthority)
-                .orElse("ROLE_USER");
+                String role = authentication.getAuthorities().stream()
+                        .findFirst()
+                        .map(GrantedAuthority::getAuthority)
+                        .orElse("ROLE_USER");
 
-        return ResponseEntity.ok(new JwtResponse(jwt, username, role));
+                return ResponseEntity.ok(new JwtResponse(jwt, username, role));
+            });
+        } catch (RejectedExecutionException e) {
+            // Очередь переполнена - быстро отказываем, клиент повторит позже
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(loginRetryAfterSeconds))
+                    .body(new MessageResponse("Error: Too many login attempts, try again later")));
+        }
     }
 
     @PostMapping("/register")
     @Operation(summary = "Регистрация", description = "Регистрация нового пользователя")
     public ResponseEntity<?> registerUser(@Valid @RequestBody SignupRequest signUpRequest) {
-        // Проверяем существование пользователя
-        if (userService.existsByUsername(signUpRequest.getUsername())) {
-            return ResponseEntity.badRequest().body(new MessageResponse("Error: Username is already taken!"));
-        }
-
-        // Проверяем email
-        if (userService.existsByEmail(signUpRequest.getEmail())) {
-            return ResponseEntity.badRequest().body(new MessageResponse("Error: Email is already in use!"));
+        // Уникальность username и email проверяется ограничениями БД при вставке
+        try {
+            userService.createUser(signUpRequest.getUsername(), signUpRequest.getEmail(), signUpRequest.getPassword());
+        } catch (BadRequestException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Error: " + e.getMessage()));
         }
 
-        // Создаем нового пользователя
-        userService.createUser(signUpRequest.getUsername(), signUpRequest.getEmail(), signUpRequest.getPassword());
-
         return ResponseEntity.ok(new MessageResponse("User registered successfully!"));
     }
 }
\ No newline at end of file
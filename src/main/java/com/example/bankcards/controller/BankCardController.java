@@ -1,22 +1,41 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.AdminBankCardResponse;
 import com.example.bankcards.dto.BankCardCreateRequest;
 import com.example.bankcards.dto.BankCardResponse;
+import com.example.bankcards.dto.PageResponse;
 import com.example.bankcards.dto.TransferRequest;
 import com.example.bankcards.entity.BankCard;
+import com.example.bankcards.entity.BankCardStatus;
+import com.example.bankcards.repository.BankCardWithOwner;
 import com.example.bankcards.service.BankCardService;
+import com.example.bankcards.service.CardStreamService;
+import com.example.bankcards.service.StripedBalanceService;
+import com.example.bankcards.service.TransferBatcher;
+import com.example.bankcards.service.UserShardExecutor;
+import com.example.bankcards.util.Money;
+import com.example.bankcards.util.ParallelPageMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.YearMonth;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/cards")
@@ -27,6 +46,29 @@ public class BankCardController {
     @Autowired
     private BankCardService bankCardService;
 
+    @Autowired
+    private StripedBalanceService stripedBalanceService;
+
+    @Autowired
+    private UserShardExecutor userShardExecutor;
+
+    // Большие страницы расшифровываются и маскируются параллельно
+    @Autowired
+    private ParallelPageMapper parallelPageMapper;
+
+    @Autowired
+    private CardStreamService cardStreamService;
+
+    // Есть только при app.transfer-batching.enabled=true
+    @Autowired(required = false)
+    private TransferBatcher transferBatcher;
+
+    @Value("${app.transfer-batching.retry-after-seconds:1}")
+    private int transferRetryAfterSeconds;
+
+    @Value("${app.transfer-batching.response-timeout-ms:5000}")
+    private long transferResponseTimeoutMs;
+
     // Вспомогательный метод для преобразования BankCard в BankCardResponse
     private BankCardResponse convertToResponse(BankCard card) {
         String maskedNumber = bankCardService.maskCardNumber(card.getCardNumber());
@@ -37,11 +79,16 @@ public class BankCardController {
                 card.getCardHolder(),
                 card.getExpiryDate(),
                 card.getStatus(),
-                card.getBalance(),
+                Money.fromMinorUnits(card.getAvailableBalance()),
                 card.getCreatedAt()
         );
     }
 
+    private AdminBankCardResponse convertToAdminResponse(BankCardWithOwner row) {
+        return new AdminBankCardResponse(convertToResponse(row.card()),
+                row.ownerId(), row.ownerUsername(), row.ownerEmail());
+    }
+
     @PostMapping
     @PreAuthorize("hasRole('ADMIN')")
     @Operation(summary = "Создание новой карты", description = "Только для администраторов")
@@ -64,8 +111,38 @@ public class BankCardController {
 
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
-    @Operation(summary = "Получение всех карт", description = "Только для администраторов")
-    public ResponseEntity<Page<BankCardResponse>> getAllCards(
+    @Operation(summary = "Получение всех карт", description = "Только для администраторов. " +
+            "Фильтры status, expiryMonth (yyyy-MM), balanceBand (номер диапазона из app.card-index.balance-band-bounds) " +
+            "и ownerId работают при app.card-index.enabled=true; с фильтром сортировка только по id (по умолчанию)")
+    public ResponseEntity<PageResponse<BankCardResponse>> getAllCards(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String sortBy,
+            @RequestParam(defaultValue = "desc") String direction,
+            @RequestParam(required = false) BankCardStatus status,
+            @RequestParam(required = false) YearMonth expiryMonth,
+            @RequestParam(required = false) Integer balanceBand,
+            @RequestParam(required = false) Long ownerId) {
+
+        boolean filtered = status != null || expiryMonth != null || balanceBand != null || ownerId != null;
+        // Индекс фильтров упорядочен только по id; без фильтров по умолчанию - по createdAt, как раньше
+        String sortProperty = sortBy != null ? sortBy : filtered ? "id" : "createdAt";
+        Sort sort = direction.equalsIgnoreCase("desc")
+                ? Sort.by(sortProperty).descending()
+                : Sort.by(sortProperty).ascending();
+
+        Pageable pageable = PageRequest.of(page, size, sort);
+        Page<BankCard> cardsPage = filtered
+                ? bankCardService.findCards(status, expiryMonth, balanceBand, ownerId, pageable)
+                : bankCardService.getAllCards(pageable);
+
+        return ResponseEntity.ok(parallelPageMapper.map(cardsPage, this::convertToResponse));
+    }
+
+    @GetMapping("/with-owners")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Получение всех карт с владельцами", description = "Только для администраторов")
+    public ResponseEntity<PageResponse<AdminBankCardResponse>> getAllCardsWithOwners(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "createdAt") String sortBy,
@@ -76,10 +153,9 @@ public class BankCardController {
                 : Sort.by(sortBy).ascending();
 
         Pageable pageable = PageRequest.of(page, size, sort);
-        Page<BankCard> cardsPage = bankCardService.getAllCards(pageable);
+        Page<BankCardWithOwner> cardsPage = bankCardService.getAllCardsWithOwners(pageable);
 
-        Page<BankCardResponse> responsePage = cardsPage.map(this::convertToResponse);
-        return ResponseEntity.ok(responsePage);
+        return ResponseEntity.ok(parallelPageMapper.map(cardsPage, this::convertToAdminResponse));
     }
 
     @PutMapping("/{cardId}/block")
@@ -87,7 +163,8 @@ public class BankCardController {
     @Operation(summary = "Блокировка всех карт", description = "Только для администраторов")
     public ResponseEntity<?> blockCard(@PathVariable Long cardId) {
         try {
-            BankCard card = bankCardService.blockCard(cardId);
+            BankCard card = userShardExecutor.execute(
+                    () -> bankCardService.getCardOwnerId(cardId), () -> bankCardService.blockCard(cardId));
             BankCardResponse response = convertToResponse(card);
             return ResponseEntity.ok(response);
         } catch (Exception e) {
@@ -100,7 +177,22 @@ public class BankCardController {
     @Operation(summary = "Активация карты", description = "Только для администраторов")
     public ResponseEntity<?> activateCard(@PathVariable Long cardId) {
         try {
-            BankCard card = bankCardService.activateCard(cardId);
+            BankCard card = userShardExecutor.execute(
+                    () -> bankCardService.getCardOwnerId(cardId), () -> bankCardService.activateCard(cardId));
+            BankCardResponse response = convertToResponse(card);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @PutMapping("/{cardId}/balance-stripes")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Разнесение баланса карты по частям",
+            description = "Только для администраторов. Для карт с большим числом параллельных зачислений; 0 - выключить")
+    public ResponseEntity<?> setBalanceStripes(@PathVariable Long cardId, @RequestParam int stripes) {
+        try {
+            BankCard card = stripedBalanceService.setStripes(cardId, stripes);
             BankCardResponse response = convertToResponse(card);
             return ResponseEntity.ok(response);
         } catch (Exception e) {
@@ -123,7 +215,7 @@ public class BankCardController {
     @GetMapping("/my")
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
     @Operation(summary = "Получение всех своих карт", description = "для всех")
-    public ResponseEntity<Page<BankCardResponse>> getMyCards(
+    public ResponseEntity<PageResponse<BankCardResponse>> getMyCards(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "createdAt") String sortBy,
@@ -136,8 +228,16 @@ public class BankCardController {
         Pageable pageable = PageRequest.of(page, size, sort);
         Page<BankCard> cardsPage = bankCardService.getUserCards(pageable);
 
-        Page<BankCardResponse> responsePage = cardsPage.map(this::convertToResponse);
-        return ResponseEntity.ok(responsePage);
+        return ResponseEntity.ok(parallelPageMapper.map(cardsPage, this::convertToResponse));
+    }
+
+    @GetMapping(value = "/my/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    @Operation(summary = "Поток изменений своих карт (Server-Sent Events)",
+            description = "для всех. События card (карта в том же виде, что в /api/cards/my), card-deleted (id) " +
+                    "и resync (перечитать /api/cards/my); между ними - комментарии heartbeat")
+    public SseEmitter streamMyCards() {
+        return cardStreamService.open(bankCardService.getCurrentUserId(), this::convertToResponse);
     }
 
     @GetMapping("/my/{cardId}")
@@ -158,7 +258,8 @@ public class BankCardController {
     @Operation(summary = "Запрос на блокировку своей карты", description = "для всех")
     public ResponseEntity<?> requestBlockMyCard(@PathVariable Long cardId) {
         try {
-            BankCard card = bankCardService.requestBlockCard(cardId);
+            BankCard card = userShardExecutor.execute(
+                    bankCardService::getCurrentUserId, () -> bankCardService.requestBlockCard(cardId));
             BankCardResponse response = convertToResponse(card);
             return ResponseEntity.ok(response);
         } catch (Exception e) {
@@ -171,12 +272,26 @@ public class BankCardController {
     @Operation(summary = "Перевод между своими картами", description = "для всех")
     public ResponseEntity<?> transferBetweenCards(@Valid @RequestBody TransferRequest request) {
         try {
-            bankCardService.transferBetweenUserCards(
-                    request.getFromCardId(),
-                    request.getToCardId(),
-                    request.getAmount()
-            );
+            long amount = Money.toMinorUnits(request.getAmount());
+            if (transferBatcher != null) {
+                // Пакетный режим: проверки сразу, списание и зачисление - с ближайшим пакетом
+                bankCardService.validateTransfer(request.getFromCardId(), request.getToCardId(), amount);
+                transferBatcher.transfer(request.getFromCardId(), request.getToCardId(), amount, transferResponseTimeoutMs);
+            } else {
+                userShardExecutor.execute(bankCardService::getCurrentUserId, () ->
+                        bankCardService.transferBetweenUserCards(
+                                request.getFromCardId(),
+                                request.getToCardId(),
+                                amount
+                        ));
+            }
             return ResponseEntity.ok("Перевод успешно выполнен");
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(transferRetryAfterSeconds))
+                    .body(e.getMessage());
+        } catch (CompletionException e) {
+            return ResponseEntity.badRequest().body(e.getCause().getMessage());
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
@@ -0,0 +1,32 @@
+package com.example.bankcards.dto;
+
+// Карта для списка администратора вместе с владельцем
+public class AdminBankCardResponse {
+    private BankCardResponse card;
+    private Long ownerId;
+    private String ownerUsername;
+    private String ownerEmail;
+
+    // Конструкторы
+    public AdminBankCardResponse() {}
+
+    public AdminBankCardResponse(BankCardResponse card, Long ownerId, String ownerUsername, String ownerEmail) {
+        this.card = card;
+        this.ownerId = ownerId;
+        this.ownerUsername = ownerUsername;
+        this.ownerEmail = ownerEmail;
+    }
+
+    // Геттеры и сеттеры
+    public BankCardResponse getCard() { return card; }
+    public void setCard(BankCardResponse card) { this.card = card; }
+
+    public Long getOwnerId() { return ownerId; }
+    public void setOwnerId(Long ownerId) { this.ownerId = ownerId; }
+
+    public String getOwnerUsername() { return ownerUsername; }
+    public void setOwnerUsername(String ownerUsername) { this.ownerUsername = ownerUsername; }
+
+    public String getOwnerEmail() { return ownerEmail; }
+    public void setOwnerEmail(String ownerEmail) { this.ownerEmail = ownerEmail; }
+}
@@ -1,10 +1,12 @@
 package com.example.bankcards.dto;
 
 import com.example.bankcards.entity.BankCardStatus;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
+@JsonSerialize(using = BankCardResponseSerializer.class)
 public class BankCardResponse {
     private Long id;
     private String maskedCardNumber;
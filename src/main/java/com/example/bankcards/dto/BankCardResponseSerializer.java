@@ -0,0 +1,56 @@
+package com.example.bankcards.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+// Ручная запись BankCardResponse без bean-интроспекции; формат полей совпадает с прежним
+public class BankCardResponseSerializer extends StdSerializer<BankCardResponse> {
+
+    private static final SerializedString ID = new SerializedString("id");
+    private static final SerializedString MASKED_CARD_NUMBER = new SerializedString("maskedCardNumber");
+    private static final SerializedString CARD_HOLDER = new SerializedString("cardHolder");
+    private static final SerializedString EXPIRY_DATE = new SerializedString("expiryDate");
+    private static final SerializedString STATUS = new SerializedString("status");
+    private static final SerializedString STATUS_DISPLAY_NAME = new SerializedString("statusDisplayName");
+    private static final SerializedString BALANCE = new SerializedString("balance");
+
+    public BankCardResponseSerializer() {
+        super(BankCardResponse.class);
+    }
+
+    @Override
+    public void serialize(BankCardResponse value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject(value);
+
+        gen.writeFieldName(ID);
+        if (value.getId() == null) {
+            gen.writeNull();
+        } else {
+            gen.writeNumber(value.getId());
+        }
+
+        gen.writeFieldName(MASKED_CARD_NUMBER);
+        gen.writeString(value.getMaskedCardNumber());
+        gen.writeFieldName(CARD_HOLDER);
+        gen.writeString(value.getCardHolder());
+        gen.writeFieldName(EXPIRY_DATE);
+        gen.writeString(value.getExpiryDate());
+
+        gen.writeFieldName(STATUS);
+        gen.writeString(value.getStatus() == null ? null : value.getStatus().name());
+        gen.writeFieldName(STATUS_DISPLAY_NAME);
+        gen.writeString(value.getStatusDisplayName());
+
+        gen.writeFieldName(BALANCE);
+        gen.writeNumber(value.getBalance());
+
+        // Дату отдаем стандартному сериализатору, чтобы формат зависел от настроек ObjectMapper
+        provider.defaultSerializeField("createdAt", value.getCreatedAt(), gen);
+
+        gen.writeEndObject();
+    }
+}
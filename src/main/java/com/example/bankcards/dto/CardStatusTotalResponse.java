@@ -0,0 +1,30 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.entity.BankCardStatus;
+
+import java.math.BigDecimal;
+
+public class CardStatusTotalResponse {
+    private BankCardStatus status;
+    private long cardCount;
+    private BigDecimal totalBalance;
+
+    // Конструкторы
+    public CardStatusTotalResponse() {}
+
+    public CardStatusTotalResponse(BankCardStatus status, long cardCount, BigDecimal totalBalance) {
+        this.status = status;
+        this.cardCount = cardCount;
+        this.totalBalance = totalBalance;
+    }
+
+    // Геттеры и сеттеры
+    public BankCardStatus getStatus() { return status; }
+    public void setStatus(BankCardStatus status) { this.status = status; }
+
+    public long getCardCount() { return cardCount; }
+    public void setCardCount(long cardCount) { this.cardCount = cardCount; }
+
+    public BigDecimal getTotalBalance() { return totalBalance; }
+    public void setTotalBalance(BigDecimal totalBalance) { this.totalBalance = totalBalance; }
+}
@@ -0,0 +1,26 @@
+package com.example.bankcards.dto;
+
+import java.util.List;
+
+// Страница с курсором вместо номера: следующая страница запрашивается с afterId = nextAfterId.
+// Стоимость запроса не растет с глубиной листания, в отличие от OFFSET
+public class KeysetPageResponse<T> {
+    private final List<T> content;
+    private final int size;
+    private final Long nextAfterId;
+
+    public KeysetPageResponse(List<T> content, int size, Long nextAfterId) {
+        this.content = content;
+        this.size = size;
+        this.nextAfterId = nextAfterId;
+    }
+
+    public List<T> getContent() { return content; }
+
+    public int getSize() { return size; }
+
+    // null на последней странице
+    public Long getNextAfterId() { return nextAfterId; }
+
+    public boolean isLast() { return nextAfterId == null; }
+}
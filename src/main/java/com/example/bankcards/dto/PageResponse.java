@@ -0,0 +1,59 @@
+package com.example.bankcards.dto;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.springframework.data.domain.Page;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+// Компактная обертка страницы вместо PageImpl: только данные страницы, без sort/pageable.
+// Элементы преобразуются при создании, в контроллере: ошибка расшифровки или маскирования возвращается
+// обычным ответом об ошибке, а не обрывает уже начатый ответ 200.
+@JsonSerialize(using = PageResponseSerializer.class)
+public class PageResponse<T> {
+    private final List<T> content;
+    private final int page;
+    private final int size;
+    private final long totalElements;
+    private final int totalPages;
+
+    private <S> PageResponse(Page<S> page, Function<? super S, ? extends T> mapper) {
+        List<S> source = page.getContent();
+        List<T> mapped = new ArrayList<>(source.size());
+        for (S item : source) {
+            mapped.add(mapper.apply(item));
+        }
+        this.content = Collections.unmodifiableList(mapped);
+        this.page = page.getNumber();
+        this.size = page.getSize();
+        this.totalElements = page.getTotalElements();
+        this.totalPages = page.getTotalPages();
+    }
+
+    public static <S, T> PageResponse<T> of(Page<S> page, Function<? super S, ? extends T> mapper) {
+        return new PageResponse<>(page, mapper);
+    }
+
+    public static <T> PageResponse<T> of(Page<T> page) {
+        return new PageResponse<>(page, Function.identity());
+    }
+
+    // Количество элементов на текущей странице
+    public int getNumberOfElements() { return content.size(); }
+
+    public T getItem(int index) { return content.get(index); }
+
+    public List<T> getContent() { return content; }
+
+    public int getPage() { return page; }
+
+    public int getSize() { return size; }
+
+    public long getTotalElements() { return totalElements; }
+
+    public int getTotalPages() { return totalPages; }
+
+    public boolean isLast() { return page + 1 >= totalPages; }
+}
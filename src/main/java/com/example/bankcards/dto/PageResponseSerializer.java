@@ -0,0 +1,64 @@
+package com.example.bankcards.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+// Потоковая запись PageResponse: элементы пишутся в генератор по одному, без обхода через BeanSerializer обертки
+public class PageResponseSerializer extends StdSerializer<PageResponse<?>> {
+
+    private static final SerializedString CONTENT = new SerializedString("content");
+    private static final SerializedString PAGE = new SerializedString("page");
+    private static final SerializedString SIZE = new SerializedString("size");
+    private static final SerializedString TOTAL_ELEMENTS = new SerializedString("totalElements");
+    private static final SerializedString TOTAL_PAGES = new SerializedString("totalPages");
+    private static final SerializedString LAST = new SerializedString("last");
+
+    @SuppressWarnings("unchecked")
+    public PageResponseSerializer() {
+        super((Class<PageResponse<?>>) (Class<?>) PageResponse.class);
+    }
+
+    @Override
+    public void serialize(PageResponse<?> value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject();
+
+        gen.writeFieldName(CONTENT);
+        int count = value.getNumberOfElements();
+        gen.writeStartArray(value, count);
+
+        // Сериализатор элемента ищем один раз на тип, а не на каждую строку
+        Class<?> itemType = null;
+        JsonSerializer<Object> itemSerializer = null;
+        for (int i = 0; i < count; i++) {
+            Object item = value.getItem(i);
+            if (item == null) {
+                gen.writeNull();
+                continue;
+            }
+            if (item.getClass() != itemType) {
+                itemType = item.getClass();
+                itemSerializer = provider.findTypedValueSerializer(itemType, true, null);
+            }
+            itemSerializer.serialize(item, gen, provider);
+        }
+        gen.writeEndArray();
+
+        gen.writeFieldName(PAGE);
+        gen.writeNumber(value.getPage());
+        gen.writeFieldName(SIZE);
+        gen.writeNumber(value.getSize());
+        gen.writeFieldName(TOTAL_ELEMENTS);
+        gen.writeNumber(value.getTotalElements());
+        gen.writeFieldName(TOTAL_PAGES);
+        gen.writeNumber(value.getTotalPages());
+        gen.writeFieldName(LAST);
+        gen.writeBoolean(value.isLast());
+
+        gen.writeEndObject();
+    }
+}
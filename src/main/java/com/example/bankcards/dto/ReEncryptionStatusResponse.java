@@ -0,0 +1,49 @@
+package com.example.bankcards.dto;
+
+import java.time.LocalDateTime;
+
+public class ReEncryptionStatusResponse {
+    private int activeKeyId;
+    private boolean running;
+    private long lastCardId;
+    private long cardsReencrypted;
+    private LocalDateTime startedAt;
+    private LocalDateTime updatedAt;
+    private LocalDateTime completedAt;
+
+    // Конструкторы
+    public ReEncryptionStatusResponse() {}
+
+    public ReEncryptionStatusResponse(int activeKeyId, boolean running, long lastCardId, long cardsReencrypted,
+                                      LocalDateTime startedAt, LocalDateTime updatedAt, LocalDateTime completedAt) {
+        this.activeKeyId = activeKeyId;
+        this.running = running;
+        this.lastCardId = lastCardId;
+        this.cardsReencrypted = cardsReencrypted;
+        this.startedAt = startedAt;
+        this.updatedAt = updatedAt;
+        this.completedAt = completedAt;
+    }
+
+    // Геттеры и сеттеры
+    public int getActiveKeyId() { return activeKeyId; }
+    public void setActiveKeyId(int activeKeyId) { this.activeKeyId = activeKeyId; }
+
+    public boolean isRunning() { return running; }
+    public void setRunning(boolean running) { this.running = running; }
+
+    public long getLastCardId() { return lastCardId; }
+    public void setLastCardId(long lastCardId) { this.lastCardId = lastCardId; }
+
+    public long getCardsReencrypted() { return cardsReencrypted; }
+    public void setCardsReencrypted(long cardsReencrypted) { this.cardsReencrypted = cardsReencrypted; }
+
+    public LocalDateTime getStartedAt() { return startedAt; }
+    public void setStartedAt(LocalDateTime startedAt) { this.startedAt = startedAt; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+
+    public LocalDateTime getCompletedAt() { return completedAt; }
+    public void setCompletedAt(LocalDateTime completedAt) { this.completedAt = completedAt; }
+}
@@ -0,0 +1,19 @@
+package com.example.bankcards.dto;
+
+import java.util.List;
+
+public class UserImportResponse {
+    private int imported;
+    private List<String> errors;
+
+    public UserImportResponse(int imported, List<String> errors) {
+        this.imported = imported;
+        this.errors = errors;
+    }
+
+    public int getImported() { return imported; }
+    public void setImported(int imported) { this.imported = imported; }
+
+    public List<String> getErrors() { return errors; }
+    public void setErrors(List<String> errors) { this.errors = errors; }
+}
@@ -0,0 +1,56 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.util.Money;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Строка справочника пользователей для администратора: пользователь и сводка по его картам.
+// Заполняется напрямую из группирующего запроса UserRepository.findSummaries
+public class UserSummaryResponse {
+    private Long id;
+    private String username;
+    private String email;
+    private LocalDateTime createdAt;
+    private long cardCount;
+    private long activeCardCount;
+    private BigDecimal totalBalance;
+
+    // Конструкторы
+    public UserSummaryResponse() {}
+
+    // Суммы в копейках: собственные строки карт и части балансов "горячих" карт
+    public UserSummaryResponse(Long id, String username, String email, LocalDateTime createdAt,
+                               Long cardCount, Long activeCardCount, Long cardBalance, Long stripedBalance) {
+        this.id = id;
+        this.username = username;
+        this.email = email;
+        this.createdAt = createdAt;
+        this.cardCount = cardCount;
+        this.activeCardCount = activeCardCount == null ? 0 : activeCardCount;
+        this.totalBalance = Money.fromMinorUnits((cardBalance == null ? 0 : cardBalance)
+                + (stripedBalance == null ? 0 : stripedBalance));
+    }
+
+    // Геттеры и сеттеры
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getUsername() { return username; }
+    public void setUsername(String username) { this.username = username; }
+
+    public String getEmail() { return email; }
+    public void setEmail(String email) { this.email = email; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public long getCardCount() { return cardCount; }
+    public void setCardCount(long cardCount) { this.cardCount = cardCount; }
+
+    public long getActiveCardCount() { return activeCardCount; }
+    public void setActiveCardCount(long activeCardCount) { this.activeCardCount = activeCardCount; }
+
+    public BigDecimal getTotalBalance() { return totalBalance; }
+    public void setTotalBalance(BigDecimal totalBalance) { this.totalBalance = totalBalance; }
+}
@@ -0,0 +1,338 @@
+package com.example.bankcards.engine;
+
+import com.example.bankcards.exception.BadRequestException;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Движок балансов в памяти: балансы активных карт принадлежат одному потоку-писателю,
+// который забирает переводы из кольцевой очереди пачками, пишет их в журнал, сбрасывает журнал на диск
+// и только после этого подтверждает. Блокировок строк нет; bank_cards обновляется периодическими снимками,
+// а после перезапуска журнал досчитывается поверх последнего снимка.
+// В памяти не больше max-cards карт: давно не менявшиеся карты, чьи балансы уже в снимке, вытесняются
+// и при следующем переводе читаются из bank_cards заново.
+@Component
+@ConditionalOnProperty(name = "app.balance-engine.enabled", havingValue = "true")
+public class BalanceEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(BalanceEngine.class);
+
+    // Сколько писатель ждет снимка, начатого раньше, перед синхронным снимком
+    private static final long SNAPSHOT_WAIT_SECONDS = 30;
+
+    // Перевод в копейках
+    private record Command(long fromCardId, long toCardId, long amount, CompletableFuture<Void> result) {}
+
+    private final BalanceStore store;
+    private final BalanceJournal journal;
+    private final BlockingQueue<Command> ring;
+    private final int maxBatchSize;
+    private final long snapshotIntervalNanos;
+    private final int maxCards;
+
+    // Принадлежат только писателю; balances - в порядке последнего обращения (первыми вытесняются давние)
+    private final Map<Long, Long> balances = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Long, Long> dirty = new HashMap<>();
+    private long lastSnapshotNanos = System.nanoTime();
+
+    // Подтвержденные балансы для чтения из других потоков
+    private final Map<Long, Long> published = new ConcurrentHashMap<>();
+
+    // Снимки пишутся в отдельном потоке, чтобы писатель не ждал базу
+    private final ExecutorService snapshotExecutor;
+    // Последний начатый асинхронный снимок; завершается после записи в базу и отметки в журнале
+    private CompletableFuture<Void> snapshotInFlight = CompletableFuture.completedFuture(null);
+    private final ConcurrentLinkedQueue<Map<Long, Long>> failedSnapshots = new ConcurrentLinkedQueue<>();
+
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    @Autowired
+    public BalanceEngine(BalanceStore store,
+                         @Value("${app.balance-engine.journal-path:data/balance.journal}") String journalPath,
+                         @Value("${app.balance-engine.journal-size-mb:64}") int journalSizeMb,
+                         @Value("${app.balance-engine.fsync:true}") boolean fsync,
+                         @Value("${app.balance-engine.ring-size:65536}") int ringSize,
+                         @Value("${app.balance-engine.max-batch-size:1024}") int maxBatchSize,
+                         @Value("${app.balance-engine.snapshot-interval-ms:1000}") long snapshotIntervalMs,
+                         @Value("${app.balance-engine.max-cards:1000000}") int maxCards) throws IOException {
+        this(store, new BalanceJournal(Path.of(journalPath), journalSizeMb * 1024L * 1024L, fsync),
+                ringSize, maxBatchSize, snapshotIntervalMs, maxCards);
+    }
+
+    BalanceEngine(BalanceStore store, BalanceJournal journal, int ringSize, int maxBatchSize, long snapshotIntervalMs,
+                  int maxCards) {
+        this.store = store;
+        this.journal = journal;
+        this.ring = new ArrayBlockingQueue<>(ringSize);
+        this.maxBatchSize = maxBatchSize;
+        this.snapshotIntervalNanos = TimeUnit.MILLISECONDS.toNanos(snapshotIntervalMs);
+        this.maxCards = maxCards;
+        this.snapshotExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "balance-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        recover();
+
+        this.writer = new Thread(this::run, "balance-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    // Досчитывает журнал поверх балансов из bank_cards и сразу сохраняет результат снимком.
+    // Номер, покрытый снимком, берется и из базы: снимок мог закоммититься, а отметка в заголовке журнала - нет,
+    // и тогда записи до этого номера уже учтены в bank_cards
+    private void recover() {
+        long storedSeq = store.loadSnapshotSeq();
+        if (storedSeq > journal.getSnapshotSeq()) {
+            journal.markSnapshot(storedSeq);
+        }
+        List<BalanceJournal.Entry> entries = journal.replay();
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        Set<Long> cardIds = new HashSet<>();
+        for (BalanceJournal.Entry entry : entries) {
+            cardIds.add(entry.fromCardId());
+            cardIds.add(entry.toCardId());
+        }
+        balances.putAll(store.loadBalances(cardIds));
+        for (BalanceJournal.Entry entry : entries) {
+            balances.merge(entry.fromCardId(), -entry.amount(), Long::sum);
+            balances.merge(entry.toCardId(), entry.amount(), Long::sum);
+        }
+        published.putAll(balances);
+
+        store.saveBalances(new HashMap<>(balances), journal.getLastSeq());
+        journal.markSnapshot(journal.getLastSeq());
+        journal.reset();
+        log.info("Журнал балансов восстановлен: {} переводов по {} картам", entries.size(), cardIds.size());
+    }
+
+    // Постановка перевода; future завершается после записи журнала на диск. Сумма в копейках.
+    // Балансы карт, которых нет в памяти, писатель читает из bank_cards сам: значение, прочитанное вызывающим
+    // до снимка, после вытеснения карты было бы устаревшим.
+    public CompletableFuture<Void> transfer(Long fromCardId, Long toCardId, long amount) {
+        Command command = new Command(fromCardId, toCardId, amount, new CompletableFuture<>());
+        if (!running || !ring.offer(command)) {
+            throw new RejectedExecutionException("Очередь движка балансов переполнена");
+        }
+        return command.result();
+    }
+
+    // Подтвержденный баланс карты или null, если карта не в памяти
+    public Long getBalance(Long cardId) {
+        return published.get(cardId);
+    }
+
+    private void run() {
+        List<Command> batch = new ArrayList<>(maxBatchSize);
+        List<Command> accepted = new ArrayList<>(maxBatchSize);
+        while (running || !ring.isEmpty()) {
+            try {
+                Command first = ring.poll(100, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    ring.drainTo(batch, maxBatchSize - 1);
+                    process(batch, accepted);
+                }
+                maybeSnapshot();
+            } catch (InterruptedException e) {
+                running = false;
+            } catch (RuntimeException e) {
+                // Ошибка журнала или базы: состояние в памяти могло разойтись с диском, движок останавливается,
+                // а после перезапуска балансы восстанавливаются из журнала
+                log.error("Движок балансов остановлен из-за ошибки", e);
+                running = false;
+                batch.forEach(command -> command.result().completeExceptionally(e));
+                Command pending;
+                while ((pending = ring.poll()) != null) {
+                    pending.result().completeExceptionally(e);
+                }
+                return;
+            } finally {
+                batch.clear();
+                accepted.clear();
+            }
+        }
+    }
+
+    private void process(List<Command> batch, List<Command> accepted) {
+        if (!journal.hasRoom(batch.size())) {
+            snapshotNow();
+        }
+
+        loadMissing(batch);
+
+        Set<Long> touched = new HashSet<>();
+        for (Command command : batch) {
+            long fromBalance = balances.get(command.fromCardId());
+            if (fromBalance < command.amount()) {
+                command.result().completeExceptionally(
+                        new BadRequestException("Недостаточно средств на карте отправителя"));
+                continue;
+            }
+
+            journal.append(command.fromCardId(), command.toCardId(), command.amount());
+            balances.put(command.fromCardId(), fromBalance - command.amount());
+            balances.merge(command.toCardId(), command.amount(), Long::sum);
+            touched.add(command.fromCardId());
+            touched.add(command.toCardId());
+            accepted.add(command);
+        }
+
+        // Подтверждаем только после того, как журнал на диске
+        journal.flush();
+        for (Long cardId : touched) {
+            Long balance = balances.get(cardId);
+            published.put(cardId, balance);
+            dirty.put(cardId, balance);
+        }
+        accepted.forEach(command -> command.result().complete(null));
+    }
+
+    // Карты пачки, которых нет в памяти, - одним запросом
+    private void loadMissing(List<Command> batch) {
+        Set<Long> missing = new HashSet<>();
+        for (Command command : batch) {
+            if (!balances.containsKey(command.fromCardId())) {
+                missing.add(command.fromCardId());
+            }
+            if (!balances.containsKey(command.toCardId())) {
+                missing.add(command.toCardId());
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        Map<Long, Long> loaded = store.loadBalances(missing);
+        missing.forEach(cardId -> balances.put(cardId, loaded.getOrDefault(cardId, 0L)));
+    }
+
+    // Вытеснение сверх max-cards: только карты, чей баланс уже записан снимком (нет в dirty,
+    // нет начатого или неудачного снимка), - иначе повторное чтение из bank_cards вернуло бы старое значение
+    private void evictCold() {
+        if (balances.size() <= maxCards || !snapshotInFlight.isDone() || !failedSnapshots.isEmpty()) {
+            return;
+        }
+        Iterator<Map.Entry<Long, Long>> iterator = balances.entrySet().iterator();
+        while (balances.size() > maxCards && iterator.hasNext()) {
+            Long cardId = iterator.next().getKey();
+            if (!dirty.containsKey(cardId)) {
+                iterator.remove();
+                published.remove(cardId);
+            }
+        }
+    }
+
+    // Асинхронный снимок измененных балансов; журнал сбрасывается в начало, когда все записи покрыты снимком
+    private void maybeSnapshot() {
+        Map<Long, Long> failed;
+        while ((failed = failedSnapshots.poll()) != null) {
+            failed.forEach(dirty::putIfAbsent);
+        }
+
+        if (journal.getSnapshotSeq() == journal.getLastSeq() && journal.getPosition() > journal.getCapacity() / 2) {
+            journal.reset();
+        }
+        evictCold();
+
+        if (dirty.isEmpty() || System.nanoTime() - lastSnapshotNanos < snapshotIntervalNanos
+                || !snapshotInFlight.isDone()) {
+            return;
+        }
+
+        Map<Long, Long> snapshot = new HashMap<>(dirty);
+        long seq = journal.getLastSeq();
+        dirty.clear();
+        lastSnapshotNanos = System.nanoTime();
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        snapshotInFlight = done;
+        snapshotExecutor.execute(() -> {
+            try {
+                store.saveBalances(snapshot, seq);
+                journal.markSnapshot(seq);
+            } catch (RuntimeException e) {
+                log.warn("Не удалось сохранить снимок балансов, повтор со следующим снимком: {}", e.getMessage());
+                failedSnapshots.add(snapshot);
+            } finally {
+                done.complete(null);
+            }
+        });
+    }
+
+    // Синхронный снимок всех изменений: при заполненном журнале и при остановке.
+    // Снимок, не завершившийся за SNAPSHOT_WAIT_SECONDS, - ошибка базы: писатель останавливается
+    private void snapshotNow() {
+        try {
+            snapshotInFlight.get(SNAPSHOT_WAIT_SECONDS, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Снимок балансов не завершился за " + SNAPSHOT_WAIT_SECONDS + " с", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Ожидание снимка балансов прервано", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+        Map<Long, Long> failed;
+        while ((failed = failedSnapshots.poll()) != null) {
+            failed.forEach(dirty::putIfAbsent);
+        }
+
+        if (!dirty.isEmpty()) {
+            store.saveBalances(new HashMap<>(dirty), journal.getLastSeq());
+            dirty.clear();
+        }
+        journal.markSnapshot(journal.getLastSeq());
+        journal.reset();
+        lastSnapshotNanos = System.nanoTime();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException, IOException {
+        halt();
+        snapshotExecutor.shutdown();
+        snapshotExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        snapshotNow();
+        journal.close();
+    }
+
+    // Остановка писателя без финального снимка (для проверки восстановления после сбоя)
+    void halt() throws InterruptedException {
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    void closeJournal() throws IOException {
+        journal.close();
+    }
+}
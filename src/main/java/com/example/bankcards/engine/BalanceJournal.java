@@ -0,0 +1,142 @@
+package com.example.bankcards.engine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+// Последовательный журнал переводов в memory-mapped файле.
+// Заголовок: magic и номер последней записи, уже сохраненной снимком в bank_cards.
+// Запись: seq, from, to, amount (копейки), crc. Записи идут подряд с seq, растущим на 1;
+// при чтении журнал заканчивается на первом разрыве seq или неверной crc (недописанная запись).
+// Используется только потоком-писателем движка, кроме markSnapshot.
+class BalanceJournal implements Closeable {
+
+    static final int HEADER_SIZE = 64;
+    static final int RECORD_SIZE = 40;
+    private static final int MAGIC = 0x42414C4A;
+    private static final int SNAPSHOT_SEQ_OFFSET = 8;
+
+    record Entry(long seq, long fromCardId, long toCardId, long amount) {}
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final boolean fsync;
+    private final CRC32 crc = new CRC32();
+
+    private int position = HEADER_SIZE;
+    private int flushedPosition = HEADER_SIZE;
+    private long lastSeq;
+    private volatile long snapshotSeq;
+
+    BalanceJournal(Path path, long sizeBytes, boolean fsync) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        this.channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, sizeBytes);
+        this.fsync = fsync;
+
+        if (buffer.getInt(0) != MAGIC) {
+            buffer.putInt(0, MAGIC);
+            buffer.putLong(SNAPSHOT_SEQ_OFFSET, 0);
+            buffer.force(0, HEADER_SIZE);
+        }
+        this.snapshotSeq = buffer.getLong(SNAPSHOT_SEQ_OFFSET);
+        this.lastSeq = snapshotSeq;
+    }
+
+    // Записи после последнего снимка; позиция записи ставится за последней целой записью
+    List<Entry> replay() {
+        List<Entry> entries = new ArrayList<>();
+        long previousSeq = 0;
+        int offset = HEADER_SIZE;
+        while (offset + RECORD_SIZE <= buffer.capacity()) {
+            long seq = buffer.getLong(offset);
+            if (seq <= 0 || (previousSeq != 0 && seq != previousSeq + 1)
+                    || buffer.getLong(offset + 32) != checksum(offset)) {
+                break;
+            }
+            if (seq > snapshotSeq) {
+                entries.add(new Entry(seq, buffer.getLong(offset + 8), buffer.getLong(offset + 16), buffer.getLong(offset + 24)));
+            }
+            previousSeq = seq;
+            offset += RECORD_SIZE;
+        }
+
+        position = offset;
+        flushedPosition = offset;
+        lastSeq = Math.max(snapshotSeq, previousSeq);
+        return entries;
+    }
+
+    boolean hasRoom(int records) {
+        return position + (long) records * RECORD_SIZE <= buffer.capacity();
+    }
+
+    long append(long fromCardId, long toCardId, long amount) {
+        if (!hasRoom(1)) {
+            throw new IllegalStateException("Журнал балансов заполнен");
+        }
+        long seq = lastSeq + 1;
+        buffer.putLong(position, seq);
+        buffer.putLong(position + 8, fromCardId);
+        buffer.putLong(position + 16, toCardId);
+        buffer.putLong(position + 24, amount);
+        buffer.putLong(position + 32, checksum(position));
+        position += RECORD_SIZE;
+        lastSeq = seq;
+        return seq;
+    }
+
+    // Сброс дописанных записей на диск; до этого переводы не подтверждаются
+    void flush() {
+        if (fsync && position > flushedPosition) {
+            buffer.force(flushedPosition, position - flushedPosition);
+        }
+        flushedPosition = position;
+    }
+
+    // Все записи до seq включительно сохранены в bank_cards
+    void markSnapshot(long seq) {
+        buffer.putLong(SNAPSHOT_SEQ_OFFSET, seq);
+        buffer.force(0, HEADER_SIZE);
+        snapshotSeq = seq;
+    }
+
+    // Запись с начала файла; допустимо, только когда все записи покрыты снимком
+    void reset() {
+        if (snapshotSeq != lastSeq) {
+            throw new IllegalStateException("Журнал содержит записи без снимка");
+        }
+        position = HEADER_SIZE;
+        flushedPosition = HEADER_SIZE;
+    }
+
+    long getLastSeq() { return lastSeq; }
+
+    long getSnapshotSeq() { return snapshotSeq; }
+
+    int getPosition() { return position; }
+
+    int getCapacity() { return buffer.capacity(); }
+
+    private long checksum(int offset) {
+        crc.reset();
+        crc.update(buffer.slice(offset, 32));
+        return crc.getValue();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+}
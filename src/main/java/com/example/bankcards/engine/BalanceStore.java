@@ -0,0 +1,16 @@
+package com.example.bankcards.engine;
+
+import java.util.Collection;
+import java.util.Map;
+
+// Хранилище снимков балансов движка (bank_cards); балансы в копейках
+public interface BalanceStore {
+
+    Map<Long, Long> loadBalances(Collection<Long> cardIds);
+
+    // Балансы и номер последней покрытой ими записи журнала сохраняются атомарно
+    void saveBalances(Map<Long, Long> balances, long journalSeq);
+
+    // Номер последней записи журнала, сохраненной снимком (0 - снимков не было)
+    long loadSnapshotSeq();
+}
@@ -0,0 +1,68 @@
+package com.example.bankcards.engine;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Снимки балансов пишутся пакетным UPDATE одной транзакцией вместе с номером покрытой записи журнала:
+// после сбоя между записью снимка и отметкой в заголовке журнала досчитываются только записи после этого номера
+@Component
+@ConditionalOnProperty(name = "app.balance-engine.enabled", havingValue = "true")
+public class JdbcBalanceStore implements BalanceStore {
+
+    private static final String UPDATE_SEQ_SQL = "UPDATE balance_snapshot_seq SET seq = ? WHERE id = 1";
+    private static final String INSERT_SEQ_SQL = "INSERT INTO balance_snapshot_seq (id, seq) VALUES (1, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public JdbcBalanceStore(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedJdbcTemplate,
+                            PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public Map<Long, Long> loadBalances(Collection<Long> cardIds) {
+        Map<Long, Long> balances = new HashMap<>();
+        if (cardIds.isEmpty()) {
+            return balances;
+        }
+        namedJdbcTemplate.query("SELECT id, balance_minor FROM bank_cards WHERE id IN (:ids)",
+                Map.of("ids", cardIds),
+                rs -> {
+                    balances.put(rs.getLong("id"), rs.getLong("balance_minor"));
+                });
+        return balances;
+    }
+
+    @Override
+    public void saveBalances(Map<Long, Long> balances, long journalSeq) {
+        List<Object[]> rows = new ArrayList<>(balances.size());
+        balances.forEach((cardId, amount) -> rows.add(new Object[]{amount, cardId}));
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate("UPDATE bank_cards SET balance_minor = ? WHERE id = ?", rows);
+            // Строку создает миграция; без нее (схема из сущностей) - первая запись снимка
+            if (jdbcTemplate.update(UPDATE_SEQ_SQL, journalSeq) == 0) {
+                jdbcTemplate.update(INSERT_SEQ_SQL, journalSeq);
+            }
+        });
+    }
+
+    @Override
+    public long loadSnapshotSeq() {
+        List<Long> seq = jdbcTemplate.queryForList("SELECT seq FROM balance_snapshot_seq WHERE id = 1", Long.class);
+        return seq.isEmpty() ? 0 : seq.get(0);
+    }
+}
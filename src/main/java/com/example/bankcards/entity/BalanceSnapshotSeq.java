@@ -0,0 +1,26 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+
+// Номер последней записи журнала движка балансов, уже сохраненной в bank_cards.
+// Пишется в одной транзакции с балансами снимка; одна строка с id = 1
+@Entity
+@Table(name = "balance_snapshot_seq")
+public class BalanceSnapshotSeq {
+    @Id
+    private Integer id;
+
+    @Column(name = "seq", nullable = false)
+    private long seq;
+
+    // Конструкторы
+    public BalanceSnapshotSeq() {
+    }
+
+    // Геттеры и сеттеры
+    public Integer getId() { return id; }
+    public void setId(Integer id) { this.id = id; }
+
+    public long getSeq() { return seq; }
+    public void setSeq(long seq) { this.seq = seq; }
+}
@@ -1,19 +1,32 @@
 package com.example.bankcards.entity;
 
 import jakarta.persistence.*;
-import java.math.BigDecimal;
+import org.hibernate.annotations.DynamicUpdate;
+
 import java.time.LocalDateTime;
 
+// UPDATE пишет только измененные поля: смена статуса не должна перезаписывать balance_minor значением,
+// прочитанным при загрузке карты, - его в фоне обновляют снимки движка балансов
 @Entity
-@Table(name = "bank_cards")
+@DynamicUpdate
+@Table(name = "bank_cards", indexes = {
+        @Index(name = "idx_bank_cards_user_id", columnList = "user_id"),
+        @Index(name = "uk_bank_cards_card_number_hash", columnList = "card_number_hash", unique = true)
+})
 public class BankCard {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(nullable = false)
+    // Номер и его хеш после вставки меняет только CardReEncryptionJob своим UPDATE: сохранение карты,
+    // прочитанной до перешифрования, не должно возвращать шифртекст старого ключа позади курсора задачи
+    @Column(nullable = false, updatable = false)
     private String cardNumber; // Зашифрованный номер
 
+    // HMAC номера для поиска дубликатов; null у карт, еще не перешифрованных с ключа 0
+    @Column(name = "card_number_hash", length = 64, updatable = false)
+    private String cardNumberHash;
+
     @Column(nullable = false)
     private String cardHolder;
 
@@ -24,8 +37,21 @@ public class BankCard {
     @Column(nullable = false)
     private BankCardStatus status;
 
-    @Column(precision = 15, scale = 2)
-    private BigDecimal balance = BigDecimal.ZERO;
+    // Баланс в копейках
+    @Column(name = "balance_minor", nullable = false)
+    private long balance;
+
+    // Число строк-частей баланса (0 - баланс хранится только в этой строке)
+    @Column(name = "balance_stripes", nullable = false)
+    private int balanceStripes;
+
+    // Сумма частей баланса, заполняется сервисом при чтении карты в режиме частей
+    @Transient
+    private Long stripedBalance;
+
+    // Баланс из движка балансов в памяти, если карта в нем активна (свежее значения в строке)
+    @Transient
+    private Long liveBalance;
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
@@ -54,6 +80,9 @@ public class BankCard {
     public String getCardNumber() { return cardNumber; }
     public void setCardNumber(String cardNumber) { this.cardNumber = cardNumber; }
 
+    public String getCardNumberHash() { return cardNumberHash; }
+    public void setCardNumberHash(String cardNumberHash) { this.cardNumberHash = cardNumberHash; }
+
     public String getCardHolder() { return cardHolder; }
     public void setCardHolder(String cardHolder) { this.cardHolder = cardHolder; }
 
@@ -63,8 +92,27 @@ public class BankCard {
     public BankCardStatus getStatus() { return status; }
     public void setStatus(BankCardStatus status) { this.status = status; }
 
-    public BigDecimal getBalance() { return balance; }
-    public void setBalance(BigDecimal balance) { this.balance = balance; }
+    public long getBalance() { return balance; }
+    public void setBalance(long balance) { this.balance = balance; }
+
+    public int getBalanceStripes() { return balanceStripes; }
+    public void setBalanceStripes(int balanceStripes) { this.balanceStripes = balanceStripes; }
+
+    public boolean isStriped() { return balanceStripes > 0; }
+
+    public Long getStripedBalance() { return stripedBalance; }
+    public void setStripedBalance(Long stripedBalance) { this.stripedBalance = stripedBalance; }
+
+    public Long getLiveBalance() { return liveBalance; }
+    public void setLiveBalance(Long liveBalance) { this.liveBalance = liveBalance; }
+
+    // Итоговый баланс: значение движка балансов, иначе собственная строка плюс части, если они загружены
+    public long getAvailableBalance() {
+        if (liveBalance != null) {
+            return liveBalance;
+        }
+        return stripedBalance == null ? balance : balance + stripedBalance;
+    }
 
     public User getUser() { return user; }
     public void setUser(User user) { this.user = user; }
@@ -0,0 +1,47 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+
+// Часть баланса "горячей" карты: зачисления распределяются по нескольким строкам,
+// чтобы параллельные переводы не ждали блокировку одной строки bank_cards
+@Entity
+@Table(name = "bank_card_balance_stripes",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"card_id", "stripe_index"}))
+public class BankCardBalanceStripe {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "card_id", nullable = false)
+    private Long cardId;
+
+    @Column(name = "stripe_index", nullable = false)
+    private int stripeIndex;
+
+    // Часть баланса в копейках
+    @Column(name = "balance_minor", nullable = false)
+    private long balance;
+
+    // Конструкторы
+    public BankCardBalanceStripe() {
+    }
+
+    public BankCardBalanceStripe(Long cardId, int stripeIndex, long balance) {
+        this.cardId = cardId;
+        this.stripeIndex = stripeIndex;
+        this.balance = balance;
+    }
+
+    // Геттеры и сеттеры
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getCardId() { return cardId; }
+    public void setCardId(Long cardId) { this.cardId = cardId; }
+
+    public int getStripeIndex() { return stripeIndex; }
+    public void setStripeIndex(int stripeIndex) { this.stripeIndex = stripeIndex; }
+
+    public long getBalance() { return balance; }
+    public void setBalance(long balance) { this.balance = balance; }
+}
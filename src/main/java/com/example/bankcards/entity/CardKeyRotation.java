@@ -0,0 +1,61 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// Прогресс перешифрования номеров карт на ключ key_id: последний обработанный id карты (ключ keyset-прохода).
+// Задача продолжает с last_card_id после перезапуска приложения
+@Entity
+@Table(name = "card_key_rotations")
+public class CardKeyRotation {
+    @Id
+    @Column(name = "key_id")
+    private Integer keyId;
+
+    @Column(name = "last_card_id", nullable = false)
+    private long lastCardId;
+
+    // Сколько номеров перешифровано (карты, уже зашифрованные этим ключом, не считаются)
+    @Column(name = "cards_reencrypted", nullable = false)
+    private long cardsReencrypted;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    // Конструкторы
+    public CardKeyRotation() {
+    }
+
+    public CardKeyRotation(Integer keyId) {
+        this.keyId = keyId;
+        this.startedAt = LocalDateTime.now();
+        this.updatedAt = startedAt;
+    }
+
+    // Геттеры и сеттеры
+    public Integer getKeyId() { return keyId; }
+    public void setKeyId(Integer keyId) { this.keyId = keyId; }
+
+    public long getLastCardId() { return lastCardId; }
+    public void setLastCardId(long lastCardId) { this.lastCardId = lastCardId; }
+
+    public long getCardsReencrypted() { return cardsReencrypted; }
+    public void setCardsReencrypted(long cardsReencrypted) { this.cardsReencrypted = cardsReencrypted; }
+
+    public LocalDateTime getStartedAt() { return startedAt; }
+    public void setStartedAt(LocalDateTime startedAt) { this.startedAt = startedAt; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+
+    public LocalDateTime getCompletedAt() { return completedAt; }
+    public void setCompletedAt(LocalDateTime completedAt) { this.completedAt = completedAt; }
+
+    public boolean isCompleted() { return completedAt != null; }
+}
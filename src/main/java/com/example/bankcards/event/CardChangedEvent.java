@@ -0,0 +1,42 @@
+package com.example.bankcards.event;
+
+import com.example.bankcards.entity.BankCard;
+import com.example.bankcards.entity.BankCardStatus;
+
+// Изменение карты, публикуемое BankCardService внутри транзакции. Слушатели получают его после коммита
+// (@TransactionalEventListener) и поддерживают по нему свои структуры в памяти без чтения bank_cards.
+// Атрибуты карты передаются в каждом событии; баланс - только приращением в копейках,
+// потому что у карт с частями баланса итоговое значение в момент изменения не читается.
+public record CardChangedEvent(Type type, long cardId, long userId, BankCardStatus status,
+                               String expiryDate, long balanceDelta) {
+
+    public enum Type {
+        CREATED,
+        STATUS_CHANGED,
+        BALANCE_CHANGED,
+        DELETED
+    }
+
+    // Новая карта; balanceDelta - начальный баланс
+    public static CardChangedEvent created(BankCard card) {
+        return of(Type.CREATED, card, card.getAvailableBalance());
+    }
+
+    public static CardChangedEvent statusChanged(BankCard card) {
+        return of(Type.STATUS_CHANGED, card, 0);
+    }
+
+    public static CardChangedEvent balanceChanged(BankCard card, long delta) {
+        return of(Type.BALANCE_CHANGED, card, delta);
+    }
+
+    public static CardChangedEvent deleted(BankCard card) {
+        return of(Type.DELETED, card, 0);
+    }
+
+    private static CardChangedEvent of(Type type, BankCard card, long balanceDelta) {
+        // id владельца читается из прокси без загрузки пользователя
+        return new CardChangedEvent(type, card.getId(), card.getUser().getId(), card.getStatus(),
+                card.getExpiryDate(), balanceDelta);
+    }
+}
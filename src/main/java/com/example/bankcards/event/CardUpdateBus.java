@@ -0,0 +1,52 @@
+package com.example.bankcards.event;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+// Шина изменений карт внутри процесса с подпиской по id владельца (потоки GET /api/cards/my/stream).
+// Событие доставляется после коммита в потоке, который его закоммитил, поэтому подписчик не должен
+// блокироваться: только отмечает изменение у себя, а отправку делает в своем потоке.
+@Component
+public class CardUpdateBus {
+
+    private static final Logger log = LoggerFactory.getLogger(CardUpdateBus.class);
+
+    private final Map<Long, Set<Consumer<CardChangedEvent>>> subscribers = new ConcurrentHashMap<>();
+
+    // Возвращает отписку. Добавление и удаление - внутри compute, чтобы не потерять подписчика в множестве,
+    // которое одновременно удаляется как пустое
+    public Runnable subscribe(long userId, Consumer<CardChangedEvent> subscriber) {
+        subscribers.compute(userId, (id, userSubscribers) -> {
+            Set<Consumer<CardChangedEvent>> result = userSubscribers != null ? userSubscribers : ConcurrentHashMap.newKeySet();
+            result.add(subscriber);
+            return result;
+        });
+        return () -> subscribers.computeIfPresent(userId, (id, userSubscribers) -> {
+            userSubscribers.remove(subscriber);
+            return userSubscribers.isEmpty() ? null : userSubscribers;
+        });
+    }
+
+    // Без подписчиков у владельца - один поиск в map
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCardChanged(CardChangedEvent event) {
+        Set<Consumer<CardChangedEvent>> userSubscribers = subscribers.get(event.userId());
+        if (userSubscribers == null) {
+            return;
+        }
+        for (Consumer<CardChangedEvent> subscriber : userSubscribers) {
+            try {
+                subscriber.accept(event);
+            } catch (RuntimeException e) {
+                log.warn("Подписчик на изменения карт пользователя {} завершился с ошибкой", event.userId(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.bankcards.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// JFR-событие шифрования или расшифровки номера карты
+@Name("com.example.bankcards.Crypto")
+@Label("Card Number Crypto")
+@Category({"Bank Cards", "Crypto"})
+@Enabled(false)
+@StackTrace(false)
+public class CryptoEvent extends Event {
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Success")
+    public boolean success;
+}
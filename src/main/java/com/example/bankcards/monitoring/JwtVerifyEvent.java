@@ -0,0 +1,23 @@
+package com.example.bankcards.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// JFR-событие проверки JWT
+@Name("com.example.bankcards.JwtVerify")
+@Label("JWT Verify")
+@Category({"Bank Cards", "Auth"})
+@Enabled(false)
+@StackTrace(false)
+public class JwtVerifyEvent extends Event {
+
+    @Label("Valid")
+    public boolean valid;
+
+    @Label("Failure")
+    public String failure;
+}
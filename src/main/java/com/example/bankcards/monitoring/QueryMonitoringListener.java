@@ -0,0 +1,61 @@
+package com.example.bankcards.monitoring;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Слушатель datasource-proxy: считает запросы текущего HTTP-запроса, пишет в лог
+// только медленные и выборочные запросы и отмечает повторы одного и того же SQL (N+1)
+public class QueryMonitoringListener implements QueryExecutionListener {
+
+    private static final Logger log = LoggerFactory.getLogger("com.example.bankcards.sql");
+
+    private final long slowQueryMs;
+    private final double sampleRate;
+    private final int nPlusOneThreshold;
+
+    public QueryMonitoringListener(long slowQueryMs, double sampleRate, int nPlusOneThreshold) {
+        this.slowQueryMs = slowQueryMs;
+        this.sampleRate = sampleRate;
+        this.nPlusOneThreshold = nPlusOneThreshold;
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        RequestTiming.start(RequestTiming.Stage.DB);
+        QueryStats stats = QueryStats.current();
+        if (stats != null) {
+            stats.beforeQuery();
+        }
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        RequestTiming.stop(RequestTiming.Stage.DB);
+        String sql = queryInfoList.size() == 1
+                ? queryInfoList.get(0).getQuery()
+                : queryInfoList.stream().map(QueryInfo::getQuery).reduce((a, b) -> a + "; " + b).orElse("");
+        long elapsedMs = execInfo.getElapsedTime();
+
+        QueryStats stats = QueryStats.current();
+        if (stats != null) {
+            int executions = stats.afterQuery(sql);
+            // Предупреждаем один раз на SQL, когда повторы достигли порога
+            if (executions == nPlusOneThreshold) {
+                stats.markRepeated(sql);
+                log.warn("Возможный N+1: запрос выполнен {} раз за один HTTP-запрос: {}", executions, sql);
+            }
+        }
+
+        if (elapsedMs >= slowQueryMs) {
+            log.warn("Медленный запрос ({} ms): {}", elapsedMs, sql);
+        } else if (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            log.info("Запрос ({} ms): {}", elapsedMs, sql);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.bankcards.monitoring;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Статистика SQL-запросов в рамках одного HTTP-запроса.
+// Заполняется в потоке запроса, поэтому синхронизация не нужна.
+public class QueryStats {
+
+    // Атрибут запроса, в котором QueryStatsFilter оставляет итоговую статистику (удобно для тестов)
+    public static final String REQUEST_ATTRIBUTE = QueryStats.class.getName();
+
+    private static final ThreadLocal<QueryStats> CURRENT = new ThreadLocal<>();
+
+    private int queryCount;
+    private long totalNanos;
+    private long queryStartedAt;
+    private final Map<String, Integer> countsBySql = new HashMap<>();
+    private final List<String> repeatedQueries = new ArrayList<>();
+
+    public static QueryStats start() {
+        QueryStats stats = new QueryStats();
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    public static QueryStats current() {
+        return CURRENT.get();
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    void beforeQuery() {
+        queryStartedAt = System.nanoTime();
+    }
+
+    // Возвращает, сколько раз этот SQL уже выполнялся в запросе (включая текущий)
+    int afterQuery(String sql) {
+        totalNanos += System.nanoTime() - queryStartedAt;
+        queryCount++;
+        return countsBySql.merge(sql, 1, Integer::sum);
+    }
+
+    void markRepeated(String sql) {
+        repeatedQueries.add(sql);
+    }
+
+    public int getQueryCount() { return queryCount; }
+
+    public long getTotalNanos() { return totalNanos; }
+
+    // Одинаковые запросы, повторившиеся не меньше порога N+1
+    public List<String> getRepeatedQueries() { return Collections.unmodifiableList(repeatedQueries); }
+
+    public int getCount(String sql) { return countsBySql.getOrDefault(sql, 0); }
+}
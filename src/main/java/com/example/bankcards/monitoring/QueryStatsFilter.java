@@ -0,0 +1,52 @@
+package com.example.bankcards.monitoring;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Открывает статистику SQL на время HTTP-запроса. Стоит раньше фильтров безопасности,
+// чтобы учитывать и загрузку пользователя в AuthTokenFilter.
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(name = "app.sql-monitoring.enabled", havingValue = "true", matchIfMissing = true)
+public class QueryStatsFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger("com.example.bankcards.sql");
+
+    @Value("${app.sql-monitoring.max-queries-per-request:20}")
+    private int maxQueriesPerRequest;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+        QueryStats stats = QueryStats.start();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            QueryStats.clear();
+            request.setAttribute(QueryStats.REQUEST_ATTRIBUTE, stats);
+
+            if (stats.getQueryCount() > maxQueriesPerRequest) {
+                log.warn("{} {}: {} SQL-запросов за {} ms", request.getMethod(), request.getRequestURI(),
+                        stats.getQueryCount(), TimeUnit.NANOSECONDS.toMillis(stats.getTotalNanos()));
+            } else if (log.isDebugEnabled()) {
+                log.debug("{} {}: {} SQL-запросов за {} ms", request.getMethod(), request.getRequestURI(),
+                        stats.getQueryCount(), TimeUnit.NANOSECONDS.toMillis(stats.getTotalNanos()));
+            }
+        }
+    }
+}
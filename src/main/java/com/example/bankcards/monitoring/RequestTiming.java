@@ -0,0 +1,119 @@
+package com.example.bankcards.monitoring;
+
+import java.util.Locale;
+
+// Время HTTP-запроса по стадиям для заголовка Server-Timing и строки лога.
+// Массивы выделяются один раз на запрос; вне запроса или при выключенном сборе start/stop ничего не делают.
+public class RequestTiming {
+
+    public enum Stage {
+        JWT("jwt"),
+        USER_LOAD("user"),
+        DB("db"),
+        CRYPTO("crypto"),
+        STATUS_WRITE("status"),
+        JSON("json");
+
+        private final String metricName;
+
+        Stage(String metricName) {
+            this.metricName = metricName;
+        }
+
+        public String getMetricName() {
+            return metricName;
+        }
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+
+    private static final ThreadLocal<RequestTiming> CURRENT = new ThreadLocal<>();
+
+    private final long startedAt = System.nanoTime();
+    private final long[] nanos = new long[STAGES.length];
+    private final int[] counts = new int[STAGES.length];
+    // Начало незавершенной стадии (0 - стадия не идет); нужно, чтобы заголовок учел стадию, внутри которой отправляется ответ
+    private final long[] openedAt = new long[STAGES.length];
+
+    public static RequestTiming start() {
+        RequestTiming timing = new RequestTiming();
+        CURRENT.set(timing);
+        return timing;
+    }
+
+    public static RequestTiming current() {
+        return CURRENT.get();
+    }
+
+    // Для переноса сбора в поток, выполняющий работу запроса (шарды пользователей)
+    public static void set(RequestTiming timing) {
+        if (timing == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(timing);
+        }
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    public static void start(Stage stage) {
+        RequestTiming timing = CURRENT.get();
+        if (timing != null) {
+            timing.openedAt[stage.ordinal()] = System.nanoTime();
+        }
+    }
+
+    public static void stop(Stage stage) {
+        RequestTiming timing = CURRENT.get();
+        if (timing != null) {
+            int i = stage.ordinal();
+            if (timing.openedAt[i] != 0) {
+                timing.nanos[i] += System.nanoTime() - timing.openedAt[i];
+                timing.counts[i]++;
+                timing.openedAt[i] = 0;
+            }
+        }
+    }
+
+    public long getNanos(Stage stage) {
+        int i = stage.ordinal();
+        long open = openedAt[i];
+        return open == 0 ? nanos[i] : nanos[i] + System.nanoTime() - open;
+    }
+
+    public int getCount(Stage stage) {
+        return counts[stage.ordinal()];
+    }
+
+    public long getTotalNanos() {
+        return System.nanoTime() - startedAt;
+    }
+
+    // Значение заголовка: jwt;dur=0.41, db;dur=3.20, total;dur=7.90 (стадии без замеров пропускаются)
+    public String toServerTiming() {
+        StringBuilder header = new StringBuilder(128);
+        for (Stage stage : STAGES) {
+            long stageNanos = getNanos(stage);
+            if (stageNanos > 0) {
+                header.append(stage.getMetricName()).append(";dur=").append(millis(stageNanos)).append(", ");
+            }
+        }
+        return header.append("total;dur=").append(millis(getTotalNanos())).toString();
+    }
+
+    // Строка лога в формате key=value: total_ms=7.90 jwt_ms=0.41 db_ms=3.20 db_count=2 ...
+    public String toLogFields() {
+        StringBuilder fields = new StringBuilder(160).append("total_ms=").append(millis(getTotalNanos()));
+        for (Stage stage : STAGES) {
+            fields.append(' ').append(stage.getMetricName()).append("_ms=").append(millis(getNanos(stage)))
+                    .append(' ').append(stage.getMetricName()).append("_count=").append(getCount(stage));
+        }
+        return fields.toString();
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.2f", nanos / 1_000_000.0);
+    }
+}
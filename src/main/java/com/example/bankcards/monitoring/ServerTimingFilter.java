@@ -0,0 +1,179 @@
+package com.example.bankcards.monitoring;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+// Разбивка времени запроса по стадиям: заголовок Server-Timing и строка лога com.example.bankcards.timing.
+// Заголовок добавляется в момент первой записи тела: после нее заголовки уже не изменить.
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+@ConditionalOnProperty(name = "app.server-timing.enabled", havingValue = "true")
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "Server-Timing";
+
+    private static final Logger log = LoggerFactory.getLogger("com.example.bankcards.timing");
+
+    @Value("${app.server-timing.header:true}")
+    private boolean headerEnabled;
+
+    @Value("${app.server-timing.slow-request-ms:500}")
+    private long slowRequestMs;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+        RequestTiming timing = RequestTiming.start();
+        TimingResponse timingResponse = headerEnabled ? new TimingResponse(response, timing) : null;
+        try {
+            filterChain.doFilter(request, timingResponse != null ? timingResponse : response);
+        } finally {
+            RequestTiming.clear();
+            // Асинхронный запрос завершится позже в другом потоке; заголовок добавит обертка ответа
+            if (!request.isAsyncStarted()) {
+                if (timingResponse != null) {
+                    timingResponse.addTimingHeader();
+                }
+                long totalMs = TimeUnit.NANOSECONDS.toMillis(timing.getTotalNanos());
+                if (totalMs >= slowRequestMs) {
+                    log.info("method={} uri={} status={} {}", request.getMethod(), request.getRequestURI(),
+                            response.getStatus(), timing.toLogFields());
+                } else if (log.isDebugEnabled()) {
+                    log.debug("method={} uri={} status={} {}", request.getMethod(), request.getRequestURI(),
+                            response.getStatus(), timing.toLogFields());
+                }
+            }
+        }
+    }
+
+    // Обертка ответа: перед первой записью тела (или отправкой ошибки) выставляет Server-Timing
+    static class TimingResponse extends HttpServletResponseWrapper {
+
+        private final RequestTiming timing;
+        private boolean headerAdded;
+        private ServletOutputStream outputStream;
+        private PrintWriter writer;
+
+        TimingResponse(HttpServletResponse response, RequestTiming timing) {
+            super(response);
+            this.timing = timing;
+        }
+
+        void addTimingHeader() {
+            if (!headerAdded && !isCommitted()) {
+                headerAdded = true;
+                setHeader(HEADER, timing.toServerTiming());
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                outputStream = new TimingOutputStream(super.getOutputStream(), this);
+            }
+            return outputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                Charset charset = Charset.forName(getCharacterEncoding());
+                writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), charset), false);
+            }
+            return writer;
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            addTimingHeader();
+            if (writer != null) {
+                writer.flush();
+            }
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            addTimingHeader();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            addTimingHeader();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            addTimingHeader();
+            super.sendRedirect(location);
+        }
+    }
+
+    private static class TimingOutputStream extends ServletOutputStream {
+
+        private final ServletOutputStream delegate;
+        private final TimingResponse response;
+
+        TimingOutputStream(ServletOutputStream delegate, TimingResponse response) {
+            this.delegate = delegate;
+            this.response = response;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            response.addTimingHeader();
+            delegate.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            response.addTimingHeader();
+            delegate.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            response.addTimingHeader();
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            response.addTimingHeader();
+            delegate.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            delegate.setWriteListener(writeListener);
+        }
+    }
+}
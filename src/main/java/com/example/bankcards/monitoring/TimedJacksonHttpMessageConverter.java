@@ -0,0 +1,28 @@
+package com.example.bankcards.monitoring;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+// Стандартный JSON-конвертер с замером стадии json для Server-Timing
+public class TimedJacksonHttpMessageConverter extends MappingJackson2HttpMessageConverter {
+
+    public TimedJacksonHttpMessageConverter(ObjectMapper objectMapper) {
+        super(objectMapper);
+    }
+
+    @Override
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+            throws IOException, HttpMessageNotWritableException {
+        RequestTiming.start(RequestTiming.Stage.JSON);
+        try {
+            super.writeInternal(object, type, outputMessage);
+        } finally {
+            RequestTiming.stop(RequestTiming.Stage.JSON);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.bankcards.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// JFR-событие перевода между картами. Включается профилем jfr/bankcards.jfc.
+@Name("com.example.bankcards.Transfer")
+@Label("Card Transfer")
+@Category({"Bank Cards", "Transfers"})
+@Description("Перевод между картами пользователя")
+@Enabled(false)
+@StackTrace(false)
+public class TransferEvent extends Event {
+
+    public static final String OUTCOME_OK = "OK";
+    public static final String OUTCOME_REJECTED = "REJECTED";
+    public static final String OUTCOME_ERROR = "ERROR";
+    public static final String OUTCOME_ROLLED_BACK = "ROLLED_BACK";
+
+    @Label("From Card Id")
+    public long fromCardId;
+
+    @Label("To Card Id")
+    public long toCardId;
+
+    @Label("Amount Bucket")
+    @Description("Диапазон суммы в рублях, сама сумма в запись не попадает")
+    public String amountBucket;
+
+    @Label("Mode")
+    @Description("row - баланс в строке карты, striped - части баланса, engine - движок балансов")
+    public String mode;
+
+    @Label("Outcome")
+    public String outcome;
+
+    @Label("Lock Wait")
+    @Description("Время блокирующих операций с балансами и фиксации транзакции, где UPDATE ждет блокировок строк")
+    @Timespan(Timespan.NANOSECONDS)
+    public long lockWait;
+
+    // Диапазоны сумм в копейках: до 100 ₽, до 1 000 ₽, до 10 000 ₽, до 100 000 ₽ и больше
+    public static String amountBucket(long amount) {
+        if (amount < 10_000L) {
+            return "<100";
+        } else if (amount < 100_000L) {
+            return "100-1k";
+        } else if (amount < 1_000_000L) {
+            return "1k-10k";
+        } else if (amount < 10_000_000L) {
+            return "10k-100k";
+        }
+        return ">=100k";
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.BankCardBalanceStripe;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface BankCardBalanceStripeRepository extends JpaRepository<BankCardBalanceStripe, Long> {
+
+    // Зачисление в одну часть: блокируется только строка этой части
+    @Modifying
+    @Query("UPDATE BankCardBalanceStripe s SET s.balance = s.balance + :amount " +
+            "WHERE s.cardId = :cardId AND s.stripeIndex = :stripeIndex")
+    int credit(@Param("cardId") Long cardId, @Param("stripeIndex") int stripeIndex, @Param("amount") long amount);
+
+    // Списание из одной части, только если в ней хватает средств
+    @Modifying
+    @Query("UPDATE BankCardBalanceStripe s SET s.balance = s.balance - :amount " +
+            "WHERE s.cardId = :cardId AND s.stripeIndex = :stripeIndex AND s.balance >= :amount")
+    int debitIfSufficient(@Param("cardId") Long cardId, @Param("stripeIndex") int stripeIndex, @Param("amount") long amount);
+
+    // Все части карты под блокировкой, в постоянном порядке во избежание взаимных блокировок
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM BankCardBalanceStripe s WHERE s.cardId = :cardId ORDER BY s.stripeIndex")
+    List<BankCardBalanceStripe> findAllForUpdate(@Param("cardId") Long cardId);
+
+    // Суммы частей по картам одним запросом: [cardId, sum]
+    @Query("SELECT s.cardId, SUM(s.balance) FROM BankCardBalanceStripe s WHERE s.cardId IN :cardIds GROUP BY s.cardId")
+    List<Object[]> sumByCardIds(@Param("cardIds") Collection<Long> cardIds);
+
+    @Modifying
+    @Query("DELETE FROM BankCardBalanceStripe s WHERE s.cardId = :cardId")
+    int deleteByCardId(@Param("cardId") Long cardId);
+}
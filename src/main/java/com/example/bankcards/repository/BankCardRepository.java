@@ -1,12 +1,19 @@
 package com.example.bankcards.repository;
 
 import com.example.bankcards.entity.BankCard;
+import com.example.bankcards.entity.BankCardStatus;
 import com.example.bankcards.entity.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,9 +26,45 @@ public interface BankCardRepository extends JpaRepository<BankCard, Long> {
     // Все карты пользователя с пагинацией
     Page<BankCard> findByUser(User user, Pageable pageable);
 
+    // Все карты с владельцем: поля пользователя приходят тем же запросом, без select на каждую строку
+    @Query(value = "SELECT new com.example.bankcards.repository.BankCardWithOwner(c, u.id, u.username, u.email) " +
+            "FROM BankCard c JOIN c.user u",
+            countQuery = "SELECT COUNT(c) FROM BankCard c")
+    Page<BankCardWithOwner> findAllWithOwners(Pageable pageable);
+
     // Конкретная карта пользователя
     Optional<BankCard> findByIdAndUser(Long id, User user);
 
+    // Карта под блокировкой строки
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM BankCard c WHERE c.id = :id")
+    Optional<BankCard> findByIdForUpdate(@Param("id") Long id);
+
+    // Несколько карт под блокировкой, в порядке id во избежание взаимных блокировок
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM BankCard c WHERE c.id IN :ids ORDER BY c.id")
+    List<BankCard> findAllByIdInForUpdate(@Param("ids") Collection<Long> ids);
+
+    // Id карт без частей баланса: их баланс пишется в строку bank_cards
+    @Query("SELECT c.id FROM BankCard c WHERE c.id IN :ids AND c.balanceStripes = 0")
+    List<Long> findRowModeIds(@Param("ids") Collection<Long> ids);
+
+    // Владелец карты без загрузки карты и пользователя
+    @Query("SELECT c.user.id FROM BankCard c WHERE c.id = :id")
+    Optional<Long> findOwnerIdById(@Param("id") Long id);
+
+    // Id карт пользователя без загрузки карт (по индексу idx_bank_cards_user_id)
+    @Query("SELECT c.id FROM BankCard c WHERE c.user.id = :userId")
+    List<Long> findIdsByUserId(@Param("userId") Long userId);
+
     // Проверка существования номера карты
     boolean existsByCardNumber(String cardNumber);
+
+    // Проверка существования номера карты по HMAC номера или по шифртексту ключом 0 (карты без хеша) - одним запросом
+    boolean existsByCardNumberHashOrCardNumber(String cardNumberHash, String cardNumber);
+
+    // Обновление статуса без загрузки карты
+    @Modifying
+    @Query("UPDATE BankCard c SET c.status = :status WHERE c.id = :id")
+    int updateStatus(@Param("id") Long id, @Param("status") BankCardStatus status);
 }
\ No newline at end of file
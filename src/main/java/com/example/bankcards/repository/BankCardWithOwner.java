@@ -0,0 +1,7 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.BankCard;
+
+// Карта и поля владельца из одного запроса с join: сущность User (и ее EAGER-роли) не загружается
+public record BankCardWithOwner(BankCard card, Long ownerId, String ownerUsername, String ownerEmail) {
+}
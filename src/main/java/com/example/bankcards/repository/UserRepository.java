@@ -1,14 +1,53 @@
 package com.example.bankcards.repository;
 
+import com.example.bankcards.dto.UserSummaryResponse;
 import com.example.bankcards.entity.User;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
+    // Роли подгружаются тем же запросом, а не отдельным select после пользователя
+    @EntityGraph(attributePaths = "roles")
     Optional<User> findByUsername(String username);
     boolean existsByUsername(String username);
     boolean existsByEmail(String email);
+    // Имя или email заняты - одним запросом до хеширования пароля при регистрации
+    boolean existsByUsernameOrEmail(String username, String email);
+
+    // Уже занятые имена и email из переданного набора (для массового импорта)
+    @Query("SELECT u.username FROM User u WHERE u.username IN :usernames")
+    List<String> findExistingUsernames(@Param("usernames") Collection<String> usernames);
+
+    @Query("SELECT u.email FROM User u WHERE u.email IN :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    // Справочник пользователей: страница по id после курсора, фильтр по началу имени и сводка по картам
+    // одним группирующим запросом. Части балансов суммируются подзапросом: join по ним размножил бы строки карт
+    @Query("SELECT new com.example.bankcards.dto.UserSummaryResponse(u.id, u.username, u.email, u.createdAt, " +
+            "COUNT(c), " +
+            "SUM(CASE WHEN c.status = com.example.bankcards.entity.BankCardStatus.ACTIVE THEN 1 ELSE 0 END), " +
+            "SUM(c.balance), " +
+            "(SELECT SUM(s.balance) FROM BankCardBalanceStripe s, BankCard sc WHERE s.cardId = sc.id AND sc.user = u)) " +
+            "FROM User u LEFT JOIN BankCard c ON c.user = u " +
+            "WHERE u.id > :afterId AND u.username LIKE :usernamePattern ESCAPE '\\' " +
+            "GROUP BY u.id, u.username, u.email, u.createdAt " +
+            "ORDER BY u.id")
+    List<UserSummaryResponse> findSummaries(@Param("afterId") long afterId,
+                                            @Param("usernamePattern") String usernamePattern,
+                                            Limit limit);
+
+    // Замена хеша пароля без загрузки пользователя и его ролей
+    @Modifying
+    @Query("UPDATE User u SET u.password = :password WHERE u.username = :username")
+    int updatePassword(@Param("username") String username, @Param("password") String password);
 }
\ No newline at end of file
@@ -0,0 +1,76 @@
+package com.example.bankcards.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+// Ограниченный пул для проверки паролей (BCrypt): всплеск логинов занимает только его потоки
+// и очередь, а не потоки Tomcat, обслуживающие карты и переводы.
+@Component
+public class LoginExecutor {
+
+    private static final String ENDPOINT_TAG = "/api/auth/login";
+
+    private final ThreadPoolExecutor executor;
+    private final Counter rejected;
+
+    public LoginExecutor(MeterRegistry meterRegistry,
+                         @Value("${app.login.pool-size:0}") int poolSize,
+                         @Value("${app.login.queue-capacity:100}") int queueCapacity) {
+        int threads = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "login-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        // AbortPolicy: при переполнении очереди сразу отказываем, а не ждем
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("auth.login.queue.depth", executor, e -> e.getQueue().size())
+                .description("Логины, ожидающие проверки пароля")
+                .tag("endpoint", ENDPOINT_TAG)
+                .register(meterRegistry);
+        Gauge.builder("auth.login.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Логины, проверяемые в данный момент")
+                .tag("endpoint", ENDPOINT_TAG)
+                .register(meterRegistry);
+        this.rejected = Counter.builder("auth.login.rejected")
+                .description("Логины, отклоненные из-за переполнения очереди")
+                .tag("endpoint", ENDPOINT_TAG)
+                .register(meterRegistry);
+    }
+
+    // Запуск задачи в пуле; при переполнении очереди бросает RejectedExecutionException
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, executor);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw e;
+        }
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
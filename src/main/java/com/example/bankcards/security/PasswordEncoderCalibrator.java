@@ -0,0 +1,72 @@
+package com.example.bankcards.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.Map;
+
+// Кодировщик паролей с ценой BCrypt, подобранной при старте под целевое время проверки на текущем железе.
+// Хеши хранятся с префиксом алгоритма ({bcrypt}...), старые хеши без префикса проверяются как BCrypt.
+// Хеш с другим алгоритмом или меньшей ценой перехешируется при успешном входе (UserDetailsServiceImpl.updatePassword).
+public final class PasswordEncoderCalibrator {
+
+    public static final String ENCODING_ID = "bcrypt";
+
+    // Ниже 10 BCrypt считается слабым, выше 16 проверка занимает секунды на любом железе
+    public static final int MIN_STRENGTH = 10;
+    public static final int MAX_STRENGTH = 16;
+
+    private static final Logger log = LoggerFactory.getLogger(PasswordEncoderCalibrator.class);
+
+    private static final int SAMPLES = 3;
+    private static final String SAMPLE_PASSWORD = "calibration-password";
+
+    private PasswordEncoderCalibrator() {
+    }
+
+    // strength > 0 - цена задана явно, иначе подбирается под targetVerifyTime
+    public static PasswordEncoder create(int strength, Duration targetVerifyTime, int minStrength, int maxStrength) {
+        int effectiveStrength = strength > 0 ? strength : calibrate(targetVerifyTime, minStrength, maxStrength);
+        return delegating(effectiveStrength);
+    }
+
+    static PasswordEncoder delegating(int strength) {
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(strength);
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder(ENCODING_ID, Map.of(ENCODING_ID, bcrypt));
+        // Хеши, записанные до перехода на префиксы
+        encoder.setDefaultPasswordEncoderForMatches(bcrypt);
+        return encoder;
+    }
+
+    // Замер на минимальной цене; каждая следующая цена BCrypt вдвое дороже предыдущей
+    static int calibrate(Duration targetVerifyTime, int minStrength, int maxStrength) {
+        BCryptPasswordEncoder probe = new BCryptPasswordEncoder(minStrength);
+        String hash = probe.encode(SAMPLE_PASSWORD);
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < SAMPLES; i++) {
+            long startedAt = System.nanoTime();
+            probe.matches(SAMPLE_PASSWORD, hash);
+            best = Math.min(best, System.nanoTime() - startedAt);
+        }
+        int strength = strengthFor(best, targetVerifyTime.toNanos(), minStrength, maxStrength);
+        log.info("Цена BCrypt: {} (проверка при цене {} - {} мс, ожидаемая при выбранной - {} мс, цель - {} мс)",
+                strength, minStrength, best / 1_000_000, (best << (strength - minStrength)) / 1_000_000,
+                targetVerifyTime.toMillis());
+        return strength;
+    }
+
+    // Наибольшая цена, при которой проверка не дольше цели
+    static int strengthFor(long nanosAtMinStrength, long targetNanos, int minStrength, int maxStrength) {
+        int strength = minStrength;
+        long nanos = Math.max(1, nanosAtMinStrength);
+        while (strength < maxStrength && nanos * 2 <= targetNanos) {
+            nanos *= 2;
+            strength++;
+        }
+        return strength;
+    }
+}
@@ -1,26 +1,62 @@
 package com.example.bankcards.security;
 
 import com.example.bankcards.entity.User;
+import com.example.bankcards.monitoring.RequestTiming;
 import com.example.bankcards.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
-public class UserDetailsServiceImpl implements UserDetailsService {
+public class UserDetailsServiceImpl implements UserDetailsService, UserDetailsPasswordService {
+
+    private static final Logger log = LoggerFactory.getLogger(UserDetailsServiceImpl.class);
 
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     @Override
-    @Transactional
+    @Transactional(readOnly = true)
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new UsernameNotFoundException("User Not Found with username: " + username));
+        RequestTiming.start(RequestTiming.Stage.USER_LOAD);
+        try {
+            User user = userRepository.findByUsername(username)
+                    .orElseThrow(() -> new UsernameNotFoundException("User Not Found with username: " + username));
 
-        return UserDetailsImpl.build(user);
+            return UserDetailsImpl.build(user);
+        } finally {
+            RequestTiming.stop(RequestTiming.Stage.USER_LOAD);
+        }
+    }
+
+    // Вызывается DaoAuthenticationProvider после успешного входа, если хеш устарел (другой алгоритм или меньшая цена).
+    // Ошибка записи не должна мешать входу: пароль уже проверен, перехеширование повторится при следующем входе.
+    // Запись - в отдельной транзакции, ошибка ловится снаружи нее: иначе транзакция вокруг входа помечается
+    // rollback-only и вход падает с UnexpectedRollbackException
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        TransactionTemplate writeTransaction = new TransactionTemplate(transactionManager);
+        writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        try {
+            writeTransaction.executeWithoutResult(status -> userRepository.updatePassword(user.getUsername(), newPassword));
+        } catch (DataAccessException e) {
+            log.warn("Не удалось обновить хеш пароля пользователя {}", user.getUsername(), e);
+            return user;
+        }
+        UserDetailsImpl details = (UserDetailsImpl) user;
+        return new UserDetailsImpl(details.getId(), details.getUsername(), newPassword, details.getAuthorities());
     }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package com.example.bankcards.security.jwt;
 
+import com.example.bankcards.monitoring.RequestTiming;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -30,9 +31,17 @@ public class AuthTokenFilter extends OncePerRequestFilter {
             throws ServletException, IOException {
         try {
             String jwt = parseJwt(request);
-            if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-                String username = jwtUtils.getUsernameFromJwtToken(jwt);
+            String username = null;
+            RequestTiming.start(RequestTiming.Stage.JWT);
+            try {
+                if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
+                    username = jwtUtils.getUsernameFromJwtToken(jwt);
+                }
+            } finally {
+                RequestTiming.stop(RequestTiming.Stage.JWT);
+            }
 
+            if (username != null) {
                 UserDetails userDetails = userDetailsService.loadUserByUsername(username);
 
                 UsernamePasswordAuthenticationToken authentication =
@@ -1,7 +1,10 @@
 package com.example.bankcards.security.jwt;
 
+import com.example.bankcards.monitoring.JwtVerifyEvent;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
@@ -12,6 +15,8 @@ import java.util.Date;
 @Component
 public class JwtUtils {
 
+    private static final Logger log = LoggerFactory.getLogger(JwtUtils.class);
+
     @Value("${app.jwt-secret}")
     private String jwtSecret;
 
@@ -51,15 +56,26 @@ public class JwtUtils {
     }
 
     public boolean validateJwtToken(String authToken) {
+        JwtVerifyEvent event = new JwtVerifyEvent();
+        event.begin();
+        String failure = null;
         try {
             Jwts.parserBuilder()
                     .setSigningKey(getSigningKey())
                     .build()
                     .parseClaimsJws(authToken);
-            System.out.println("JWT token is valid");
+            log.debug("JWT token is valid");
             return true;
         } catch (Exception e) {
+            failure = e.getClass().getSimpleName();
             e.printStackTrace();
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.valid = failure == null;
+                event.failure = failure;
+                event.commit();
+            }
         }
         return false;
     }
@@ -0,0 +1,41 @@
+package com.example.bankcards.security.ratelimit;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+// Группы эндпоинтов с отдельными лимитами запросов
+public enum EndpointGroup {
+    AUTH("auth"),
+    CARD_READS("card-reads"),
+    TRANSFERS("transfers"),
+    ADMIN("admin");
+
+    private final String propertyName;
+
+    EndpointGroup(String propertyName) {
+        this.propertyName = propertyName;
+    }
+
+    public String getPropertyName() {
+        return propertyName;
+    }
+
+    // Определение группы по запросу; null - запрос не лимитируется
+    public static EndpointGroup resolve(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+
+        if (path.startsWith("/api/auth/")) {
+            return AUTH;
+        }
+        if (path.equals("/api/cards/transfer")) {
+            return TRANSFERS;
+        }
+        if (path.equals("/api/cards/my") || path.startsWith("/api/cards/my/")) {
+            return CARD_READS;
+        }
+        if (path.equals("/api/cards") || path.startsWith("/api/cards/")
+                || path.startsWith("/api/admin/") || path.startsWith("/actuator/")) {
+            return ADMIN;
+        }
+        return null;
+    }
+}
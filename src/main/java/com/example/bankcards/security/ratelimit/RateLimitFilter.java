@@ -0,0 +1,101 @@
+package com.example.bankcards.security.ratelimit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Ограничение частоты запросов для каждой группы эндпоинтов: по пользователю, а для анонимных запросов - по IP.
+// Пользователи за одним прокси или NAT не делят общий лимит IP; адрес клиента за доверенным прокси
+// берется из X-Forwarded-For (server.forward-headers-strategy: native).
+// Стоит сразу после AuthTokenFilter, чтобы пользователь уже был известен.
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private boolean enabled;
+    private RateLimiter rateLimiter;
+    private final Map<EndpointGroup, RateLimiter.Limit> limits = new EnumMap<>(EndpointGroup.class);
+
+    @Override
+    protected void initFilterBean() {
+        // Вызывается и Spring-ом, и контейнером сервлетов; состояние создаем один раз
+        if (rateLimiter != null) {
+            return;
+        }
+        enabled = environment.getProperty("app.rate-limit.enabled", Boolean.class, true);
+        long idleSeconds = environment.getProperty("app.rate-limit.idle-eviction-seconds", Long.class, 300L);
+        rateLimiter = new RateLimiter(TimeUnit.SECONDS.toNanos(idleSeconds));
+
+        for (EndpointGroup group : EndpointGroup.values()) {
+            String prefix = "app.rate-limit." + group.getPropertyName() + ".";
+            limits.put(group, new RateLimiter.Limit(
+                    environment.getProperty(prefix + "capacity", Long.class, 100L),
+                    environment.getProperty(prefix + "refill-per-second", Double.class, 50.0)));
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+        EndpointGroup group = enabled ? EndpointGroup.resolve(request) : null;
+        if (group == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String key = authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken)
+                ? "user:" + group + ":" + authentication.getName()
+                : "ip:" + group + ":" + request.getRemoteAddr();
+        long waitNanos = rateLimiter.tryAcquire(key, limits.get(group));
+
+        if (waitNanos > 0) {
+            reject(response, group, waitNanos);
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    private void reject(HttpServletResponse response, EndpointGroup group, long waitNanos) throws IOException {
+        meterRegistry.counter("rate_limit.rejected", "group", group.getPropertyName()).increment();
+
+        long retryAfterSeconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType("application/json;charset=UTF-8");
+
+        Map<String, String> errorResponse = new HashMap<>();
+        errorResponse.put("error", "Too Many Requests");
+        errorResponse.put("message", "Rate limit exceeded");
+
+        response.getWriter().write(objectMapper.writeValueAsString(errorResponse));
+    }
+}
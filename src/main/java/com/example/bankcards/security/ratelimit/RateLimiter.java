@@ -0,0 +1,71 @@
+package com.example.bankcards.security.ratelimit;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+// Набор token bucket-ов по ключу (пользователь или IP).
+// Каждый bucket - один AtomicLong с "теоретическим временем прибытия" (GCRA): это тот же token bucket,
+// но состояние обновляется одним CAS без блокировок.
+public class RateLimiter {
+
+    // Параметры bucket-а: емкость (burst) и скорость пополнения в токенах в секунду
+    public record Limit(long capacity, double refillPerSecond) {
+        long emissionIntervalNanos() {
+            return (long) (TimeUnit.SECONDS.toNanos(1) / refillPerSecond);
+        }
+    }
+
+    private final ConcurrentMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final LongSupplier clock;
+    private final long idleEvictionNanos;
+    private final AtomicLong nextSweep;
+
+    public RateLimiter(long idleEvictionNanos) {
+        this(idleEvictionNanos, System::nanoTime);
+    }
+
+    RateLimiter(long idleEvictionNanos, LongSupplier clock) {
+        this.clock = clock;
+        this.idleEvictionNanos = idleEvictionNanos;
+        this.nextSweep = new AtomicLong(clock.getAsLong() + idleEvictionNanos);
+    }
+
+    // Взять токен. Возвращает 0, если запрос разрешен, иначе - сколько наносекунд ждать следующего токена
+    public long tryAcquire(String key, Limit limit) {
+        long now = clock.getAsLong();
+        evictIdle(now);
+
+        long interval = limit.emissionIntervalNanos();
+        long burst = interval * limit.capacity();
+        AtomicLong bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+
+        while (true) {
+            long tat = bucket.get();
+            long newTat = Math.max(tat, now) + interval;
+            long waitNanos = newTat - now - burst;
+            if (waitNanos > 0) {
+                return waitNanos;
+            }
+            if (bucket.compareAndSet(tat, newTat)) {
+                return 0;
+            }
+        }
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    // Удаляем bucket-ы, которые давно полностью пополнились: такой bucket неотличим от нового,
+    // поэтому удаление ничего не меняет в лимитах. Чистит только один поток раз в idleEvictionNanos.
+    private void evictIdle(long now) {
+        long sweepAt = nextSweep.get();
+        if (now - sweepAt < 0 || !nextSweep.compareAndSet(sweepAt, now + idleEvictionNanos)) {
+            return;
+        }
+        buckets.values().removeIf(bucket -> now - bucket.get() > idleEvictionNanos);
+    }
+}
@@ -1,27 +1,55 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.analytics.CardFilterIndex;
+import com.example.bankcards.analytics.CardIdBitmap;
+import com.example.bankcards.engine.BalanceEngine;
 import com.example.bankcards.entity.BankCard;
 import com.example.bankcards.entity.BankCardStatus;
 import com.example.bankcards.entity.User;
+import com.example.bankcards.event.CardChangedEvent;
 import com.example.bankcards.exception.BadRequestException;
 import com.example.bankcards.exception.ResourceNotFoundException;
+import com.example.bankcards.monitoring.RequestTiming;
+import com.example.bankcards.monitoring.TransferEvent;
+import com.example.bankcards.repository.BankCardBalanceStripeRepository;
 import com.example.bankcards.repository.BankCardRepository;
+import com.example.bankcards.repository.BankCardWithOwner;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.UserDetailsImpl;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
 
 @Service
 public class BankCardService {
 
+
     @Autowired
     private BankCardRepository bankCardRepository;
 
@@ -31,13 +59,32 @@ public class BankCardService {
     @Autowired
     private EncryptionService encryptionService;
 
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private StripedBalanceService stripedBalanceService;
+
+    @Autowired
+    private BankCardBalanceStripeRepository stripeRepository;
+
+    // Изменения карт для структур в памяти (доставляются слушателям после коммита)
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // Есть только при app.balance-engine.enabled=true
+    @Autowired(required = false)
+    private BalanceEngine balanceEngine;
+
+    // Есть только при app.card-index.enabled=true
+    @Autowired(required = false)
+    private CardFilterIndex cardFilterIndex;
+
     // Вспомогательный метод для маскировки номера карты
     public String maskCardNumber(String cardNumber) {
         try {
             // Если номер зашифрован, расшифруем его для маскировки
-            String decryptedNumber = encryptionService.isEncrypted(cardNumber)
-                    ? encryptionService.decrypt(cardNumber)
-                    : cardNumber;
+            String decryptedNumber = encryptionService.decryptIfEncrypted(cardNumber);
 
             if (decryptedNumber == null || decryptedNumber.length() < 4) {
                 return "****";
@@ -51,11 +98,28 @@ public class BankCardService {
 
     // Получить текущего аутентифицированного пользователя
     private User getCurrentUser() {
-        String username = SecurityContextHolder.getContext().getAuthentication().getName();
-        return userRepository.findByUsername(username)
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+
+        // Пользователь уже загружен в AuthTokenFilter - для фильтрации карт достаточно ссылки по id
+        if (authentication.getPrincipal() instanceof UserDetailsImpl userDetails) {
+            return userRepository.getReferenceById(userDetails.getId());
+        }
+
+        return userRepository.findByUsername(authentication.getName())
                 .orElseThrow(() -> new ResourceNotFoundException("Пользователь не найден"));
     }
 
+    // Id текущего пользователя - ключ шарда для изменений его карт
+    public Long getCurrentUserId() {
+        return getCurrentUser().getId();
+    }
+
+    // Id владельца карты - ключ шарда для изменений карты администратором
+    public Long getCardOwnerId(Long cardId) {
+        return bankCardRepository.findOwnerIdById(cardId)
+                .orElseThrow(() -> new ResourceNotFoundException("Карта не найдена"));
+    }
+
     // Проверка срока действия карты
     private boolean isCardExpired(String expiryDate) {
         try {
@@ -77,7 +141,30 @@ public class BankCardService {
     private void checkAndUpdateCardStatus(BankCard card) {
         if (isCardExpired(card.getExpiryDate()) && card.getStatus() != BankCardStatus.EXPIRED) {
             card.setStatus(BankCardStatus.EXPIRED);
-            bankCardRepository.save(card);
+
+            RequestTiming.start(RequestTiming.Stage.STATUS_WRITE);
+            try {
+                if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+                    // Чтение могло уйти в реплику - статус пишем отдельной транзакцией в primary
+                    TransactionTemplate writeTransaction = new TransactionTemplate(transactionManager);
+                    writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+                    writeTransaction.executeWithoutResult(status ->
+                            bankCardRepository.updateStatus(card.getId(), BankCardStatus.EXPIRED));
+                } else {
+                    bankCardRepository.save(card);
+                }
+            } finally {
+                RequestTiming.stop(RequestTiming.Stage.STATUS_WRITE);
+            }
+            eventPublisher.publishEvent(CardChangedEvent.statusChanged(card));
+        }
+    }
+
+    // Актуальные балансы для ответа: суммы частей и значения движка балансов
+    private void loadBalances(Iterable<BankCard> cards) {
+        stripedBalanceService.loadBalances(cards);
+        if (balanceEngine != null) {
+            cards.forEach(card -> card.setLiveBalance(balanceEngine.getBalance(card.getId())));
         }
     }
 
@@ -91,9 +178,11 @@ public class BankCardService {
 
         // Шифруем номер карты перед сохранением
         String encryptedCardNumber = encryptionService.encrypt(cardNumber);
+        String cardNumberHash = encryptionService.lookupHash(cardNumber);
 
-        // Проверяем, существует ли уже карта с таким номером
-        if (bankCardRepository.existsByCardNumber(encryptedCardNumber)) {
+        // Проверяем, существует ли уже карта с таким номером: шифртекст GCM каждый раз разный, поэтому ищем по HMAC,
+        // а среди карт, еще не перешифрованных с ключа 0, - по детерминированному шифртексту
+        if (bankCardRepository.existsByCardNumberHashOrCardNumber(cardNumberHash, encryptionService.encryptLegacy(cardNumber))) {
             throw new BadRequestException("Карта с таким номером уже существует");
         }
 
@@ -109,13 +198,16 @@ public class BankCardService {
 
         BankCard card = new BankCard();
         card.setCardNumber(encryptedCardNumber);
+        card.setCardNumberHash(cardNumberHash);
         card.setCardHolder(cardHolder);
         card.setExpiryDate(expiryDate);
         card.setStatus(initialStatus);
-        card.setBalance(BigDecimal.ZERO);
+        card.setBalance(0L);
         card.setUser(user);
 
-        return bankCardRepository.save(card);
+        BankCard saved = bankCardRepository.save(card);
+        eventPublisher.publishEvent(CardChangedEvent.created(saved));
+        return saved;
     }
 
     // Простая валидация номера карты
@@ -127,36 +219,113 @@ public class BankCardService {
     }
 
     // Получить все карты текущего пользователя с пагинацией
+    @Transactional(readOnly = true)
     public Page<BankCard> getUserCards(Pageable pageable) {
         User currentUser = getCurrentUser();
         Page<BankCard> cards = bankCardRepository.findByUser(currentUser, pageable);
 
         // Проверяем статусы всех полученных карт
         cards.forEach(this::checkAndUpdateCardStatus);
+        loadBalances(cards);
 
         return cards;
     }
 
     // Получить все карты (для администратора)
+    @Transactional(readOnly = true)
     public Page<BankCard> getAllCards(Pageable pageable) {
         Page<BankCard> cards = bankCardRepository.findAll(pageable);
 
         // Проверяем статусы всех полученных карт
         cards.forEach(this::checkAndUpdateCardStatus);
+        loadBalances(cards);
 
         return cards;
     }
 
+    // Карты по фильтрам (для администратора): подходящие id - пересечение битовых индексов в памяти,
+    // из базы читаются только карты страницы (и id карт владельца, если он задан).
+    // Индекс упорядочен только по id: порядок по createdAt с ним не совпадает (загруженные и перенесенные данные),
+    // поэтому другая сортировка отклоняется, а не дает пропуски и повторы между страницами
+    @Transactional(readOnly = true)
+    public Page<BankCard> findCards(BankCardStatus status, YearMonth expiryMonth, Integer balanceBand, Long ownerId,
+                                    Pageable pageable) {
+        if (cardFilterIndex == null) {
+            throw new BadRequestException("Фильтрация карт выключена (app.card-index.enabled)");
+        }
+        if (balanceBand != null && (balanceBand < 0 || balanceBand >= cardFilterIndex.getBalanceBandCount())) {
+            throw new BadRequestException("Диапазон баланса должен быть от 0 до " + (cardFilterIndex.getBalanceBandCount() - 1));
+        }
+        Sort.Order order = pageable.getSort().stream().findFirst().orElse(Sort.Order.desc("id"));
+        if (!"id".equals(order.getProperty())) {
+            throw new BadRequestException("Карты с фильтром сортируются только по id");
+        }
+
+        CardIdBitmap ownerCards = ownerId != null ? CardIdBitmap.of(bankCardRepository.findIdsByUserId(ownerId)) : null;
+        CardIdBitmap matches = cardFilterIndex.find(status, expiryMonth, balanceBand, ownerCards);
+        long[] ids = matches.page(pageable.getOffset(), pageable.getPageSize(), order.isDescending());
+
+        Map<Long, BankCard> cardsById = new HashMap<>();
+        if (ids.length > 0) {
+            List<Long> pageIds = new ArrayList<>(ids.length);
+            for (long id : ids) {
+                pageIds.add(id);
+            }
+            bankCardRepository.findAllById(pageIds).forEach(card -> cardsById.put(card.getId(), card));
+        }
+        // Порядок страницы - порядок id из индекса; карта, удаленная после построения пересечения, пропускается
+        List<BankCard> cards = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            BankCard card = cardsById.get(id);
+            if (card != null) {
+                cards.add(card);
+            }
+        }
+        cards.forEach(this::checkAndUpdateCardStatus);
+        loadBalances(cards);
+
+        return new PageImpl<>(cards, pageable, matches.cardinality());
+    }
+
+    // Все карты с владельцами (для администратора): один запрос на страницу независимо от ее размера
+    @Transactional(readOnly = true)
+    public Page<BankCardWithOwner> getAllCardsWithOwners(Pageable pageable) {
+        Page<BankCardWithOwner> rows = bankCardRepository.findAllWithOwners(pageable);
+
+        List<BankCard> cards = rows.map(BankCardWithOwner::card).getContent();
+        cards.forEach(this::checkAndUpdateCardStatus);
+        loadBalances(cards);
+
+        return rows;
+    }
+
     // Получить конкретную карту текущего пользователя
+    @Transactional(readOnly = true)
     public BankCard getUserCardById(Long cardId) {
         User currentUser = getCurrentUser();
         BankCard card = bankCardRepository.findByIdAndUser(cardId, currentUser)
                 .orElseThrow(() -> new ResourceNotFoundException("Карта не найдена"));
 
         checkAndUpdateCardStatus(card);
+        loadBalances(List.of(card));
         return card;
     }
 
+    // Текущее состояние изменившихся карт владельца для потока /api/cards/my/stream; удаленные и чужие карты пропускаются.
+    // Не readOnly: чтение идет в primary, реплика может еще не содержать только что закоммиченное изменение.
+    // Статус по сроку действия здесь не пересчитывается - это изменение само опубликовало бы событие
+    @Transactional
+    public List<BankCard> getUserCardsByIds(Long userId, Collection<Long> cardIds) {
+        List<BankCard> cards = new ArrayList<>(cardIds.size());
+        bankCardRepository.findAllById(cardIds).forEach(card -> {
+            if (card.getUser().getId().equals(userId)) {
+                cards.add(card);
+            }
+        });
+        loadBalances(cards);
+        return cards;
+    }
+
     // Запрос на блокировку карты (для пользователя)
     @Transactional
     public BankCard requestBlockCard(Long cardId) {
@@ -171,7 +340,9 @@ public class BankCardService {
         }
 
         card.setStatus(BankCardStatus.BLOCKED);
-        return bankCardRepository.save(card);
+        BankCard saved = bankCardRepository.save(card);
+        eventPublisher.publishEvent(CardChangedEvent.statusChanged(saved));
+        return saved;
     }
 
     // Блокировка карты (для администратора)
@@ -187,7 +358,10 @@ public class BankCardService {
         }
 
         card.setStatus(BankCardStatus.BLOCKED);
-        return bankCardRepository.save(card);
+        loadBalances(List.of(card));
+        BankCard saved = bankCardRepository.save(card);
+        eventPublisher.publishEvent(CardChangedEvent.statusChanged(saved));
+        return saved;
     }
 
     // Активация карты (для администратора)
@@ -207,7 +381,10 @@ public class BankCardService {
         }
 
         card.setStatus(BankCardStatus.ACTIVE);
-        return bankCardRepository.save(card);
+        loadBalances(List.of(card));
+        BankCard saved = bankCardRepository.save(card);
+        eventPublisher.publishEvent(CardChangedEvent.statusChanged(saved));
+        return saved;
     }
 
     // Удаление карты (для администратора)
@@ -216,24 +393,35 @@ public class BankCardService {
         BankCard card = bankCardRepository.findById(cardId)
                 .orElseThrow(() -> new ResourceNotFoundException("Карта не найдена"));
 
+        if (card.isStriped()) {
+            stripeRepository.deleteByCardId(cardId);
+        }
         bankCardRepository.delete(card);
+        eventPublisher.publishEvent(CardChangedEvent.deleted(card));
     }
 
-    // Перевод между картами текущего пользователя
-    @Transactional
-    public void transferBetweenUserCards(Long fromCardId, Long toCardId, BigDecimal amount) {
-        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+    // Карты перевода, прошедшие проверки владельца и статусов
+    private record TransferCards(BankCard from, BankCard to) {}
+
+    private TransferCards loadTransferCards(Long fromCardId, Long toCardId, long amount) {
+        return loadTransferCards(fromCardId, toCardId, amount, Map.of());
+    }
+
+    // lockedCards - карты, уже прочитанные под блокировкой; остальные читаются с проверкой владельца
+    private TransferCards loadTransferCards(Long fromCardId, Long toCardId, long amount,
+                                            Map<Long, BankCard> lockedCards) {
+        if (amount <= 0) {
             throw new BadRequestException("Сумма перевода должна быть положительной");
         }
 
         User currentUser = getCurrentUser();
 
         // Получаем карту отправителя
-        BankCard fromCard = bankCardRepository.findByIdAndUser(fromCardId, currentUser)
+        BankCard fromCard = findUserCard(fromCardId, currentUser, lockedCards)
                 .orElseThrow(() -> new ResourceNotFoundException("Карта отправителя не найдена"));
 
         // Получаем карту получателя
-        BankCard toCard = bankCardRepository.findByIdAndUser(toCardId, currentUser)
+        BankCard toCard = findUserCard(toCardId, currentUser, lockedCards)
                 .orElseThrow(() -> new ResourceNotFoundException("Карта получателя не найдена"));
 
         // Проверяем статусы карт
@@ -246,6 +434,21 @@ public class BankCardService {
         }
 
         // Проверяем статус карт
+        checkActive(fromCard, toCard);
+
+        return new TransferCards(fromCard, toCard);
+    }
+
+    // Владелец карты, прочитанной под блокировкой, сверяется по id без загрузки пользователя
+    private Optional<BankCard> findUserCard(Long cardId, User user, Map<Long, BankCard> lockedCards) {
+        BankCard card = lockedCards.get(cardId);
+        if (card == null) {
+            return bankCardRepository.findByIdAndUser(cardId, user);
+        }
+        return card.getUser().getId().equals(user.getId()) ? Optional.of(card) : Optional.empty();
+    }
+
+    private void checkActive(BankCard fromCard, BankCard toCard) {
         if (fromCard.getStatus() != BankCardStatus.ACTIVE) {
             throw new BadRequestException("Карта отправителя не активна. Текущий статус: " + fromCard.getStatus().getDisplayName());
         }
@@ -253,18 +456,222 @@ public class BankCardService {
         if (toCard.getStatus() != BankCardStatus.ACTIVE) {
             throw new BadRequestException("Карта получателя не активна. Текущий статус: " + toCard.getStatus().getDisplayName());
         }
+    }
+
+    // Перевод между картами текущего пользователя, сумма в копейках.
+    // Транзакция открывается здесь, а не аннотацией: в режиме движка балансов ожидание записи журнала на диск
+    // идет после коммита чтения карт и не держит соединение из пула
+    public void transferBetweenUserCards(Long fromCardId, Long toCardId, long amount) {
+        if (balanceEngine != null) {
+            recordTransfer(fromCardId, toCardId, amount, event -> transferInEngine(event, fromCardId, toCardId, amount));
+        } else {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                    recordTransfer(fromCardId, toCardId, amount, event -> transfer(event, fromCardId, toCardId, amount)));
+        }
+    }
+
+    private void recordTransfer(Long fromCardId, Long toCardId, long amount, Consumer<TransferEvent> transfer) {
+        TransferEvent event = new TransferEvent();
+        event.begin();
+        try {
+            transfer.accept(event);
+            event.outcome = TransferEvent.OUTCOME_OK;
+        } catch (BadRequestException | ResourceNotFoundException e) {
+            event.outcome = TransferEvent.OUTCOME_REJECTED;
+            throw e;
+        } catch (RuntimeException e) {
+            event.outcome = TransferEvent.OUTCOME_ERROR;
+            throw e;
+        } finally {
+            commitTransferEvent(event, fromCardId, toCardId, amount);
+        }
+    }
 
-        // Проверяем достаточность средств
-        if (fromCard.getBalance().compareTo(amount) < 0) {
-            throw new BadRequestException("Недостаточно средств на карте отправителя");
+    private void transfer(TransferEvent event, Long fromCardId, Long toCardId, long amount) {
+        Map<Long, BankCard> lockedCards = lockRowModeCards(fromCardId, toCardId);
+        TransferCards cards = loadTransferCards(fromCardId, toCardId, amount, lockedCards);
+        BankCard fromCard = cards.from();
+        BankCard toCard = cards.to();
+        event.mode = fromCard.isStriped() || toCard.isStriped() ? "striped" : "row";
+        checkLocked(fromCard, lockedCards);
+        checkLocked(toCard, lockedCards);
+
+        // Списание: у карты с частями баланса достаточность проверяется условным обновлением части
+        if (fromCard.isStriped()) {
+            long startedAt = System.nanoTime();
+            stripedBalanceService.debit(fromCard, amount);
+            event.lockWait += System.nanoTime() - startedAt;
+        } else {
+            if (fromCard.getBalance() < amount) {
+                throw new BadRequestException("Недостаточно средств на карте отправителя");
+            }
+            fromCard.setBalance(fromCard.getBalance() - amount);
+            bankCardRepository.save(fromCard);
         }
 
-        // Выполняем перевод
-        fromCard.setBalance(fromCard.getBalance().subtract(amount));
-        toCard.setBalance(toCard.getBalance().add(amount));
+        // Зачисление: у "горячей" карты строка bank_cards не блокируется
+        if (toCard.isStriped()) {
+            long startedAt = System.nanoTime();
+            stripedBalanceService.credit(toCard, amount);
+            event.lockWait += System.nanoTime() - startedAt;
+        } else {
+            toCard.setBalance(toCard.getBalance() + amount);
+            bankCardRepository.save(toCard);
+        }
+        publishTransfer(fromCard, toCard, amount);
+    }
+
+    // Строки карт без частей баланса блокируются до их чтения, в порядке id: иначе setStripes, закоммиченный
+    // между чтением и записью, был бы перезаписан прочитанным раньше полным балансом. Строки карт с частями
+    // не блокируются - зачисления на них идут условным обновлением части (см. StripedBalanceService.credit)
+    private Map<Long, BankCard> lockRowModeCards(Long fromCardId, Long toCardId) {
+        Set<Long> cardIds = new TreeSet<>(bankCardRepository.findRowModeIds(List.of(fromCardId, toCardId)));
+        Map<Long, BankCard> lockedCards = new HashMap<>();
+        if (!cardIds.isEmpty()) {
+            bankCardRepository.findAllByIdInForUpdate(cardIds).forEach(card -> lockedCards.put(card.getId(), card));
+        }
+        return lockedCards;
+    }
 
-        bankCardRepository.save(fromCard);
-        bankCardRepository.save(toCard);
+    // Карта без частей, но без блокировки: части выключили после проверки режима
+    private void checkLocked(BankCard card, Map<Long, BankCard> lockedCards) {
+        if (!card.isStriped() && !lockedCards.containsKey(card.getId())) {
+            throw new BadRequestException("Части баланса карты изменились, повторите перевод");
+        }
+    }
+
+    private void publishTransfer(BankCard fromCard, BankCard toCard, long amount) {
+        eventPublisher.publishEvent(CardChangedEvent.balanceChanged(fromCard, -amount));
+        eventPublisher.publishEvent(CardChangedEvent.balanceChanged(toCard, amount));
+    }
+
+    // Перевод через движок балансов: без блокировок строк, подтверждение после записи журнала.
+    // Карты проверяются в короткой транзакции, ожидание движка - уже без нее; события публикуются без транзакции
+    // и доставляются слушателям сразу. Ожидание очереди и записи журнала учитывается как lockWait.
+    private void transferInEngine(TransferEvent event, Long fromCardId, Long toCardId, long amount) {
+        event.mode = "engine";
+        TransferCards cards = new TransactionTemplate(transactionManager).execute(status ->
+                loadTransferCards(fromCardId, toCardId, amount));
+        BankCard fromCard = cards.from();
+        BankCard toCard = cards.to();
+        if (fromCard.isStriped() || toCard.isStriped()) {
+            throw new BadRequestException("Карты с частями баланса не поддерживаются движком балансов");
+        }
+        long startedAt = System.nanoTime();
+        try {
+            balanceEngine.transfer(fromCard.getId(), toCard.getId(), amount).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        } finally {
+            event.lockWait += System.nanoTime() - startedAt;
+        }
+        publishTransfer(fromCard, toCard, amount);
+    }
+
+    // Событие JFR записывается после завершения транзакции: в режиме row обновления строк
+    // (и ожидание их блокировок) выполняются при коммите, это время тоже входит в lockWait
+    private void commitTransferEvent(TransferEvent event, Long fromCardId, Long toCardId, long amount) {
+        if (!event.isEnabled()) {
+            return;
+        }
+        event.fromCardId = fromCardId;
+        event.toCardId = toCardId;
+        event.amountBucket = TransferEvent.amountBucket(amount);
+
+        if (!TransferEvent.OUTCOME_OK.equals(event.outcome)
+                || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            event.commit();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private long commitStartedAt;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                commitStartedAt = System.nanoTime();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (commitStartedAt != 0) {
+                    event.lockWait += System.nanoTime() - commitStartedAt;
+                }
+                if (status != STATUS_COMMITTED) {
+                    event.outcome = TransferEvent.OUTCOME_ROLLED_BACK;
+                }
+                event.commit();
+            }
+        });
+    }
+
+    // Проверка владельца и статусов перед постановкой перевода в пакетную очередь.
+    // Достаточность средств проверяется при применении пакета.
+    @Transactional(readOnly = true)
+    public void validateTransfer(Long fromCardId, Long toCardId, long amount) {
+        loadTransferCards(fromCardId, toCardId, amount);
+    }
+
+    // Применение пакета переводов одной транзакцией: карты блокируются один раз в порядке id,
+    // переводы проверяются по очереди на текущем балансе, в базу пишется итоговое изменение по каждой карте.
+    // Отклоненные переводы получают свою ошибку и не влияют на остальные.
+    @Transactional
+    public void applyTransferBatch(List<TransferBatcher.PendingTransfer> batch) {
+        Set<Long> cardIds = new TreeSet<>();
+        for (TransferBatcher.PendingTransfer transfer : batch) {
+            cardIds.add(transfer.getFromCardId());
+            cardIds.add(transfer.getToCardId());
+        }
+
+        Map<Long, BankCard> cards = new HashMap<>();
+        for (BankCard card : bankCardRepository.findAllByIdInForUpdate(cardIds)) {
+            cards.put(card.getId(), card);
+        }
+        stripedBalanceService.loadBalances(cards.values());
+
+        Map<Long, Long> available = new HashMap<>();
+        cards.forEach((id, card) -> available.put(id, card.getAvailableBalance()));
+        Map<Long, Long> deltas = new HashMap<>();
+
+        for (TransferBatcher.PendingTransfer transfer : batch) {
+            BankCard fromCard = cards.get(transfer.getFromCardId());
+            BankCard toCard = cards.get(transfer.getToCardId());
+            long amount = transfer.getAmount();
+            try {
+                if (fromCard == null || toCard == null) {
+                    throw new ResourceNotFoundException("Карта не найдена");
+                }
+                checkActive(fromCard, toCard);
+                if (available.get(fromCard.getId()) < amount) {
+                    throw new BadRequestException("Недостаточно средств на карте отправителя");
+                }
+            } catch (RuntimeException e) {
+                transfer.setFailure(e);
+                continue;
+            }
+
+            available.merge(fromCard.getId(), -amount, Long::sum);
+            available.merge(toCard.getId(), amount, Long::sum);
+            deltas.merge(fromCard.getId(), -amount, Long::sum);
+            deltas.merge(toCard.getId(), amount, Long::sum);
+        }
+
+        deltas.forEach((cardId, delta) -> {
+            BankCard card = cards.get(cardId);
+            if (delta == 0) {
+                return;
+            }
+            if (!card.isStriped()) {
+                card.setBalance(card.getBalance() + delta);
+            } else if (delta > 0) {
+                stripedBalanceService.credit(card, delta);
+            } else {
+                stripedBalanceService.debit(card, -delta);
+            }
+            eventPublisher.publishEvent(CardChangedEvent.balanceChanged(card, delta));
+        });
     }
 
     // Получить реальный номер карты (только для администратора, с осторожностью)
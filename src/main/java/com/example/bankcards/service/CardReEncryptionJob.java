@@ -0,0 +1,219 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.CardKeyRotation;
+import com.example.bankcards.repository.CardKeyRotationRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+// Фоновое перешифрование номеров карт на активный ключ (EncryptionService) без остановки приложения.
+// Карты проходятся порциями по id (keyset); каждая порция - короткая транзакция, блокирующая только свои строки,
+// вместе с ней сохраняется прогресс в card_key_rotations, поэтому после остановки или рестарта задача продолжает
+// с последнего id. Скорость ограничена rows-per-second, чтобы проход не отнимал у primary ресурсы рабочей нагрузки.
+@Service
+public class CardReEncryptionJob {
+
+    private static final Logger log = LoggerFactory.getLogger(CardReEncryptionJob.class);
+
+    private static final String SELECT_CHUNK_SQL =
+            "SELECT id, card_number, card_number_hash FROM bank_cards WHERE id > ? ORDER BY id LIMIT ?";
+    // Строка обновляется, только если номер не изменился с момента чтения порции
+    private static final String UPDATE_CARD_SQL =
+            "UPDATE bank_cards SET card_number = ?, card_number_hash = ? WHERE id = ? AND card_number = ?";
+    // Проверка перед отметкой о завершении: карты, пропущенные проходом (номер изменился между чтением
+    // порции и UPDATE или карта сохранена позади курсора), ищутся по всей таблице
+    private static final String COUNT_REMAINING_SQL =
+            "SELECT COUNT(*) FROM bank_cards WHERE card_number NOT LIKE ? OR card_number_hash IS NULL";
+    private static final String UPDATE_PROGRESS_SQL =
+            "UPDATE card_key_rotations SET last_card_id = ?, cards_reencrypted = cards_reencrypted + ?, " +
+            "updated_at = ? WHERE key_id = ?";
+
+    private record CardRow(long id, String cardNumber, String cardNumberHash) {}
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EncryptionService encryptionService;
+
+    @Autowired
+    private CardKeyRotationRepository rotationRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.encryption.re-encrypt.chunk-size:500}")
+    private int chunkSize;
+
+    // 0 - без ограничения
+    @Value("${app.encryption.re-encrypt.rows-per-second:2000}")
+    private int rowsPerSecond;
+
+    @Value("${app.encryption.re-encrypt.on-startup:false}")
+    private boolean onStartup;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "card-re-encryption");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private Future<?> running;
+    private volatile boolean stopRequested;
+
+    // Запуск после готовности: прием трафика не ждет прохода по всем картам
+    @EventListener(ApplicationReadyEvent.class)
+    public void startOnReady() {
+        if (onStartup) {
+            start();
+        }
+    }
+
+    // false - задача уже идет
+    public synchronized boolean start() {
+        if (isRunning()) {
+            return false;
+        }
+        stopRequested = false;
+        running = executor.submit(this::run);
+        return true;
+    }
+
+    // Остановка после текущей порции; прогресс сохранен, следующий start() продолжит с него
+    public void stop() {
+        stopRequested = true;
+    }
+
+    public synchronized boolean isRunning() {
+        return running != null && !running.isDone();
+    }
+
+    // Прогресс перешифрования на активный ключ; пусто, если задача для него не запускалась
+    public Optional<CardKeyRotation> getProgress() {
+        return rotationRepository.findById(encryptionService.getActiveKeyId());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stopRequested = true;
+        executor.shutdownNow();
+    }
+
+    void run() {
+        int keyId = encryptionService.getActiveKeyId();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        try {
+            CardKeyRotation rotation = transactionTemplate.execute(status -> rotationRepository.findById(keyId)
+                    .orElseGet(() -> rotationRepository.save(new CardKeyRotation(keyId))));
+            if (rotation.isCompleted()) {
+                log.info("Перешифрование на ключ {} уже завершено", keyId);
+                return;
+            }
+
+            long lastCardId = rotation.getLastCardId();
+            long passStartedAt = lastCardId;
+            long passUpdated = 0;
+            long minNanosPerRow = rowsPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / rowsPerSecond : 0;
+            log.info("Перешифрование на ключ {}: с карты id > {}, порции по {}, до {} строк/с",
+                    keyId, lastCardId, chunkSize, rowsPerSecond > 0 ? rowsPerSecond : "∞");
+
+            while (!stopRequested && !Thread.currentThread().isInterrupted()) {
+                long chunkStartedAt = System.nanoTime();
+                List<CardRow> rows = jdbcTemplate.query(SELECT_CHUNK_SQL,
+                        (resultSet, rowNum) -> new CardRow(resultSet.getLong(1), resultSet.getString(2), resultSet.getString(3)),
+                        lastCardId, chunkSize);
+                if (rows.isEmpty()) {
+                    long remaining = jdbcTemplate.queryForObject(COUNT_REMAINING_SQL, Long.class,
+                            encryptionService.getActiveKeyPrefix() + "%");
+                    if (remaining > 0) {
+                        // Полный проход ничего не изменил - оставшиеся карты не расшифровываются ни одним ключом
+                        if (passStartedAt == 0 && passUpdated == 0) {
+                            log.error("Перешифрование на ключ {} не завершено: {} карт не удалось перешифровать",
+                                    keyId, remaining);
+                            return;
+                        }
+                        log.info("Перешифрование на ключ {}: осталось {} карт со старым ключом или без хеша, " +
+                                "повторный проход с начала", keyId, remaining);
+                        lastCardId = 0;
+                        passStartedAt = 0;
+                        passUpdated = 0;
+                        continue;
+                    }
+                    transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update(
+                            "UPDATE card_key_rotations SET completed_at = ?, updated_at = ? WHERE key_id = ?",
+                            Timestamp.valueOf(LocalDateTime.now()), Timestamp.valueOf(LocalDateTime.now()), keyId));
+                    log.info("Перешифрование на ключ {} завершено", keyId);
+                    return;
+                }
+
+                // Расшифровка и шифрование - до транзакции, чтобы строки были заблокированы только на время UPDATE
+                List<Object[]> updates = reEncrypt(rows);
+                long chunkLastId = rows.get(rows.size() - 1).id();
+                Integer updated = transactionTemplate.execute(status -> {
+                    int count = 0;
+                    for (int rowCount : jdbcTemplate.batchUpdate(UPDATE_CARD_SQL, updates)) {
+                        count += rowCount == Statement.SUCCESS_NO_INFO ? 1 : rowCount;
+                    }
+                    jdbcTemplate.update(UPDATE_PROGRESS_SQL, chunkLastId, count,
+                            Timestamp.valueOf(LocalDateTime.now()), keyId);
+                    return count;
+                });
+                lastCardId = chunkLastId;
+                passUpdated += updated;
+                log.debug("Перешифрование на ключ {}: до id {}, перешифровано {}", keyId, lastCardId, updated);
+
+                long waitNanos = rows.size() * minNanosPerRow - (System.nanoTime() - chunkStartedAt);
+                if (waitNanos > 0) {
+                    TimeUnit.NANOSECONDS.sleep(waitNanos);
+                }
+            }
+            log.info("Перешифрование на ключ {} остановлено на карте id {}", keyId, lastCardId);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.error("Перешифрование на ключ {} прервано ошибкой", keyId, e);
+        }
+    }
+
+    // Параметры UPDATE для карт, зашифрованных не активным ключом или без хеша номера
+    private List<Object[]> reEncrypt(List<CardRow> rows) {
+        List<Object[]> updates = new ArrayList<>(rows.size());
+        for (CardRow row : rows) {
+            boolean current = encryptionService.isCurrent(row.cardNumber());
+            if (current && row.cardNumberHash() != null) {
+                continue;
+            }
+            try {
+                String cardNumber = encryptionService.decrypt(row.cardNumber());
+                updates.add(new Object[]{
+                        current ? row.cardNumber() : encryptionService.encrypt(cardNumber),
+                        encryptionService.lookupHash(cardNumber),
+                        row.id(),
+                        row.cardNumber()
+                });
+            } catch (RuntimeException e) {
+                log.warn("Номер карты id {} не расшифрован ни одним ключом, карта пропущена", row.id());
+            }
+        }
+        return updates;
+    }
+}
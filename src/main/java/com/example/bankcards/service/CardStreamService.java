@@ -0,0 +1,375 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.BankCard;
+import com.example.bankcards.event.CardChangedEvent;
+import com.example.bankcards.event.CardUpdateBus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+// Потоки изменений карт пользователя по Server-Sent Events (GET /api/cards/my/stream) вместо опроса /api/cards/my.
+// Соединение держится асинхронным запросом сервлета: поток запроса освобождается сразу, отправку делают свои пулы.
+// Буфер соединения - ограниченное множество id изменившихся карт: несколько изменений одной карты до отправки
+// схлопываются в одно, клиенту уходит текущее состояние карты из базы (повторная доставка ничего не портит).
+// Если изменилось больше карт, чем помещается в буфер, клиенту уходит одно событие resync - перечитать /api/cards/my.
+// Чтение из базы и запись в соединение - в разных пулах: медленная база не задерживает запись, а медленный клиент
+// занимает поток записи не дольше send-timeout - после этого соединение снимается и больше ничего не получает.
+@Component
+public class CardStreamService {
+
+    public static final String CARD_EVENT = "card";
+    public static final String CARD_DELETED_EVENT = "card-deleted";
+    public static final String RESYNC_EVENT = "resync";
+
+    private static final Logger log = LoggerFactory.getLogger(CardStreamService.class);
+
+    // Пауза перед повторной передачей в занятый пул записи
+    private static final long SENDER_RETRY_MS = 50;
+
+    @Autowired
+    private CardUpdateBus cardUpdateBus;
+
+    @Autowired
+    private BankCardService bankCardService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.card-stream.timeout:30m}")
+    private Duration timeout;
+
+    @Value("${app.card-stream.heartbeat-interval:15s}")
+    private Duration heartbeatInterval;
+
+    @Value("${app.card-stream.buffer-size:64}")
+    private int bufferSize;
+
+    @Value("${app.card-stream.max-connections-per-user:3}")
+    private int maxConnectionsPerUser;
+
+    @Value("${app.card-stream.loader-threads:2}")
+    private int loaderThreads;
+
+    @Value("${app.card-stream.sender-threads:2}")
+    private int senderThreads;
+
+    @Value("${app.card-stream.max-sender-threads:32}")
+    private int maxSenderThreads;
+
+    @Value("${app.card-stream.send-timeout:10s}")
+    private Duration sendTimeout;
+
+    private final Map<Long, Deque<Connection>> connectionsByUser = new ConcurrentHashMap<>();
+    private final AtomicInteger connectionCount = new AtomicInteger();
+    // Heartbeat и контроль зависших отправок - отдельный поток, не зависящий от занятости пулов
+    private ScheduledExecutorService timer;
+    // Чтение карт из базы и подготовка событий
+    private ExecutorService loader;
+    // Запись в соединения. Растет до max-sender-threads, чтобы зависшие клиенты не занимали все потоки;
+    // без свободного потока запись повторяется через SENDER_RETRY_MS
+    private ThreadPoolExecutor sender;
+    private Counter sendTimeouts;
+
+    @PostConstruct
+    public void init() {
+        timer = Executors.newSingleThreadScheduledExecutor(daemonThreads("card-stream-timer-"));
+        loader = Executors.newFixedThreadPool(loaderThreads, daemonThreads("card-stream-loader-"));
+        sender = new ThreadPoolExecutor(senderThreads, Math.max(senderThreads, maxSenderThreads),
+                60, TimeUnit.SECONDS, new SynchronousQueue<>(), daemonThreads("card-stream-sender-"));
+
+        long heartbeatMs = heartbeatInterval.toMillis();
+        timer.scheduleWithFixedDelay(this::heartbeat, heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+        long checkMs = Math.max(1, sendTimeout.toMillis() / 2);
+        timer.scheduleWithFixedDelay(this::dropStalledSends, checkMs, checkMs, TimeUnit.MILLISECONDS);
+
+        Gauge.builder("card.stream.connections", connectionCount, AtomicInteger::get)
+                .description("Открытые потоки изменений карт")
+                .register(meterRegistry);
+        sendTimeouts = Counter.builder("card.stream.send.timeouts")
+                .description("Потоки карт, снятые из-за записи дольше send-timeout")
+                .register(meterRegistry);
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // Новый поток карт пользователя; сверх max-connections-per-user закрывается самый старый
+    // (обычно это соединение, обрыв которого сервер еще не заметил)
+    public <T> SseEmitter open(long userId, Function<BankCard, T> mapper) {
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        Connection connection = new Connection(userId, emitter, mapper);
+        connection.unsubscribe = cardUpdateBus.subscribe(userId, connection::onCardChanged);
+
+        List<Connection> evicted = new ArrayList<>(1);
+        connectionsByUser.compute(userId, (id, connections) -> {
+            Deque<Connection> result = connections != null ? connections : new ConcurrentLinkedDeque<>();
+            result.addLast(connection);
+            while (result.size() > maxConnectionsPerUser) {
+                evicted.add(result.pollFirst());
+            }
+            return result;
+        });
+        connectionCount.incrementAndGet();
+
+        emitter.onCompletion(() -> close(connection));
+        emitter.onTimeout(() -> end(connection));
+        emitter.onError(error -> close(connection));
+        evicted.forEach(this::end);
+        return emitter;
+    }
+
+    public int getConnectionCount() {
+        return connectionCount.get();
+    }
+
+    // Завершение соединения сервером; клиент переподключается.
+    // Во время записи emitter завершит поток записи, когда она вернется: complete ждет ту же блокировку, что и send
+    private void end(Connection connection) {
+        close(connection);
+        if (connection.sendStartedAt == 0) {
+            connection.emitter.complete();
+        }
+    }
+
+    private void close(Connection connection) {
+        if (!connection.closed.compareAndSet(false, true)) {
+            return;
+        }
+        connection.unsubscribe.run();
+        connectionsByUser.computeIfPresent(connection.userId, (id, connections) -> {
+            connections.remove(connection);
+            return connections.isEmpty() ? null : connections;
+        });
+        connectionCount.decrementAndGet();
+    }
+
+    // Комментарий в поток: прокси не закрывают простаивающее соединение, а оборванное обнаруживается при записи
+    private void heartbeat() {
+        connectionsByUser.values().forEach(connections -> connections.forEach(Connection::requestHeartbeat));
+    }
+
+    // Соединение, запись в которое идет дольше send-timeout, снимается сразу: новые изменения в него не копятся,
+    // лимит соединений пользователя освобождается. Emitter завершается потоком записи, когда запись вернется
+    private void dropStalledSends() {
+        long now = System.nanoTime();
+        long timeoutNanos = sendTimeout.toNanos();
+        connectionsByUser.values().forEach(connections -> connections.forEach(connection -> {
+            long startedAt = connection.sendStartedAt;
+            if (startedAt != 0 && now - startedAt > timeoutNanos) {
+                log.debug("Поток карт пользователя {} снят: запись дольше {}", connection.userId, sendTimeout);
+                sendTimeouts.increment();
+                close(connection);
+            }
+        }));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        connectionsByUser.values().forEach(connections -> connections.forEach(this::end));
+        timer.shutdownNow();
+        loader.shutdownNow();
+        sender.shutdownNow();
+    }
+
+    // Одно SSE-соединение. Состояние буфера меняется под монитором соединения. Отправка - цепочка
+    // "чтение в пуле loader -> запись в пуле sender -> снова чтение", пока буфер не опустеет;
+    // не больше одной цепочки на соединение одновременно (флаг scheduled)
+    private final class Connection {
+
+        final long userId;
+        final SseEmitter emitter;
+        final Function<BankCard, ?> mapper;
+        final AtomicBoolean closed = new AtomicBoolean();
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        // Начало текущей записи (System.nanoTime), 0 - запись не идет
+        volatile long sendStartedAt;
+        Runnable unsubscribe;
+
+        private Set<Long> changedCards = new LinkedHashSet<>();
+        private boolean resync;
+        private boolean heartbeat;
+
+        Connection(long userId, SseEmitter emitter, Function<BankCard, ?> mapper) {
+            this.userId = userId;
+            this.emitter = emitter;
+            this.mapper = mapper;
+        }
+
+        // Вызывается в потоке, закоммитившем изменение: только отметка в буфере
+        void onCardChanged(CardChangedEvent event) {
+            synchronized (this) {
+                if (resync) {
+                    return;
+                }
+                if (changedCards.size() >= bufferSize && !changedCards.contains(event.cardId())) {
+                    changedCards.clear();
+                    resync = true;
+                } else {
+                    changedCards.add(event.cardId());
+                }
+            }
+            schedule();
+        }
+
+        void requestHeartbeat() {
+            synchronized (this) {
+                heartbeat = true;
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            if (!closed.get() && scheduled.compareAndSet(false, true)) {
+                load();
+            }
+        }
+
+        private void load() {
+            try {
+                loader.execute(this::prepare);
+            } catch (RejectedExecutionException e) {
+                // Пул остановлен вместе с приложением
+                scheduled.set(false);
+            }
+        }
+
+        // Забирает буфер и готовит события; чтение карт из базы - здесь, а не в потоке записи
+        private void prepare() {
+            try {
+                if (closed.get()) {
+                    finish(null);
+                    return;
+                }
+                Set<Long> cardIds;
+                boolean sendResync;
+                boolean sendHeartbeat;
+                synchronized (this) {
+                    cardIds = changedCards;
+                    sendResync = resync;
+                    sendHeartbeat = heartbeat;
+                    if (cardIds.isEmpty() && !sendResync && !sendHeartbeat) {
+                        scheduled.set(false);
+                        return;
+                    }
+                    changedCards = new LinkedHashSet<>();
+                    resync = false;
+                    heartbeat = false;
+                }
+
+                List<SseEmitter.SseEventBuilder> events = new ArrayList<>();
+                if (sendResync) {
+                    events.add(SseEmitter.event().name(RESYNC_EVENT).data(Map.of()));
+                } else if (!cardIds.isEmpty()) {
+                    Set<Long> deleted = new HashSet<>(cardIds);
+                    for (BankCard card : bankCardService.getUserCardsByIds(userId, cardIds)) {
+                        deleted.remove(card.getId());
+                        events.add(SseEmitter.event().name(CARD_EVENT).data(mapper.apply(card)));
+                    }
+                    for (Long cardId : deleted) {
+                        events.add(SseEmitter.event().name(CARD_DELETED_EVENT).data(Map.of("id", cardId)));
+                    }
+                } else {
+                    events.add(SseEmitter.event().comment("heartbeat"));
+                }
+                submit(events);
+            } catch (RuntimeException e) {
+                log.warn("Ошибка подготовки изменений карт пользователю {}", userId, e);
+                finish(e);
+            }
+        }
+
+        private void submit(List<SseEmitter.SseEventBuilder> events) {
+            try {
+                sender.execute(() -> write(events));
+            } catch (RejectedExecutionException e) {
+                if (sender.isShutdown()) {
+                    scheduled.set(false);
+                    return;
+                }
+                // Все потоки записи заняты
+                try {
+                    timer.schedule(() -> submit(events), SENDER_RETRY_MS, TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException stopped) {
+                    scheduled.set(false);
+                }
+            }
+        }
+
+        private void write(List<SseEmitter.SseEventBuilder> events) {
+            try {
+                sendStartedAt = System.nanoTime();
+                for (SseEmitter.SseEventBuilder event : events) {
+                    if (closed.get()) {
+                        break;
+                    }
+                    emitter.send(event);
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Клиент отключился или соединение уже завершено
+                log.debug("Поток карт пользователя {} закрыт при отправке: {}", userId, e.toString());
+                finish(e);
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Ошибка отправки изменений карт пользователю {}", userId, e);
+                finish(e);
+                return;
+            } finally {
+                sendStartedAt = 0;
+            }
+            if (closed.get()) {
+                // Снято по send-timeout, пока шла запись
+                finish(null);
+                return;
+            }
+            load();
+        }
+
+        // Конец цепочки на закрытом или сломанном соединении
+        private void finish(Exception error) {
+            scheduled.set(false);
+            if (error != null) {
+                emitter.completeWithError(error);
+            } else {
+                emitter.complete();
+            }
+            close(this);
+        }
+    }
+}
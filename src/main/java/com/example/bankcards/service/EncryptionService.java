@@ -1,61 +1,248 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.monitoring.CryptoEvent;
+import com.example.bankcards.monitoring.RequestTiming;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
 import java.util.Base64;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
 
+// Шифрование номеров карт версионированными ключами.
+// Новые записи: "v<id ключа>:" + Base64(IV || шифртекст AES-GCM с тегом). Значения без префикса записаны
+// до появления версий: AES/ECB ключом app.encryption-key (ключ 0), они читаются до перешифрования (CardReEncryptionJob).
+// Поиск дубликатов номера идет по HMAC номера (lookupHash): шифртекст GCM для одного номера каждый раз разный.
 @Service
 public class EncryptionService {
 
+    public static final int LEGACY_KEY_ID = 0;
+
     private static final String ALGORITHM = "AES";
-    private static final String TRANSFORMATION = "AES/ECB/PKCS5Padding";
+    private static final String LEGACY_TRANSFORMATION = "AES/ECB/PKCS5Padding";
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final String LOOKUP_ALGORITHM = "HmacSHA256";
+    private static final String VERSION_PREFIX = "v";
+    private static final char VERSION_SEPARATOR = ':';
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_LENGTH_BITS = 128;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
 
+    // Cipher на поток: getInstance ищет провайдера при каждом вызове, а init с ключом и IV дешевый.
+    // Маскирование страниц идет параллельно (ParallelPageMapper), поэтому экземпляр не может быть общим
+    private static final ThreadLocal<Cipher> CIPHER = ThreadLocal.withInitial(() -> cipher(TRANSFORMATION));
+    private static final ThreadLocal<Cipher> LEGACY_CIPHER = ThreadLocal.withInitial(() -> cipher(LEGACY_TRANSFORMATION));
+
+    // Ключ 0: значения без префикса версии
     @Value("${app.encryption-key:defaultEncryptionKey123}")
     private String encryptionKey;
 
-    private SecretKeySpec getSecretKey() {
+    // Ключи AES-GCM в виде "id:секрет,id:секрет"; ключ AES-256 - SHA-256 от секрета
+    @Value("${app.encryption.keys:1:defaultEncryptionKey123}")
+    private String keys;
+
+    @Value("${app.encryption.active-key-id:1}")
+    private int activeKeyId;
+
+    @Value("${app.encryption.lookup-key:defaultLookupKey123}")
+    private String lookupKey;
+
+    private SecretKeySpec legacyKey;
+    private final Map<Integer, SecretKeySpec> keysById = new HashMap<>();
+    private SecretKeySpec lookupKeySpec;
+
+    @PostConstruct
+    public void init() {
         byte[] keyBytes = encryptionKey.getBytes(StandardCharsets.UTF_8);
         byte[] finalKey = new byte[16];
         System.arraycopy(keyBytes, 0, finalKey, 0, Math.min(keyBytes.length, 16));
-        return new SecretKeySpec(finalKey, ALGORITHM);
+        legacyKey = new SecretKeySpec(finalKey, ALGORITHM);
+
+        keysById.clear();
+        for (String entry : keys.split(",")) {
+            int separator = entry.indexOf(VERSION_SEPARATOR);
+            if (separator <= 0) {
+                throw new IllegalStateException("Ключ шифрования должен быть задан как id:секрет");
+            }
+            int keyId = Integer.parseInt(entry.substring(0, separator).trim());
+            if (keyId <= LEGACY_KEY_ID) {
+                throw new IllegalStateException("Id ключа шифрования должен быть больше " + LEGACY_KEY_ID);
+            }
+            keysById.put(keyId, new SecretKeySpec(sha256(entry.substring(separator + 1).trim()), ALGORITHM));
+        }
+        if (!keysById.containsKey(activeKeyId)) {
+            throw new IllegalStateException("Активный ключ шифрования " + activeKeyId + " не задан в app.encryption.keys");
+        }
+        lookupKeySpec = new SecretKeySpec(lookupKey.getBytes(StandardCharsets.UTF_8), LOOKUP_ALGORITHM);
+    }
+
+    public int getActiveKeyId() {
+        return activeKeyId;
+    }
+
+    // Префикс значений, зашифрованных активным ключом
+    public String getActiveKeyPrefix() {
+        return VERSION_PREFIX + activeKeyId + VERSION_SEPARATOR;
+    }
+
+    // Id ключа, которым зашифровано значение; LEGACY_KEY_ID - значение без префикса версии
+    public int keyIdOf(String encryptedData) {
+        if (encryptedData == null || !encryptedData.startsWith(VERSION_PREFIX)) {
+            return LEGACY_KEY_ID;
+        }
+        int separator = encryptedData.indexOf(VERSION_SEPARATOR);
+        if (separator < 0) {
+            return LEGACY_KEY_ID;
+        }
+        try {
+            return Integer.parseInt(encryptedData, VERSION_PREFIX.length(), separator, 10);
+        } catch (NumberFormatException e) {
+            return LEGACY_KEY_ID;
+        }
+    }
+
+    // Значение зашифровано активным ключом и перешифрования не требует
+    public boolean isCurrent(String encryptedData) {
+        return keyIdOf(encryptedData) == activeKeyId;
+    }
+
+    // HMAC-SHA256 номера в hex: детерминированный, поэтому по нему ищутся дубликаты (bank_cards.card_number_hash)
+    public String lookupHash(String data) {
+        try {
+            Mac mac = Mac.getInstance(LOOKUP_ALGORITHM);
+            mac.init(lookupKeySpec);
+            return HexFormat.of().formatHex(mac.doFinal(data.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("Ошибка при вычислении хеша номера", e);
+        }
+    }
+
+    // Шифртекст ключом 0: для поиска дубликатов среди еще не перешифрованных карт
+    String encryptLegacy(String data) {
+        try {
+            Cipher cipher = LEGACY_CIPHER.get();
+            cipher.init(Cipher.ENCRYPT_MODE, legacyKey);
+            return Base64.getEncoder().encodeToString(cipher.doFinal(data.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("Ошибка при шифровании данных", e);
+        }
     }
 
     public String encrypt(String data) {
+        RequestTiming.start(RequestTiming.Stage.CRYPTO);
+        CryptoEvent event = new CryptoEvent();
+        event.begin();
+        boolean success = false;
         try {
-            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
-            cipher.init(Cipher.ENCRYPT_MODE, getSecretKey());
+            byte[] iv = new byte[IV_LENGTH];
+            RANDOM.nextBytes(iv);
+            Cipher cipher = CIPHER.get();
+            cipher.init(Cipher.ENCRYPT_MODE, keysById.get(activeKeyId), new GCMParameterSpec(TAG_LENGTH_BITS, iv));
             byte[] encryptedData = cipher.doFinal(data.getBytes(StandardCharsets.UTF_8));
-            return Base64.getEncoder().encodeToString(encryptedData);
+            byte[] payload = ByteBuffer.allocate(IV_LENGTH + encryptedData.length).put(iv).put(encryptedData).array();
+            String result = VERSION_PREFIX + activeKeyId + VERSION_SEPARATOR + Base64.getEncoder().encodeToString(payload);
+            success = true;
+            return result;
         } catch (Exception e) {
             throw new RuntimeException("Ошибка при шифровании данных", e);
+        } finally {
+            RequestTiming.stop(RequestTiming.Stage.CRYPTO);
+            commit(event, "encrypt", success);
         }
     }
 
     public String decrypt(String encryptedData) {
+        RequestTiming.start(RequestTiming.Stage.CRYPTO);
+        CryptoEvent event = new CryptoEvent();
+        event.begin();
+        boolean success = false;
         try {
-            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
-            cipher.init(Cipher.DECRYPT_MODE, getSecretKey());
-            byte[] decodedData = Base64.getDecoder().decode(encryptedData);
-            byte[] decryptedData = cipher.doFinal(decodedData);
-            return new String(decryptedData, StandardCharsets.UTF_8);
+            int keyId = keyIdOf(encryptedData);
+            byte[] decryptedData;
+            if (keyId == LEGACY_KEY_ID) {
+                Cipher cipher = LEGACY_CIPHER.get();
+                cipher.init(Cipher.DECRYPT_MODE, legacyKey);
+                decryptedData = cipher.doFinal(Base64.getDecoder().decode(encryptedData));
+            } else {
+                SecretKeySpec key = keysById.get(keyId);
+                if (key == null) {
+                    throw new IllegalStateException("Ключ шифрования " + keyId + " не задан в app.encryption.keys");
+                }
+                byte[] payload = Base64.getDecoder().decode(encryptedData.substring(encryptedData.indexOf(VERSION_SEPARATOR) + 1));
+                Cipher cipher = CIPHER.get();
+                cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH_BITS, payload, 0, IV_LENGTH));
+                decryptedData = cipher.doFinal(payload, IV_LENGTH, payload.length - IV_LENGTH);
+            }
+            String result = new String(decryptedData, StandardCharsets.UTF_8);
+            success = true;
+            return result;
         } catch (Exception e) {
             throw new RuntimeException("Ошибка при дешифровании данных", e);
+        } finally {
+            RequestTiming.stop(RequestTiming.Stage.CRYPTO);
+            commit(event, "decrypt", success);
+        }
+    }
+
+    // Поля события заполняются только если JFR его запишет
+    private static void commit(CryptoEvent event, String operation, boolean success) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.success = success;
+            event.commit();
+        }
+    }
+
+    private static Cipher cipher(String transformation) {
+        try {
+            return Cipher.getInstance(transformation);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] sha256(String secret) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(secret.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Расшифрованное значение, если это номер карты, зашифрованный известным ключом; иначе - значение как есть.
+    // Одна расшифровка вместо isEncrypted + decrypt
+    public String decryptIfEncrypted(String data) {
+        if (data == null || data.trim().isEmpty()) {
+            return data;
+        }
+        try {
+            String decrypted = decrypt(data);
+            return decrypted.matches("\\d+") ? decrypted : data;
+        } catch (Exception e) {
+            return data;
         }
     }
 
-    // Упрощенный метод проверки - проверяем только Base64 формат
+    // Упрощенный метод проверки - значение расшифровывается одним из известных ключей
     public boolean isEncrypted(String data) {
         if (data == null || data.trim().isEmpty()) {
             return false;
         }
         try {
-            // Проверяем, что строка является валидным Base64
-            Base64.getDecoder().decode(data);
-            // Дополнительно проверяем, что после расшифровки получается что-то осмысленное
+            // Проверяем, что после расшифровки получается что-то осмысленное:
             //проверяем, что расшифрованные данные содержат только цифры
             String decrypted = decrypt(data);
             return decrypted.matches("\\d+");
@@ -0,0 +1,140 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.BankCard;
+import com.example.bankcards.entity.BankCardBalanceStripe;
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.exception.ResourceNotFoundException;
+import com.example.bankcards.repository.BankCardBalanceStripeRepository;
+import com.example.bankcards.repository.BankCardRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Баланс "горячих" карт (казначейство, сборные карты), разнесенный по нескольким строкам.
+// Зачисления выбирают случайную часть, поэтому параллельные переводы блокируют разные строки;
+// чтение суммирует части.
+@Service
+public class StripedBalanceService {
+
+    @Autowired
+    private BankCardRepository bankCardRepository;
+
+    @Autowired
+    private BankCardBalanceStripeRepository stripeRepository;
+
+    @Value("${app.balance-stripes.max-stripes:64}")
+    private int maxStripes;
+
+    // Балансом карт в памяти владеет движок, строки bank_cards меняются только его снимками
+    @Value("${app.balance-engine.enabled:false}")
+    private boolean balanceEngineEnabled;
+
+    // Включение, изменение числа частей или выключение (stripes = 0) для карты.
+    // Баланс собирается в одно значение и раскладывается заново. Строка карты и все части блокируются
+    // (PESSIMISTIC_WRITE) до коммита: переводы, прочитавшие прежнюю раскладку, ждут его и затем не находят
+    // своей части (см. credit), а переводы по строке карты блокируют ее до чтения и видят новую раскладку
+    // (BankCardService.lockRowModeCards)
+    @Transactional
+    public BankCard setStripes(Long cardId, int stripes) {
+        if (balanceEngineEnabled) {
+            throw new BadRequestException("Части баланса недоступны при включенном движке балансов");
+        }
+        if (stripes < 0 || stripes > maxStripes) {
+            throw new BadRequestException("Число частей баланса должно быть от 0 до " + maxStripes);
+        }
+
+        BankCard card = bankCardRepository.findByIdForUpdate(cardId)
+                .orElseThrow(() -> new ResourceNotFoundException("Карта не найдена"));
+
+        long total = card.getBalance();
+        for (BankCardBalanceStripe stripe : stripeRepository.findAllForUpdate(cardId)) {
+            total += stripe.getBalance();
+        }
+        stripeRepository.deleteByCardId(cardId);
+
+        if (stripes == 0) {
+            card.setBalance(total);
+            card.setStripedBalance(null);
+        } else {
+            List<BankCardBalanceStripe> newStripes = new ArrayList<>(stripes);
+            for (int i = 0; i < stripes; i++) {
+                newStripes.add(new BankCardBalanceStripe(cardId, i, i == 0 ? total : 0L));
+            }
+            stripeRepository.saveAll(newStripes);
+            card.setBalance(0L);
+            card.setStripedBalance(total);
+        }
+        card.setBalanceStripes(stripes);
+        return bankCardRepository.save(card);
+    }
+
+    // Зачисление на карту с частями баланса; строка самой карты не изменяется.
+    // Части нет - раскладку сменили после чтения карты: перевод откатывается, а не теряет сумму
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void credit(BankCard card, long amount) {
+        if (stripeRepository.credit(card.getId(), stripeFor(card), amount) != 1) {
+            throw new BadRequestException("Части баланса карты изменились, повторите перевод");
+        }
+    }
+
+    // Списание: сначала части по очереди начиная с "своей", без блокировки остальных.
+    // Если ни в одной части не хватает средств, все части блокируются и списание собирается из нескольких.
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void debit(BankCard card, long amount) {
+        int stripes = card.getBalanceStripes();
+        int start = stripeFor(card);
+        for (int i = 0; i < stripes; i++) {
+            if (stripeRepository.debitIfSufficient(card.getId(), (start + i) % stripes, amount) == 1) {
+                return;
+            }
+        }
+
+        List<BankCardBalanceStripe> locked = stripeRepository.findAllForUpdate(card.getId());
+        long available = locked.stream()
+                .mapToLong(BankCardBalanceStripe::getBalance)
+                .sum();
+        if (available < amount) {
+            throw new BadRequestException("Недостаточно средств на карте отправителя");
+        }
+
+        long remaining = amount;
+        for (BankCardBalanceStripe stripe : locked) {
+            if (remaining == 0) {
+                break;
+            }
+            long taken = Math.min(stripe.getBalance(), remaining);
+            stripe.setBalance(stripe.getBalance() - taken);
+            remaining -= taken;
+        }
+    }
+
+    // Подгружает суммы частей для карт в режиме частей одним запросом; для обычных карт запросов нет
+    public void loadBalances(Iterable<BankCard> cards) {
+        Map<Long, BankCard> striped = new HashMap<>();
+        for (BankCard card : cards) {
+            if (card.isStriped()) {
+                striped.put(card.getId(), card);
+            }
+        }
+        if (striped.isEmpty()) {
+            return;
+        }
+
+        for (Object[] row : stripeRepository.sumByCardIds(striped.keySet())) {
+            striped.get((Long) row[0]).setStripedBalance(((Number) row[1]).longValue());
+        }
+    }
+
+    // Случайная часть: параллельные переводы попадают в разные строки
+    private int stripeFor(BankCard card) {
+        return ThreadLocalRandom.current().nextInt(card.getBalanceStripes());
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.bankcards.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+// Групповая фиксация переводов: проверенные переводы копятся в очереди, и один поток применяет их
+// пакетами (до max-batch-size штук или max-wait-ms ожидания) в одной транзакции - один коммит
+// и одна запись WAL на пакет вместо одной на перевод.
+@Component
+// Не включается вместе с движком балансов: тот сам подтверждает переводы пачками
+@ConditionalOnExpression("${app.transfer-batching.enabled:false} and !${app.balance-engine.enabled:false}")
+public class TransferBatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(TransferBatcher.class);
+
+    private final Consumer<List<PendingTransfer>> applier;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final BlockingQueue<PendingTransfer> queue;
+    private final Thread worker;
+    private final DistributionSummary batchSize;
+    private final Counter rejected;
+    private final Counter withdrawn;
+    private volatile boolean running = true;
+
+    @Autowired
+    public TransferBatcher(BankCardService bankCardService,
+                           MeterRegistry meterRegistry,
+                           @Value("${app.transfer-batching.max-batch-size:64}") int maxBatchSize,
+                           @Value("${app.transfer-batching.max-wait-ms:2}") long maxWaitMs,
+                           @Value("${app.transfer-batching.queue-capacity:10000}") int queueCapacity) {
+        this(bankCardService::applyTransferBatch, meterRegistry, maxBatchSize, maxWaitMs, queueCapacity);
+    }
+
+    TransferBatcher(Consumer<List<PendingTransfer>> applier, MeterRegistry meterRegistry,
+                    int maxBatchSize, long maxWaitMs, int queueCapacity) {
+        this.applier = applier;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        Gauge.builder("transfer.batch.queue.depth", queue, BlockingQueue::size)
+                .description("Переводы, ожидающие пакетной фиксации")
+                .register(meterRegistry);
+        this.batchSize = DistributionSummary.builder("transfer.batch.size")
+                .description("Число переводов в зафиксированном пакете")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("transfer.batch.rejected")
+                .description("Переводы, отклоненные из-за переполнения очереди")
+                .register(meterRegistry);
+        this.withdrawn = Counter.builder("transfer.batch.withdrawn")
+                .description("Переводы, снятые с очереди по истечении ожидания ответа")
+                .register(meterRegistry);
+
+        this.worker = new Thread(this::run, "transfer-batcher");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    // Постановка перевода в очередь; при переполнении бросает RejectedExecutionException.
+    // Future завершается после коммита пакета: успешно или с ошибкой именно этого перевода.
+    public CompletableFuture<Void> submit(Long fromCardId, Long toCardId, long amount) {
+        return enqueue(fromCardId, toCardId, amount).result;
+    }
+
+    // Перевод с ожиданием результата не дольше timeoutMs. Перевод, который за это время не попал в пакет,
+    // снимается с очереди и отклоняется RejectedExecutionException: он не применен, повтор безопасен.
+    // Перевод, уже взятый в пакет, отменить нельзя - дожидаемся коммита пакета.
+    // Ошибка самого перевода - CompletionException, как у join()
+    public void transfer(Long fromCardId, Long toCardId, long amount, long timeoutMs) throws InterruptedException {
+        PendingTransfer transfer = enqueue(fromCardId, toCardId, amount);
+        try {
+            try {
+                transfer.result.get(timeoutMs, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (transfer.claimed.compareAndSet(false, true)) {
+                    queue.remove(transfer);
+                    withdrawn.increment();
+                    throw new RejectedExecutionException("Перевод не выполнен: очередь переводов не успела его обработать");
+                }
+                transfer.result.get();
+            }
+        } catch (ExecutionException e) {
+            throw new CompletionException(e.getCause());
+        }
+    }
+
+    private PendingTransfer enqueue(Long fromCardId, Long toCardId, long amount) {
+        PendingTransfer transfer = new PendingTransfer(fromCardId, toCardId, amount);
+        if (!running || !queue.offer(transfer)) {
+            rejected.increment();
+            throw new RejectedExecutionException("Очередь переводов переполнена");
+        }
+        return transfer;
+    }
+
+    private void run() {
+        List<PendingTransfer> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingTransfer first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                // Сначала забираем уже накопившееся, затем ждем остальных не дольше maxWait
+                queue.drainTo(batch, maxBatchSize - batch.size());
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingTransfer next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                }
+
+                // Переводы, снятые ожидающими запросами, в пакет не попадают
+                batch.removeIf(transfer -> !transfer.claimed.compareAndSet(false, true));
+                if (!batch.isEmpty()) {
+                    flush(batch);
+                }
+            } catch (InterruptedException e) {
+                running = false;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingTransfer> batch) {
+        try {
+            applier.accept(batch);
+        } catch (RuntimeException e) {
+            // Транзакция пакета не зафиксирована - ни один перевод не применен
+            log.error("Не удалось зафиксировать пакет из {} переводов", batch.size(), e);
+            batch.forEach(transfer -> transfer.result.completeExceptionally(e));
+            return;
+        }
+
+        batchSize.record(batch.size());
+        for (PendingTransfer transfer : batch) {
+            if (transfer.failure == null) {
+                transfer.result.complete(null);
+            } else {
+                transfer.result.completeExceptionally(transfer.failure);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // Новые переводы не принимаются, уже поставленные фиксируются
+        running = false;
+        worker.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    // Перевод в очереди; failure заполняется при применении пакета.
+    // claimed забирает первым либо поток пакетов (перевод применяется), либо ожидающий запрос (перевод снят)
+    public static class PendingTransfer {
+        private final Long fromCardId;
+        private final Long toCardId;
+        private final long amount; // в копейках
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private RuntimeException failure;
+
+        PendingTransfer(Long fromCardId, Long toCardId, long amount) {
+            this.fromCardId = fromCardId;
+            this.toCardId = toCardId;
+            this.amount = amount;
+        }
+
+        public Long getFromCardId() { return fromCardId; }
+        public Long getToCardId() { return toCardId; }
+        public long getAmount() { return amount; }
+
+        public RuntimeException getFailure() { return failure; }
+        public void setFailure(RuntimeException failure) { this.failure = failure; }
+    }
+}
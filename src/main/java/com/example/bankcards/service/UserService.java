@@ -1,20 +1,49 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.KeysetPageResponse;
+import com.example.bankcards.dto.SignupRequest;
+import com.example.bankcards.dto.UserImportResponse;
+import com.example.bankcards.dto.UserSummaryResponse;
 import com.example.bankcards.entity.Role;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.exception.BadRequestException;
 import com.example.bankcards.repository.RoleRepository;
 import com.example.bankcards.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 public class UserService {
 
+    // Размер IN-списка при поиске занятых имен и email
+    private static final int IMPORT_LOOKUP_CHUNK = 1000;
+
+    public static final int MAX_DIRECTORY_PAGE_SIZE = 100;
+
     @Autowired
     private UserRepository userRepository;
 
@@ -24,6 +53,55 @@ public class UserService {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.user-import.hash-threads:0}")
+    private int importHashThreads;
+
+    @Value("${app.user-import.chunk-size:500}")
+    private int importChunkSize;
+
+    // Свой ограниченный пул для BCrypt при импорте: не общий ForkJoinPool, которым пользуются parallel streams
+    // остального приложения. Параллельные импорты делят его потоки
+    private ExecutorService importHashExecutor;
+
+    // Роли не меняются во время работы, поэтому держим их в памяти
+    private final Map<Role.RoleName, Role> roleCache = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        int threads = importHashThreads > 0 ? importHashThreads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger threadNumber = new AtomicInteger();
+        importHashExecutor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "user-import-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        importHashExecutor.shutdownNow();
+    }
+
+    // Загружаем после старта, а не в @PostConstruct: обучающий запуск для CDS/AOT не должен ходить в БД
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadRoles() {
+        roleRepository.findAll().forEach(role -> roleCache.put(role.getName(), role));
+    }
+
+    // Роль из кэша; при промахе (роль добавлена после старта) читаем из БД
+    public Role getRole(Role.RoleName name) {
+        Role role = roleCache.get(name);
+        if (role == null) {
+            role = roleRepository.findByName(name)
+                    .orElseThrow(() -> new RuntimeException("Error: Role " + name + " not found."));
+            roleCache.put(name, role);
+        }
+        return role;
+    }
+
     public boolean existsByUsername(String username) {
         return userRepository.existsByUsername(username);
     }
@@ -33,25 +111,134 @@ public class UserService {
     }
 
     public User createUser(String username, String email, String password) {
-        // Проверяем существование пользователя
-        if (userRepository.existsByUsername(username)) {
-            throw new BadRequestException("Username is already taken!");
-        }
+        Role userRole = getRole(Role.RoleName.USER);
 
-        // Проверяем email
-        if (userRepository.existsByEmail(email)) {
-            throw new BadRequestException("Email is already in use!");
+        // Дешевая проверка до хеширования: повторная регистрация не должна тратить BCrypt.
+        // Какое поле занято, уточняется только при совпадении
+        if (userRepository.existsByUsernameOrEmail(username, email)) {
+            throw userRepository.existsByUsername(username)
+                    ? new BadRequestException("Username is already taken!")
+                    : new BadRequestException("Email is already in use!");
         }
 
         // Создаем нового пользователя
         User user = new User(username, email, passwordEncoder.encode(password));
 
         Set<Role> roles = new HashSet<>();
-        Role userRole = roleRepository.findByName(Role.RoleName.USER)
-                .orElseThrow(() -> new RuntimeException("Error: Role USER not found."));
         roles.add(userRole);
-
         user.setRoles(roles);
-        return userRepository.save(user);
+
+        // Параллельная регистрация с тем же именем или email проходит проверки выше - ее отсекает ограничение БД
+        try {
+            return userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            throw translateDuplicate(username, email, e);
+        }
+    }
+
+    // Определяем, какое ограничение уникальности нарушено, чтобы вернуть прежние сообщения
+    private RuntimeException translateDuplicate(String username, String email, DataIntegrityViolationException e) {
+        if (userRepository.existsByUsername(username)) {
+            return new BadRequestException("Username is already taken!");
+        }
+        if (email != null && userRepository.existsByEmail(email)) {
+            return new BadRequestException("Email is already in use!");
+        }
+        return e;
+    }
+
+    // Страница справочника пользователей после afterId; лишняя строка в выборке показывает, есть ли следующая страница
+    @Transactional(readOnly = true)
+    public KeysetPageResponse<UserSummaryResponse> getUserDirectory(long afterId, String usernamePrefix, int size) {
+        if (size < 1 || size > MAX_DIRECTORY_PAGE_SIZE) {
+            throw new BadRequestException("Размер страницы должен быть от 1 до " + MAX_DIRECTORY_PAGE_SIZE);
+        }
+        String pattern = escapeLike(usernamePrefix == null ? "" : usernamePrefix) + "%";
+        List<UserSummaryResponse> rows = userRepository.findSummaries(afterId, pattern, Limit.of(size + 1));
+
+        if (rows.size() <= size) {
+            return new KeysetPageResponse<>(rows, size, null);
+        }
+        List<UserSummaryResponse> content = rows.subList(0, size);
+        return new KeysetPageResponse<>(new ArrayList<>(content), size, content.get(size - 1).getId());
+    }
+
+    // Символы шаблона LIKE в префиксе ищутся буквально
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    // Массовый импорт пользователей: дубликаты ищутся двумя запросами на весь файл, а не на каждую строку.
+    // Сохранение - порциями по chunk-size, каждая в своей транзакции: большой файл не держит одну длинную
+    // транзакцию, а порция, не прошедшая ограничения уникальности (имя заняли во время импорта), не отменяет остальные
+    public UserImportResponse importUsers(List<SignupRequest> requests) {
+        Set<String> takenUsernames = new HashSet<>();
+        Set<String> takenEmails = new HashSet<>();
+        for (int from = 0; from < requests.size(); from += IMPORT_LOOKUP_CHUNK) {
+            List<SignupRequest> chunk = requests.subList(from, Math.min(from + IMPORT_LOOKUP_CHUNK, requests.size()));
+            takenUsernames.addAll(userRepository.findExistingUsernames(
+                    chunk.stream().map(SignupRequest::getUsername).toList()));
+            takenEmails.addAll(userRepository.findExistingEmails(
+                    chunk.stream().map(SignupRequest::getEmail).toList()));
+        }
+
+        List<String> errors = new ArrayList<>();
+        List<SignupRequest> accepted = new ArrayList<>();
+        List<Integer> acceptedRows = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            SignupRequest request = requests.get(i);
+            if (!takenUsernames.add(request.getUsername())) {
+                errors.add("Строка " + (i + 1) + ": Username is already taken!");
+            } else if (!takenEmails.add(request.getEmail())) {
+                errors.add("Строка " + (i + 1) + ": Email is already in use!");
+            } else {
+                accepted.add(request);
+                acceptedRows.add(i + 1);
+            }
+        }
+
+        Role userRole = getRole(Role.RoleName.USER);
+        TransactionTemplate chunkTransaction = new TransactionTemplate(transactionManager);
+        int imported = 0;
+        for (int from = 0; from < accepted.size(); from += importChunkSize) {
+            int to = Math.min(from + importChunkSize, accepted.size());
+            List<User> users = hashPasswords(accepted.subList(from, to), userRole);
+            try {
+                chunkTransaction.executeWithoutResult(status -> userRepository.saveAll(users));
+                imported += users.size();
+            } catch (DataIntegrityViolationException e) {
+                errors.add("Строки " + acceptedRows.get(from) + "-" + acceptedRows.get(to - 1)
+                        + ": не сохранены, имя или email заняты во время импорта");
+            }
+        }
+        return new UserImportResponse(imported, errors);
+    }
+
+    // BCrypt - самая дорогая часть импорта, хэшируем параллельно в пуле импорта
+    private List<User> hashPasswords(List<SignupRequest> requests, Role userRole) {
+        List<Callable<User>> tasks = new ArrayList<>(requests.size());
+        for (SignupRequest request : requests) {
+            tasks.add(() -> {
+                User user = new User(request.getUsername(), request.getEmail(),
+                        passwordEncoder.encode(request.getPassword()));
+                user.addRole(userRole);
+                return user;
+            });
+        }
+        try {
+            List<User> users = new ArrayList<>(requests.size());
+            for (Future<User> future : importHashExecutor.invokeAll(tasks)) {
+                users.add(future.get());
+            }
+            return users;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Импорт пользователей прерван", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
     }
-}
\ No newline at end of file
+}
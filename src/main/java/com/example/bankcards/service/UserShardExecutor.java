@@ -0,0 +1,122 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.monitoring.RequestTiming;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Изменения карт одного пользователя выполняются по очереди в "почтовом ящике" его шарда
+// (однопоточный исполнитель, выбранный по id пользователя), разные пользователи - параллельно.
+// Переводы и блокировки одного пользователя не ждут блокировки строк друг друга и не ловят взаимные блокировки.
+@Component
+public class UserShardExecutor {
+
+    private final boolean enabled;
+    private final ThreadPoolExecutor[] shards;
+    private final Timer[] latency;
+
+    public UserShardExecutor(MeterRegistry meterRegistry,
+                             @Value("${app.user-shards.enabled:false}") boolean enabled,
+                             @Value("${app.user-shards.count:0}") int count,
+                             @Value("${app.user-shards.queue-capacity:1000}") int queueCapacity) {
+        this.enabled = enabled;
+        int shardCount = !enabled ? 0 : count > 0 ? count : Runtime.getRuntime().availableProcessors() * 2;
+        this.shards = new ThreadPoolExecutor[shardCount];
+        this.latency = new Timer[shardCount];
+
+        for (int i = 0; i < shardCount; i++) {
+            String name = "user-shard-" + i;
+            // AbortPolicy: при переполнении ящика сразу отказываем
+            shards[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                        Thread thread = new Thread(runnable, name);
+                        thread.setDaemon(true);
+                        return thread;
+                    }, new ThreadPoolExecutor.AbortPolicy());
+
+            String shard = String.valueOf(i);
+            Gauge.builder("card.mutations.shard.queue.depth", shards[i], executor -> executor.getQueue().size())
+                    .description("Изменения карт, ожидающие в ящике шарда")
+                    .tag("shard", shard)
+                    .register(meterRegistry);
+            latency[i] = Timer.builder("card.mutations.shard.latency")
+                    .description("Ожидание в ящике шарда и выполнение изменения")
+                    .tag("shard", shard)
+                    .register(meterRegistry);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Выполняет изменение в шарде пользователя и ждет результата. Ключ вычисляется только в шардированном режиме.
+    // Контекст безопасности, атрибуты запроса и сбор времени по стадиям переносятся в поток шарда.
+    // При переполнении ящика бросает RejectedExecutionException.
+    public <T> T execute(Supplier<Long> userIdSupplier, Supplier<T> task) {
+        if (!enabled) {
+            return task.get();
+        }
+
+        int shard = shardFor(userIdSupplier.get());
+        SecurityContext securityContext = SecurityContextHolder.getContext();
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        RequestTiming timing = RequestTiming.current();
+        long enqueuedAt = System.nanoTime();
+
+        CompletableFuture<T> result = CompletableFuture.supplyAsync(() -> {
+            SecurityContextHolder.setContext(securityContext);
+            RequestContextHolder.setRequestAttributes(requestAttributes);
+            RequestTiming.set(timing);
+            try {
+                return task.get();
+            } finally {
+                RequestTiming.clear();
+                RequestContextHolder.resetRequestAttributes();
+                SecurityContextHolder.clearContext();
+                latency[shard].record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+            }
+        }, shards[shard]);
+
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    public void execute(Supplier<Long> userIdSupplier, Runnable task) {
+        execute(userIdSupplier, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    int shardFor(Long userId) {
+        return Math.floorMod(Long.hashCode(userId) * 0x9E3779B9, shards.length);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ThreadPoolExecutor shard : shards) {
+            shard.shutdown();
+        }
+    }
+}
@@ -7,6 +7,7 @@ import com.example.bankcards.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
@@ -15,6 +16,7 @@ import java.time.format.DateTimeFormatter;
 import java.util.Random;
 
 @Component
+@Profile("!prod & !migrate")
 public class DataGenerator implements CommandLineRunner {
 
     @Autowired
@@ -58,7 +60,7 @@ public class DataGenerator implements CommandLineRunner {
                 String cardHolder = "TEST USER " + (i + 1);
 
                 try {
-                    bankCardService.createCard(cardNumber, cardHolder, expiryDate, 1L);
+                    bankCardService.createCard(cardNumber, cardHolder, expiryDate, adminUser.getId());
                     System.out.println("Создана тестовая карта: " + cardNumber);
                 } catch (Exception e) {
                     System.out.println("Карта уже существует: " + cardNumber);
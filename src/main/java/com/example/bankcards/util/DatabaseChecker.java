@@ -2,12 +2,14 @@ package com.example.bankcards.util;
 
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
 import java.util.Map;
 
 @Component
+@Profile("!prod & !migrate")
 public class DatabaseChecker implements CommandLineRunner {
 
     private final JdbcTemplate jdbcTemplate;
@@ -0,0 +1,273 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.service.EncryptionService;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Заполнение базы объемом, близким к боевому: миллионы пользователей и карт.
+// Пользователи делятся на порции; каждая порция генерируется, шифруется и загружается в своем потоке
+// и своей транзакции: в Postgres через COPY, в остальных базах пакетными INSERT.
+// Одинаковый seed дает одинаковые данные (кроме соли хеша пароля и значений id).
+@Component
+@ConditionalOnProperty(value = "app.seed.enabled", havingValue = "true")
+public class LargeDataSeeder implements CommandLineRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(LargeDataSeeder.class);
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private EncryptionService encryptionService;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Value("${app.seed.users:1000000}")
+    private long users;
+
+    @Value("${app.seed.seed:42}")
+    private long seed;
+
+    @Value("${app.seed.chunk-size:5000}")
+    private int chunkSize;
+
+    @Value("${app.seed.threads:0}")
+    private int threads;
+
+    @Value("${app.seed.username-prefix:seed}")
+    private String usernamePrefix;
+
+    @Value("${app.seed.password:password123}")
+    private String password;
+
+    @Override
+    public void run(String... args) throws Exception {
+        SeedDataGenerator generator = new SeedDataGenerator(seed, usernamePrefix, LocalDate.now());
+
+        long firstUserId;
+        long userRoleId;
+        List<Long> missingChunks = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection()) {
+            // Порция коммитится целиком, поэтому загружена, если есть ее первый пользователь.
+            // После сбоя прошлого запуска догружаются только недостающие порции
+            for (long from = 0; from < users; from += chunkSize) {
+                if (!exists(connection, "SELECT 1 FROM users WHERE username = ?", generator.username(from))) {
+                    missingChunks.add(from);
+                }
+            }
+            if (missingChunks.isEmpty()) {
+                log.info("Данные с префиксом '{}' уже загружены, заполнение пропущено", usernamePrefix);
+                return;
+            }
+            userRoleId = queryLong(connection, "SELECT id FROM roles WHERE name = 'USER'");
+            firstUserId = reserveUserIds(connection, users);
+        }
+
+        // Хеш пароля один на всех: BCrypt на каждого из миллионов пользователей занял бы часы
+        String passwordHash = passwordEncoder.encode(password);
+
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(poolSize);
+        AtomicLong cardsLoaded = new AtomicLong();
+        long startedAt = System.nanoTime();
+        log.info("Заполнение: {} пользователей порциями по {} (к загрузке порций: {}), потоков: {}",
+                users, chunkSize, missingChunks.size(), poolSize);
+        try {
+            List<Future<?>> chunks = new ArrayList<>();
+            for (long start : missingChunks) {
+                long end = Math.min(start + chunkSize, users);
+                chunks.add(executor.submit(() -> {
+                    cardsLoaded.addAndGet(loadChunk(generator, start, end, firstUserId, userRoleId, passwordHash));
+                    return null;
+                }));
+            }
+            for (Future<?> chunk : chunks) {
+                chunk.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        long seconds = Math.max(1, (System.nanoTime() - startedAt) / 1_000_000_000L);
+        log.info("Заполнение завершено: {} пользователей, {} карт за {} с", users, cardsLoaded.get(), seconds);
+    }
+
+    // Порция [start, end): генерация и шифрование номеров, затем загрузка одной транзакцией
+    private long loadChunk(SeedDataGenerator generator, long start, long end,
+                           long firstUserId, long userRoleId, String passwordHash) throws SQLException {
+        List<SeedDataGenerator.SeedUser> chunk = new ArrayList<>((int) (end - start));
+        List<String> encryptedPans = new ArrayList<>();
+        List<String> panHashes = new ArrayList<>();
+        for (long index = start; index < end; index++) {
+            SeedDataGenerator.SeedUser user = generator.user(index);
+            chunk.add(user);
+            for (SeedDataGenerator.SeedCard card : user.cards()) {
+                encryptedPans.add(encryptionService.encrypt(card.pan()));
+                panHashes.add(encryptionService.lookupHash(card.pan()));
+            }
+        }
+
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                if (isPostgres(connection)) {
+                    copy(connection, chunk, encryptedPans, panHashes, firstUserId, userRoleId, passwordHash);
+                } else {
+                    batchInsert(connection, chunk, encryptedPans, panHashes, firstUserId, userRoleId, passwordHash);
+                }
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+        return encryptedPans.size();
+    }
+
+    private void copy(Connection connection, List<SeedDataGenerator.SeedUser> chunk, List<String> encryptedPans,
+                      List<String> panHashes, long firstUserId, long userRoleId, String passwordHash) throws SQLException {
+        StringBuilder users = new StringBuilder(chunk.size() * 128);
+        StringBuilder userRoles = new StringBuilder(chunk.size() * 16);
+        StringBuilder cards = new StringBuilder(encryptedPans.size() * 128);
+        int pan = 0;
+        for (SeedDataGenerator.SeedUser user : chunk) {
+            long userId = firstUserId + user.index();
+            users.append(userId).append(',').append(user.username()).append(',').append(user.email()).append(',')
+                    .append(passwordHash).append(',').append(user.createdAt()).append('\n');
+            userRoles.append(userId).append(',').append(userRoleId).append('\n');
+            for (SeedDataGenerator.SeedCard card : user.cards()) {
+                cards.append(encryptedPans.get(pan)).append(',').append(panHashes.get(pan++)).append(',')
+                        .append(card.holder()).append(',')
+                        .append(card.expiryDate()).append(',').append(card.status().name()).append(',')
+                        .append(card.balance()).append(',').append(userId).append(',')
+                        .append(card.createdAt()).append('\n');
+            }
+        }
+
+        try {
+            CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+            copyManager.copyIn("COPY users (id, username, email, password, created_at) FROM STDIN WITH (FORMAT csv)",
+                    new StringReader(users.toString()));
+            copyManager.copyIn("COPY user_roles (user_id, role_id) FROM STDIN WITH (FORMAT csv)",
+                    new StringReader(userRoles.toString()));
+            copyManager.copyIn("COPY bank_cards (card_number, card_number_hash, card_holder, expiry_date, status, " +
+                            "balance_minor, user_id, created_at) FROM STDIN WITH (FORMAT csv)",
+                    new StringReader(cards.toString()));
+        } catch (IOException e) {
+            throw new SQLException("Ошибка передачи данных в COPY", e);
+        }
+    }
+
+    private void batchInsert(Connection connection, List<SeedDataGenerator.SeedUser> chunk, List<String> encryptedPans,
+                             List<String> panHashes, long firstUserId, long userRoleId, String passwordHash) throws SQLException {
+        try (PreparedStatement users = connection.prepareStatement(
+                "INSERT INTO users (id, username, email, password, created_at) VALUES (?, ?, ?, ?, ?)");
+             PreparedStatement userRoles = connection.prepareStatement(
+                     "INSERT INTO user_roles (user_id, role_id) VALUES (?, ?)");
+             PreparedStatement cards = connection.prepareStatement(
+                     "INSERT INTO bank_cards (card_number, card_number_hash, card_holder, expiry_date, status, " +
+                             "balance_minor, balance_stripes, user_id, created_at) VALUES (?, ?, ?, ?, ?, ?, 0, ?, ?)")) {
+            int pan = 0;
+            for (SeedDataGenerator.SeedUser user : chunk) {
+                long userId = firstUserId + user.index();
+                users.setLong(1, userId);
+                users.setString(2, user.username());
+                users.setString(3, user.email());
+                users.setString(4, passwordHash);
+                users.setTimestamp(5, Timestamp.valueOf(user.createdAt()));
+                users.addBatch();
+
+                userRoles.setLong(1, userId);
+                userRoles.setLong(2, userRoleId);
+                userRoles.addBatch();
+
+                for (SeedDataGenerator.SeedCard card : user.cards()) {
+                    cards.setString(1, encryptedPans.get(pan));
+                    cards.setString(2, panHashes.get(pan++));
+                    cards.setString(3, card.holder());
+                    cards.setString(4, card.expiryDate());
+                    cards.setString(5, card.status().name());
+                    cards.setLong(6, card.balance());
+                    cards.setLong(7, userId);
+                    cards.setTimestamp(8, Timestamp.valueOf(card.createdAt()));
+                    cards.addBatch();
+                }
+            }
+            users.executeBatch();
+            userRoles.executeBatch();
+            cards.executeBatch();
+        }
+    }
+
+    // id пользователей задаются явно, поэтому диапазон [first, first + count) резервируется до загрузки:
+    // счетчик identity сразу переводится за него. Регистрации во время заполнения и после сбоя порции
+    // получают id вне диапазона. В Postgres блокировка таблицы не дает INSERT взять id между чтением и сдвигом
+    private long reserveUserIds(Connection connection, long count) throws SQLException {
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            long first;
+            if (isPostgres(connection)) {
+                statement.execute("LOCK TABLE users IN EXCLUSIVE MODE");
+                first = Math.max(queryLong(connection, "SELECT nextval(pg_get_serial_sequence('users', 'id'))"),
+                        queryLong(connection, "SELECT COALESCE(MAX(id), 0) + 1 FROM users"));
+                statement.execute("SELECT setval(pg_get_serial_sequence('users', 'id'), " + (first + count - 1) + ")");
+            } else {
+                first = queryLong(connection, "SELECT COALESCE(MAX(id), 0) + 1 FROM users");
+                statement.execute("ALTER TABLE users ALTER COLUMN id RESTART WITH " + (first + count));
+            }
+            connection.commit();
+            return first;
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        }
+    }
+
+    private static boolean isPostgres(Connection connection) throws SQLException {
+        return "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName())
+                && connection.isWrapperFor(PGConnection.class);
+    }
+
+    private static boolean exists(Connection connection, String sql, String parameter) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, parameter);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next();
+            }
+        }
+    }
+
+    private static long queryLong(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+}
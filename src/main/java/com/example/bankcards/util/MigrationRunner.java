@@ -0,0 +1,33 @@
+package com.example.bankcards.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+// Режим миграций: к этому моменту Liquibase уже применил changelog при старте контекста,
+// остается только завершить процесс
+@Component
+@Profile("migrate")
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class MigrationRunner implements CommandLineRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(MigrationRunner.class);
+
+    private final ApplicationContext applicationContext;
+
+    public MigrationRunner(ApplicationContext applicationContext) {
+        this.applicationContext = applicationContext;
+    }
+
+    @Override
+    public void run(String... args) {
+        log.info("Миграции применены, завершение работы");
+        System.exit(SpringApplication.exit(applicationContext, () -> 0));
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.exception.BadRequestException;
+
+import java.math.BigDecimal;
+
+// Денежные суммы внутри приложения хранятся в копейках (long); BigDecimal остается только на границе API
+public final class Money {
+
+    public static final int SCALE = 2;
+
+    private Money() {
+    }
+
+    // Сумма из API в копейки; больше двух знаков после запятой - ошибка запроса
+    public static long toMinorUnits(BigDecimal amount) {
+        try {
+            return amount.setScale(SCALE).unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            throw new BadRequestException("Сумма должна содержать не больше двух знаков после запятой");
+        }
+    }
+
+    public static BigDecimal fromMinorUnits(long minorUnits) {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+}
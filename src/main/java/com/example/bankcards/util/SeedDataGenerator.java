@@ -0,0 +1,125 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.entity.BankCardStatus;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Детерминированная генерация пользователей и карт для нагрузочных данных.
+// Данные пользователя зависят только от seed и его номера, поэтому порядок обработки в потоках не влияет на результат.
+public class SeedDataGenerator {
+
+    // Доля пользователей (в процентах) с 0, 1, 2 ... 7 картами
+    private static final int[] CARDS_PER_USER_PERCENT = {8, 42, 27, 13, 6, 2, 1, 1};
+    static final int MAX_CARDS_PER_USER = CARDS_PER_USER_PERCENT.length - 1;
+
+    private static final String[] FIRST_NAMES = {
+            "IVAN", "PETR", "ANNA", "MARIA", "OLGA", "SERGEY", "DMITRY", "ELENA", "ALEXEY", "NATALIA",
+            "ANDREY", "TATIANA", "MIKHAIL", "IRINA", "NIKOLAY", "SVETLANA"
+    };
+    private static final String[] LAST_NAMES = {
+            "IVANOV", "PETROV", "SIDOROV", "SMIRNOV", "KUZNETSOV", "POPOV", "VASILEV", "SOKOLOV",
+            "MIKHAYLOV", "NOVIKOV", "FEDOROV", "MOROZOV", "VOLKOV", "LEBEDEV", "KOZLOV", "EGOROV"
+    };
+
+    private static final DateTimeFormatter EXPIRY_FORMAT = DateTimeFormatter.ofPattern("MM/yy");
+
+    public record SeedUser(long index, String username, String email, LocalDateTime createdAt, List<SeedCard> cards) {}
+
+    public record SeedCard(String pan, String holder, String expiryDate, BankCardStatus status,
+                           long balance, LocalDateTime createdAt) {}
+
+    private final long seed;
+    private final String usernamePrefix;
+    private final LocalDate today;
+
+    public SeedDataGenerator(long seed, String usernamePrefix, LocalDate today) {
+        this.seed = seed;
+        this.usernamePrefix = usernamePrefix;
+        this.today = today;
+    }
+
+    public String username(long index) {
+        return String.format("%s_%07d", usernamePrefix, index);
+    }
+
+    public SeedUser user(long index) {
+        SplittableRandom random = new SplittableRandom(mix(seed, index));
+        String username = username(index);
+        LocalDateTime userCreatedAt = today.atStartOfDay().minusMinutes(random.nextLong(3L * 365 * 24 * 60));
+        String holder = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " "
+                + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+
+        int cardCount = cardCount(random.nextInt(100));
+        List<SeedCard> cards = new ArrayList<>(cardCount);
+        for (int i = 0; i < cardCount; i++) {
+            cards.add(card(random, index * (MAX_CARDS_PER_USER + 1) + i, holder, userCreatedAt));
+        }
+        return new SeedUser(index, username, username + "@seed.example.com", userCreatedAt, cards);
+    }
+
+    private SeedCard card(SplittableRandom random, long cardIndex, String holder, LocalDateTime userCreatedAt) {
+        // Статусы: 90% активных, 6% заблокированных, 4% с истекшим сроком
+        int roll = random.nextInt(100);
+        BankCardStatus status = roll < 90 ? BankCardStatus.ACTIVE
+                : roll < 96 ? BankCardStatus.BLOCKED
+                : BankCardStatus.EXPIRED;
+
+        // У истекших карт срок в прошлом, у остальных - от 1 до 60 месяцев вперед
+        LocalDate expiry = status == BankCardStatus.EXPIRED
+                ? today.minusMonths(1 + random.nextInt(24))
+                : today.plusMonths(1 + random.nextInt(60));
+
+        // Баланс с лог-нормальным распределением (медиана около 130 рублей), 3% карт пустые
+        long balance = random.nextInt(100) < 3 ? 0
+                : Math.min((long) Math.exp(9.5 + 1.6 * random.nextGaussian()), 10_000_000_000L);
+
+        LocalDateTime createdAt = userCreatedAt.plusMinutes(random.nextLong(30L * 24 * 60));
+        return new SeedCard(pan(cardIndex), holder, expiry.format(EXPIRY_FORMAT), status, balance, createdAt);
+    }
+
+    private static int cardCount(int percentile) {
+        int cumulative = 0;
+        for (int cards = 0; cards < CARDS_PER_USER_PERCENT.length; cards++) {
+            cumulative += CARDS_PER_USER_PERCENT[cards];
+            if (percentile < cumulative) {
+                return cards;
+            }
+        }
+        return MAX_CARDS_PER_USER;
+    }
+
+    // Уникальный номер из 16 цифр: префикс 49, номер карты, контрольная цифра по алгоритму Луна
+    static String pan(long cardIndex) {
+        String body = "49" + String.format("%013d", cardIndex);
+        return body + luhnCheckDigit(body);
+    }
+
+    static int luhnCheckDigit(String body) {
+        int sum = 0;
+        boolean doubled = true;
+        for (int i = body.length() - 1; i >= 0; i--) {
+            int digit = body.charAt(i) - '0';
+            if (doubled) {
+                digit *= 2;
+                if (digit > 9) {
+                    digit -= 9;
+                }
+            }
+            sum += digit;
+            doubled = !doubled;
+        }
+        return (10 - sum % 10) % 10;
+    }
+
+    private static long mix(long seed, long index) {
+        long z = seed + index * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
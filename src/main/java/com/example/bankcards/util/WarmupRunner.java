@@ -0,0 +1,147 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.dto.BankCardResponse;
+import com.example.bankcards.dto.PageResponse;
+import com.example.bankcards.entity.BankCard;
+import com.example.bankcards.entity.BankCardStatus;
+import com.example.bankcards.security.UserDetailsImpl;
+import com.example.bankcards.security.jwt.JwtUtils;
+import com.example.bankcards.service.BankCardService;
+import com.example.bankcards.service.EncryptionService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+// Прогрев JIT перед приемом трафика: шифрование номеров, JWT, чтение карт через сервис и сериализация ответа.
+// Spring Boot переводит readiness в ACCEPTING_TRAFFIC только после всех CommandLineRunner,
+// поэтому /actuator/health/readiness остается OUT_OF_SERVICE, пока прогрев не закончится.
+// В production заменяет DataGenerator: данные синтетические, в базу ничего не пишется.
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+@ConditionalOnProperty(name = "app.warmup.enabled", havingValue = "true")
+public class WarmupRunner implements CommandLineRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(WarmupRunner.class);
+
+    // Синтетический пользователь без строки в базе: выборка его карт идет по индексу и возвращает пустую страницу
+    private static final long WARMUP_USER_ID = -1L;
+    private static final String WARMUP_USERNAME = "warmup";
+
+    @Autowired
+    private EncryptionService encryptionService;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Autowired
+    private BankCardService bankCardService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.warmup.iterations:2000}")
+    private int iterations;
+
+    // Обращения к базе дороже и прогреваются быстрее, поэтому их меньше
+    @Value("${app.warmup.database-iterations:200}")
+    private int databaseIterations;
+
+    @Value("${app.warmup.page-size:20}")
+    private int pageSize;
+
+    @Value("${app.warmup.max-duration:10s}")
+    private Duration maxDuration;
+
+    private volatile int completedIterations;
+
+    @Override
+    public void run(String... args) throws Exception {
+        long startedAt = System.nanoTime();
+        long deadline = startedAt + maxDuration.toNanos();
+
+        List<BankCard> cards = syntheticCards();
+        PageRequest pageable = PageRequest.of(0, pageSize);
+        String token = jwtUtils.generateTokenFromUsername(WARMUP_USERNAME);
+        long sink = 0;
+
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                new UserDetailsImpl(WARMUP_USER_ID, WARMUP_USERNAME, "", List.of(new SimpleGrantedAuthority("ROLE_USER"))),
+                null, List.of(new SimpleGrantedAuthority("ROLE_USER"))));
+        try {
+            for (int i = 0; i < iterations && System.nanoTime() < deadline; i++) {
+                // Шифрование и маскирование номера
+                BankCard card = cards.get(i % cards.size());
+                sink += encryptionService.encrypt(Integer.toString(i)).length();
+                sink += bankCardService.maskCardNumber(card.getCardNumber()).length();
+
+                // JWT: проверка подписи и чтение subject
+                if (jwtUtils.validateJwtToken(token)) {
+                    sink += jwtUtils.getUsernameFromJwtToken(token).length();
+                }
+
+                // Сериализация страницы ответа, как в BankCardController
+                sink += objectMapper.writeValueAsBytes(
+                        PageResponse.of(new PageImpl<>(cards, pageable, cards.size()), this::toResponse)).length;
+
+                // Чтение карт через сервис: транзакция, репозиторий, Hibernate
+                if (i < databaseIterations) {
+                    sink += bankCardService.getUserCards(pageable).getNumberOfElements();
+                }
+                completedIterations = i + 1;
+            }
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+
+        log.info("Прогрев завершен: {} итераций за {} ms (контрольная сумма {})", completedIterations,
+                (System.nanoTime() - startedAt) / 1_000_000, sink);
+    }
+
+    public int getCompletedIterations() {
+        return completedIterations;
+    }
+
+    private BankCardResponse toResponse(BankCard card) {
+        return new BankCardResponse(
+                card.getId(),
+                bankCardService.maskCardNumber(card.getCardNumber()),
+                card.getCardHolder(),
+                card.getExpiryDate(),
+                card.getStatus(),
+                Money.fromMinorUnits(card.getAvailableBalance()),
+                card.getCreatedAt()
+        );
+    }
+
+    private List<BankCard> syntheticCards() {
+        String expiry = LocalDate.now().plusYears(3).format(DateTimeFormatter.ofPattern("MM/yy"));
+        BankCardStatus[] statuses = BankCardStatus.values();
+        List<BankCard> cards = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            String pan = SeedDataGenerator.pan(i);
+            BankCard card = new BankCard(encryptionService.encrypt(pan), "WARMUP USER", expiry, statuses[i % statuses.length], null);
+            card.setId((long) i + 1);
+            card.setBalance(i * 12_345L);
+            cards.add(card);
+        }
+        return cards;
+    }
+}
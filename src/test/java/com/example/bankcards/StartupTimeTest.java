@@ -0,0 +1,60 @@
+package com.example.bankcards;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Время старта с профилем prod и время до первого ответа (автомасштабирование зависит от обоих).
+// Бюджеты можно переопределить: -Dstartup.budget-ms=..., -Dfirst-request.budget-ms=...
+class StartupTimeTest {
+
+    private static final Logger log = LoggerFactory.getLogger(StartupTimeTest.class);
+
+    private static final long STARTUP_BUDGET_MS = Long.getLong("startup.budget-ms", 30_000);
+    private static final long FIRST_REQUEST_BUDGET_MS = Long.getLong("first-request.budget-ms", 5_000);
+
+    @Test
+    void prodProfile_ShouldStartAndServeFirstRequestWithinBudget() throws Exception {
+        // Arrange
+        long startedAt = System.nanoTime();
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(BankCardsApplication.class)
+                .profiles("prod")
+                .run(
+                        "--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:startup;DB_CLOSE_DELAY=-1;MODE=PostgreSQL",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop")) {
+            long startupMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+            int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+
+            // Act
+            long requestStartedAt = System.nanoTime();
+            HttpResponse<String> response = HttpClient.newHttpClient().send(
+                    HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/test/public")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            long firstRequestMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - requestStartedAt);
+
+            log.info("Startup: {} ms, first request: {} ms, time to first response: {} ms",
+                    startupMs, firstRequestMs, startupMs + firstRequestMs);
+
+            // Assert
+            assertEquals(200, response.statusCode());
+            assertTrue(startupMs < STARTUP_BUDGET_MS, "Startup took " + startupMs + " ms");
+            assertTrue(firstRequestMs < FIRST_REQUEST_BUDGET_MS, "First request took " + firstRequestMs + " ms");
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.bankcards.analytics;
+
+import com.example.bankcards.entity.BankCard;
+import com.example.bankcards.entity.BankCardStatus;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.event.CardChangedEvent;
+import com.example.bankcards.repository.BankCardRepository;
+import com.example.bankcards.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// События, доставленные во время загрузки индекса, не должны применяться второй раз поверх прочитанных строк;
+// балансы хранятся только для занятых диапазонов id
+@SpringBootTest(properties = "app.card-index.enabled=true")
+@TestPropertySource(locations = "classpath:application-test.yml")
+class CardFilterIndexLoadIntegrationTest {
+
+    @Autowired
+    private CardFilterIndex cardFilterIndex;
+
+    @Autowired
+    private BankCardRepository bankCardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private BankCard card;
+
+    @BeforeEach
+    void setUp() {
+        bankCardRepository.deleteAll();
+        userRepository.deleteAll();
+
+        User owner = userRepository.save(new User("index-owner", "index-owner@example.com", "hash"));
+        // 950 руб. - диапазон 0 (до 1 000 руб.)
+        card = new BankCard("enc-index-1", "OWNER", "12/30", BankCardStatus.ACTIVE, owner);
+        card.setBalance(95_000L);
+        card = bankCardRepository.save(card);
+    }
+
+    @Test
+    void eventCommittedBeforeLoadRead_ShouldNotBeAppliedTwice() {
+        // Arrange: пополнение на 25 руб. закоммичено до чтения, событие о нем доставлено во время загрузки.
+        // Повторное применение дало бы 1 000 руб. - диапазон 1
+        cardFilterIndex.beginLoad();
+        jdbcTemplate.update("UPDATE bank_cards SET balance_minor = balance_minor + 2500 WHERE id = ?", card.getId());
+        cardFilterIndex.onCardChanged(CardChangedEvent.balanceChanged(card, 2_500L));
+
+        // Act
+        cardFilterIndex.completeLoad();
+
+        // Assert
+        assertTrue(cardFilterIndex.find(null, null, 0, null).contains(card.getId()));
+        assertTrue(cardFilterIndex.find(null, null, 1, null).isEmpty());
+    }
+
+    @Test
+    void bitmaps_WithLargeId_ShouldAllocateOnlyItsBalancePage() {
+        // Arrange
+        CardFilterIndex.Bitmaps bitmaps = new CardFilterIndex.Bitmaps(new long[]{100_000L});
+        long id = 4_000_000_000L;
+
+        // Act
+        bitmaps.put(id, BankCardStatus.ACTIVE, "12/30", 95_000L);
+        bitmaps.apply(new CardChangedEvent(CardChangedEvent.Type.BALANCE_CHANGED, id, 1, BankCardStatus.ACTIVE,
+                "12/30", 10_000L));
+
+        // Assert
+        assertEquals(1, bitmaps.balancePages.size());
+        assertEquals(105_000L, bitmaps.balance(id));
+        assertTrue(bitmaps.byBalanceBand[1].contains(id));
+        assertFalse(bitmaps.byBalanceBand[0].contains(id));
+
+        bitmaps.remove(id, CardSnapshot.NO_EXPIRY);
+        assertTrue(bitmaps.balancePages.isEmpty());
+        assertTrue(bitmaps.byBalanceBand[1].isEmpty());
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.bankcards.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CardIdBitmapTest {
+
+    @Test
+    void addAndRemove_ShouldSwitchContainerBetweenArrayAndBitmap() {
+        // Arrange
+        CardIdBitmap bitmap = new CardIdBitmap();
+        int ids = CardIdBitmap.ARRAY_MAX + 100;
+
+        // Act
+        for (int i = 0; i < ids; i++) {
+            bitmap.add(i * 3L);
+        }
+        boolean duplicateAdded = bitmap.add(0);
+        for (int i = 0; i < ids; i += 2) {
+            bitmap.remove(i * 3L);
+        }
+
+        // Assert
+        assertFalse(duplicateAdded);
+        assertEquals(ids / 2, bitmap.cardinality());
+        assertFalse(bitmap.contains(0));
+        assertTrue(bitmap.contains(3));
+        assertFalse(bitmap.contains(4));
+        assertTrue(bitmap.remove(3));
+        assertFalse(bitmap.remove(3));
+        assertThrows(IllegalArgumentException.class, () -> bitmap.add(-1));
+    }
+
+    @Test
+    void and_ShouldIntersectAcrossContainerTypes() {
+        // Arrange: плотный контейнер (битовая карта), разреженный (массив) и несовпадающие ключи
+        CardIdBitmap dense = new CardIdBitmap();
+        for (long id = 0; id < 10_000; id++) {
+            dense.add(id);
+        }
+        dense.add(1L << 20);
+        CardIdBitmap sparse = CardIdBitmap.of(List.of(5L, 7L, 9_999L, 10_000L, (1L << 20), (1L << 24)));
+        CardIdBitmap evens = new CardIdBitmap();
+        for (long id = 0; id < 20_000; id += 2) {
+            evens.add(id);
+        }
+
+        // Act
+        CardIdBitmap denseAndSparse = dense.and(sparse);
+        CardIdBitmap denseAndEvens = dense.and(evens);
+
+        // Assert
+        assertArrayEquals(new long[]{5, 7, 9_999, 1L << 20}, denseAndSparse.page(0, 10, false));
+        assertEquals(5_000, denseAndEvens.cardinality());
+        assertTrue(denseAndEvens.and(sparse).isEmpty());
+    }
+
+    @Test
+    void page_ShouldSkipOffsetInBothDirections() {
+        // Arrange: id в двух контейнерах
+        CardIdBitmap bitmap = new CardIdBitmap();
+        for (long id = 1; id <= 5_000; id++) {
+            bitmap.add(id);
+            bitmap.add(70_000 + id);
+        }
+
+        // Act
+        long[] ascending = bitmap.page(4_999, 3, false);
+        long[] descending = bitmap.page(1, 3, true);
+        long[] lastPage = bitmap.page(9_998, 10, true);
+
+        // Assert
+        assertArrayEquals(new long[]{5_000, 70_001, 70_002}, ascending);
+        assertArrayEquals(new long[]{74_999, 74_998, 74_997}, descending);
+        assertArrayEquals(new long[]{2, 1}, lastPage);
+        assertEquals(0, bitmap.page(10_000, 10, false).length);
+    }
+}
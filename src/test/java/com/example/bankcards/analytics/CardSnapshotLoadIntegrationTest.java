@@ -0,0 +1,79 @@
+package com.example.bankcards.analytics;
+
+import com.example.bankcards.entity.BankCard;
+import com.example.bankcards.entity.BankCardStatus;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.event.CardChangedEvent;
+import com.example.bankcards.repository.BankCardRepository;
+import com.example.bankcards.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// События, доставленные во время загрузки снимка, не должны применяться второй раз поверх прочитанных строк
+@SpringBootTest(properties = "app.card-snapshot.enabled=true")
+@TestPropertySource(locations = "classpath:application-test.yml")
+class CardSnapshotLoadIntegrationTest {
+
+    @Autowired
+    private CardSnapshot cardSnapshot;
+
+    @Autowired
+    private BankCardRepository bankCardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User owner;
+    private BankCard card;
+
+    @BeforeEach
+    void setUp() {
+        bankCardRepository.deleteAll();
+        userRepository.deleteAll();
+
+        owner = userRepository.save(new User("snapshot-owner", "snapshot-owner@example.com", "hash"));
+        card = new BankCard("enc-snapshot-1", "OWNER", "12/30", BankCardStatus.ACTIVE, owner);
+        card.setBalance(150_000L);
+        card = bankCardRepository.save(card);
+    }
+
+    @Test
+    void eventCommittedBeforeLoadRead_ShouldNotBeAppliedTwice() {
+        // Arrange: пополнение закоммичено до чтения, а событие о нем доставлено уже во время загрузки
+        cardSnapshot.beginLoad();
+        jdbcTemplate.update("UPDATE bank_cards SET balance_minor = balance_minor + 10000 WHERE id = ?", card.getId());
+        cardSnapshot.onCardChanged(CardChangedEvent.balanceChanged(card, 10_000L));
+
+        // Act
+        cardSnapshot.completeLoad();
+
+        // Assert
+        CardSnapshot.StatusTotal active = cardSnapshot.balanceByStatus().get(BankCardStatus.ACTIVE.ordinal());
+        assertEquals(1, active.cardCount());
+        assertEquals(160_000L, active.balance());
+    }
+
+    @Test
+    void cardDeletedDuringLoad_ShouldBeRemovedFromSnapshot() {
+        // Arrange
+        cardSnapshot.beginLoad();
+        bankCardRepository.deleteById(card.getId());
+        cardSnapshot.onCardChanged(CardChangedEvent.deleted(card));
+
+        // Act
+        cardSnapshot.completeLoad();
+
+        // Assert
+        assertEquals(0, cardSnapshot.getCardCount());
+        assertEquals(0L, cardSnapshot.balanceByStatus().get(BankCardStatus.ACTIVE.ordinal()).balance());
+    }
+}
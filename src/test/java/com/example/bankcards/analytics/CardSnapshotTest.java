@@ -0,0 +1,95 @@
+package com.example.bankcards.analytics;
+
+import com.example.bankcards.entity.BankCardStatus;
+import com.example.bankcards.event.CardChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CardSnapshotTest {
+
+    private CardSnapshot snapshot;
+
+    @BeforeEach
+    void setUp() {
+        snapshot = new CardSnapshot();
+    }
+
+    private void apply(CardChangedEvent.Type type, long cardId, long userId, BankCardStatus status,
+                       String expiryDate, long balanceDelta) {
+        snapshot.applyLocked(new CardChangedEvent(type, cardId, userId, status, expiryDate, balanceDelta));
+    }
+
+    private CardSnapshot.StatusTotal total(BankCardStatus status) {
+        List<CardSnapshot.StatusTotal> totals = snapshot.balanceByStatus();
+        return totals.get(status.ordinal());
+    }
+
+    @Test
+    void events_ShouldMaintainTotalsByStatus() {
+        // Arrange
+        apply(CardChangedEvent.Type.CREATED, 1, 10, BankCardStatus.ACTIVE, "12/30", 10_000);
+        apply(CardChangedEvent.Type.CREATED, 2, 10, BankCardStatus.ACTIVE, "12/30", 5_000);
+        apply(CardChangedEvent.Type.CREATED, 3, 20, BankCardStatus.ACTIVE, "01/31", 0);
+
+        // Act
+        apply(CardChangedEvent.Type.BALANCE_CHANGED, 1, 10, BankCardStatus.ACTIVE, "12/30", -2_500);
+        apply(CardChangedEvent.Type.BALANCE_CHANGED, 2, 10, BankCardStatus.ACTIVE, "12/30", 2_500);
+        apply(CardChangedEvent.Type.STATUS_CHANGED, 2, 10, BankCardStatus.BLOCKED, "12/30", 0);
+        apply(CardChangedEvent.Type.DELETED, 3, 20, BankCardStatus.ACTIVE, "01/31", 0);
+
+        // Assert
+        assertEquals(new CardSnapshot.StatusTotal(BankCardStatus.ACTIVE, 1, 7_500), total(BankCardStatus.ACTIVE));
+        assertEquals(new CardSnapshot.StatusTotal(BankCardStatus.BLOCKED, 1, 7_500), total(BankCardStatus.BLOCKED));
+        assertEquals(new CardSnapshot.StatusTotal(BankCardStatus.EXPIRED, 0, 0), total(BankCardStatus.EXPIRED));
+        assertEquals(2, snapshot.getCardCount());
+        assertArrayEquals(new long[]{0, 1}, snapshot.cardsPerUserHistogram(2));
+    }
+
+    @Test
+    void expiringPerMonth_ShouldCountCardsInRange() {
+        // Arrange
+        apply(CardChangedEvent.Type.CREATED, 1, 10, BankCardStatus.ACTIVE, "12/30", 0);
+        apply(CardChangedEvent.Type.CREATED, 2, 11, BankCardStatus.BLOCKED, "12/30", 0);
+        apply(CardChangedEvent.Type.CREATED, 3, 12, BankCardStatus.ACTIVE, "02/31", 0);
+        apply(CardChangedEvent.Type.CREATED, 4, 13, BankCardStatus.ACTIVE, "06/31", 0);
+        apply(CardChangedEvent.Type.CREATED, 5, 14, BankCardStatus.ACTIVE, "bad", 0);
+
+        // Act
+        long[] counts = snapshot.expiringPerMonth(YearMonth.of(2030, 12), 3);
+
+        // Assert: декабрь 2030 - две карты, январь 2031 - ни одной, февраль 2031 - одна
+        assertArrayEquals(new long[]{2, 0, 1}, counts);
+        assertEquals(CardSnapshot.NO_EXPIRY, CardSnapshot.expiryMonth("13/30"));
+        assertEquals(CardSnapshot.monthIndex(YearMonth.of(2030, 12)), CardSnapshot.expiryMonth("12/30"));
+    }
+
+    @Test
+    void manyCards_ShouldScanAllChunksAndCompactDeletedRows() {
+        // Arrange: больше одного блока параллельного прохода, у каждого пользователя по 3 карты
+        int cards = CardSnapshot.CHUNK_SIZE * 2 + 17;
+        for (int id = 0; id < cards; id++) {
+            apply(CardChangedEvent.Type.CREATED, id, id / 3, BankCardStatus.ACTIVE, "12/30", 1);
+        }
+        int capacity = snapshot.getCapacity();
+
+        // Act: удаляем половину и добавляем столько же новых - место берется из удаленных строк
+        for (int id = 0; id < cards; id += 2) {
+            apply(CardChangedEvent.Type.DELETED, id, id / 3, BankCardStatus.ACTIVE, "12/30", 0);
+        }
+        int live = snapshot.getCardCount();
+        for (int id = cards; id < cards + (capacity - live); id++) {
+            apply(CardChangedEvent.Type.CREATED, id, -1, BankCardStatus.BLOCKED, "12/30", 2);
+        }
+
+        // Assert
+        assertEquals(capacity, snapshot.getCapacity());
+        assertEquals(new CardSnapshot.StatusTotal(BankCardStatus.ACTIVE, live, live), total(BankCardStatus.ACTIVE));
+        assertEquals(capacity - live, total(BankCardStatus.BLOCKED).cardCount());
+        assertEquals(capacity, snapshot.getCardCount());
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.bankcards.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+// Арифметика перевода на горячем пути: баланс в BigDecimal против баланса в копейках (long).
+// Каждая операция - проверка достаточности, списание и зачисление по пачке карт.
+// bytes/op смотреть в gc.alloc.rate.norm (профилировщик gc включен в профиле benchmark).
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BalanceArithmeticBenchmark {
+
+    @Param({"1024"})
+    private int cards;
+
+    private BigDecimal[] decimalBalances;
+    private BigDecimal decimalAmount;
+    private long[] minorBalances;
+    private long minorAmount;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        decimalBalances = new BigDecimal[cards];
+        minorBalances = new long[cards];
+        for (int i = 0; i < cards; i++) {
+            decimalBalances[i] = BigDecimal.valueOf(1_000_000L + i * 137L, 2);
+            minorBalances[i] = 1_000_000L + i * 137L;
+        }
+        decimalAmount = new BigDecimal("1.25");
+        minorAmount = 125L;
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimalTransfers() {
+        BigDecimal[] balances = decimalBalances;
+        for (int i = 0; i < balances.length; i++) {
+            int to = (i + 1) % balances.length;
+            if (balances[i].compareTo(decimalAmount) >= 0) {
+                balances[i] = balances[i].subtract(decimalAmount);
+                balances[to] = balances[to].add(decimalAmount);
+            }
+        }
+        return balances[0];
+    }
+
+    @Benchmark
+    public long minorUnitTransfers() {
+        long[] balances = minorBalances;
+        for (int i = 0; i < balances.length; i++) {
+            int to = (i + 1) % balances.length;
+            if (balances[i] >= minorAmount) {
+                balances[i] -= minorAmount;
+                balances[to] += minorAmount;
+            }
+        }
+        return balances[0];
+    }
+}
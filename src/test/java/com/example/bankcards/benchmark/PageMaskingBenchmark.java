@@ -0,0 +1,99 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.dto.BankCardResponse;
+import com.example.bankcards.dto.PageResponse;
+import com.example.bankcards.entity.BankCard;
+import com.example.bankcards.entity.BankCardStatus;
+import com.example.bankcards.service.BankCardService;
+import com.example.bankcards.service.EncryptionService;
+import com.example.bankcards.util.Money;
+import com.example.bankcards.util.ParallelPageMapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Админская страница карт: расшифровка, маскирование и сериализация в потоке запроса против ParallelPageMapper.
+// parallelism - размер пула; страница из 20 карт ниже порога и должна идти одинаково в обоих вариантах.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PageMaskingBenchmark {
+
+    @Param({"20", "500", "2000"})
+    private int pageSize;
+
+    @Param({"1", "2", "4", "8"})
+    private int parallelism;
+
+    private ObjectMapper mapper;
+    private BankCardService bankCardService;
+    private ParallelPageMapper parallelPageMapper;
+    private Page<BankCard> cardsPage;
+
+    @Setup
+    public void setUp() {
+        mapper = JsonMapper.builder()
+                .findAndAddModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+
+        EncryptionService encryptionService = new EncryptionService();
+        ReflectionTestUtils.setField(encryptionService, "encryptionKey", "benchmarkEncryptionKey1234567890");
+        ReflectionTestUtils.setField(encryptionService, "keys", "1:benchmarkKeyOne");
+        ReflectionTestUtils.setField(encryptionService, "activeKeyId", 1);
+        ReflectionTestUtils.setField(encryptionService, "lookupKey", "benchmarkLookupKey");
+        encryptionService.init();
+        bankCardService = new BankCardService();
+        ReflectionTestUtils.setField(bankCardService, "encryptionService", encryptionService);
+
+        parallelPageMapper = new ParallelPageMapper();
+        ReflectionTestUtils.setField(parallelPageMapper, "threshold", 256);
+        ReflectionTestUtils.setField(parallelPageMapper, "parallelism", parallelism);
+        parallelPageMapper.init();
+
+        List<BankCard> cards = new ArrayList<>(pageSize);
+        BankCardStatus[] statuses = BankCardStatus.values();
+        for (int i = 0; i < pageSize; i++) {
+            BankCard card = new BankCard(encryptionService.encrypt(String.valueOf(4_000_000_000_000_000L + i)),
+                    "CARD HOLDER " + i, "12/30", statuses[i % statuses.length], null);
+            card.setId((long) i);
+            card.setBalance(i * 137L);
+            cards.add(card);
+        }
+        cardsPage = new PageImpl<>(cards, PageRequest.of(0, pageSize), 250_000L);
+    }
+
+    @TearDown
+    public void tearDown() {
+        parallelPageMapper.shutdown();
+    }
+
+    // Как BankCardController.convertToResponse
+    private BankCardResponse toResponse(BankCard card) {
+        return new BankCardResponse(card.getId(), bankCardService.maskCardNumber(card.getCardNumber()),
+                card.getCardHolder(), card.getExpiryDate(), card.getStatus(),
+                Money.fromMinorUnits(card.getAvailableBalance()), card.getCreatedAt());
+    }
+
+    @Benchmark
+    public byte[] sequential() throws Exception {
+        return mapper.writeValueAsBytes(PageResponse.of(cardsPage, this::toResponse));
+    }
+
+    @Benchmark
+    public byte[] parallel() throws Exception {
+        return mapper.writeValueAsBytes(parallelPageMapper.map(cardsPage, this::toResponse));
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.bankcards.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JfrRecordingConfigTest {
+
+    @Test
+    void settings_ShouldAddApplicationEventsToJdkDefaults() throws Exception {
+        // Act
+        Map<String, String> settings = JfrRecordingConfig.settings("default");
+
+        // Assert
+        assertEquals("true", settings.get("com.example.bankcards.Transfer#enabled"));
+        assertEquals("true", settings.get("com.example.bankcards.Crypto#enabled"));
+        assertEquals("1 ms", settings.get("com.example.bankcards.JwtVerify#threshold"));
+        assertEquals("true", settings.get("jdk.GarbageCollection#enabled"));
+        assertNotNull(settings.get("jdk.JavaMonitorEnter#threshold"));
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.bankcards.config;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.sql.DataSource;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Две встроенные H2 базы: в каждой таблица с именем базы, по которому видно, куда ушел запрос
+class ReplicaRoutingDataSourceTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private DataSource primary;
+    private DataSource replica;
+
+    @BeforeEach
+    void setUp() {
+        primary = embeddedDatabase("primary");
+        replica = embeddedDatabase("replica");
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    private DataSource embeddedDatabase(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS db_name (name VARCHAR(16))");
+        jdbcTemplate.execute("DELETE FROM db_name");
+        jdbcTemplate.update("INSERT INTO db_name VALUES (?)", name);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS replica_lag (lag_ms BIGINT)");
+        jdbcTemplate.execute("DELETE FROM replica_lag");
+        jdbcTemplate.update("INSERT INTO replica_lag VALUES (0)");
+        return dataSource;
+    }
+
+    private String currentDatabase(DataSource routing, boolean readOnly) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(routing));
+        transactionTemplate.setReadOnly(readOnly);
+        return transactionTemplate.execute(status ->
+                new JdbcTemplate(routing).queryForObject("SELECT name FROM db_name", String.class));
+    }
+
+    private DataSource routing(String lagQuery) {
+        return new LazyConnectionDataSourceProxy(
+                new ReplicaRoutingDataSource(primary, replica, 1000, lagQuery, 1000, now::get));
+    }
+
+    @Test
+    void readOnlyTransaction_ShouldGoToReplica() {
+        // Arrange
+        DataSource routing = routing(null);
+
+        // Act & Assert
+        assertEquals("replica", currentDatabase(routing, true));
+        assertEquals("primary", currentDatabase(routing, false));
+    }
+
+    @Test
+    void readAfterWriteInSameRequest_ShouldStayOnPrimary() {
+        // Arrange
+        DataSource routing = routing(null);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+
+        // Act
+        String beforeWrite = currentDatabase(routing, true);
+        currentDatabase(routing, false);
+        String afterWrite = currentDatabase(routing, true);
+
+        // Assert
+        assertEquals("replica", beforeWrite);
+        assertEquals("primary", afterWrite);
+    }
+
+    @Test
+    void laggingReplica_ShouldFallBackToPrimaryUntilCaughtUp() {
+        // Arrange
+        DataSource routing = routing("SELECT lag_ms FROM replica_lag");
+        new JdbcTemplate(replica).update("UPDATE replica_lag SET lag_ms = 5000");
+
+        // Act
+        String whileLagging = currentDatabase(routing, true);
+        new JdbcTemplate(replica).update("UPDATE replica_lag SET lag_ms = 10");
+        String beforeRecheck = currentDatabase(routing, true);
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        String afterRecheck = currentDatabase(routing, true);
+
+        // Assert
+        assertEquals("primary", whileLagging);
+        assertEquals("primary", beforeRecheck);
+        assertEquals("replica", afterRecheck);
+    }
+
+    @Test
+    void unreachableReplicaLagCheck_ShouldFallBackToPrimary() {
+        // Arrange
+        DataSource routing = routing("SELECT lag_ms FROM missing_table");
+
+        // Act & Assert
+        assertEquals("primary", currentDatabase(routing, true));
+    }
+}
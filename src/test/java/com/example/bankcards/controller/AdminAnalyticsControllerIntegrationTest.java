@@ -0,0 +1,146 @@
+package com.example.bankcards.controller;
+
+import com.example.bankcards.analytics.CardSnapshot;
+import com.example.bankcards.dto.BankCardCreateRequest;
+import com.example.bankcards.entity.BankCard;
+import com.example.bankcards.entity.BankCardStatus;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.BankCardRepository;
+import com.example.bankcards.repository.RoleRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.jwt.JwtUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.Set;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// Снимок загружается из базы, дальше изменения карт через API доходят до него событиями после коммита
+@SpringBootTest(properties = "app.card-snapshot.enabled=true")
+@AutoConfigureMockMvc
+@TestPropertySource(locations = "classpath:application-test.yml")
+class AdminAnalyticsControllerIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BankCardRepository bankCardRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CardSnapshot cardSnapshot;
+
+    private String adminToken;
+    private User owner;
+    private BankCard card;
+    private String expiry;
+
+    @BeforeEach
+    void setUp() {
+        bankCardRepository.deleteAll();
+        userRepository.deleteAll();
+
+        Role userRole = roleRepository.findByName(Role.RoleName.USER)
+                .orElseGet(() -> roleRepository.save(new Role(Role.RoleName.USER)));
+        Role adminRole = roleRepository.findByName(Role.RoleName.ADMIN)
+                .orElseGet(() -> roleRepository.save(new Role(Role.RoleName.ADMIN)));
+
+        User admin = new User("admin", "admin@example.com", "hash");
+        admin.setRoles(Set.of(adminRole));
+        userRepository.save(admin);
+
+        owner = new User("owner", "owner@example.com", "hash");
+        owner.setRoles(Set.of(userRole));
+        owner = userRepository.save(owner);
+
+        expiry = LocalDate.now().plusMonths(2).format(DateTimeFormatter.ofPattern("MM/yy"));
+        card = new BankCard("encrypted-analytics-1", "Owner", expiry, BankCardStatus.ACTIVE, owner);
+        card.setBalance(150_000L);
+        card = bankCardRepository.save(card);
+
+        // Данные записаны в обход сервиса - пересобираем снимок
+        cardSnapshot.load();
+        adminToken = jwtUtils.generateTokenFromUsername("admin");
+    }
+
+    @Test
+    void analytics_ShouldReflectLoadedCardsAndLaterChanges() throws Exception {
+        mockMvc.perform(get("/api/admin/analytics/cards/balance-by-status")
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("ACTIVE"))
+                .andExpect(jsonPath("$[0].cardCount").value(1))
+                .andExpect(jsonPath("$[0].totalBalance").value(1500.00));
+
+        // Act: новая карта и блокировка загруженной
+        BankCardCreateRequest createRequest = new BankCardCreateRequest("4000000000000002", "Owner", expiry, owner.getId());
+        mockMvc.perform(post("/api/cards")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(createRequest)))
+                .andExpect(status().isOk());
+        mockMvc.perform(put("/api/cards/{cardId}/block", card.getId())
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk());
+
+        // Assert
+        mockMvc.perform(get("/api/admin/analytics/cards/balance-by-status")
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].cardCount").value(1))
+                .andExpect(jsonPath("$[0].totalBalance").value(0))
+                .andExpect(jsonPath("$[1].status").value("BLOCKED"))
+                .andExpect(jsonPath("$[1].cardCount").value(1))
+                .andExpect(jsonPath("$[1].totalBalance").value(1500.00));
+
+        String expiryMonth = YearMonth.now().plusMonths(2).toString();
+        mockMvc.perform(get("/api/admin/analytics/cards/expiring")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .param("months", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$['" + expiryMonth + "']").value(2));
+
+        mockMvc.perform(get("/api/admin/analytics/cards/per-user")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .param("maxCards", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$['1']").value(0))
+                .andExpect(jsonPath("$['2']").value(1))
+                .andExpect(jsonPath("$['3+']").value(0));
+    }
+
+    @Test
+    void expiring_WithTooManyMonths_ShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(get("/api/admin/analytics/cards/expiring")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .param("months", "1000"))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.bankcards.controller;
+
+import com.example.bankcards.analytics.CardFilterIndex;
+import com.example.bankcards.entity.BankCard;
+import com.example.bankcards.entity.BankCardStatus;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.BankCardRepository;
+import com.example.bankcards.repository.RoleRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.jwt.JwtUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.contains;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// Фильтры GET /api/cards: пересечение битовых индексов, из базы - только карты страницы
+@SpringBootTest(properties = "app.card-index.enabled=true")
+@AutoConfigureMockMvc
+@TestPropertySource(locations = "classpath:application-test.yml")
+class AdminCardFilterIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BankCardRepository bankCardRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Autowired
+    private CardFilterIndex cardFilterIndex;
+
+    private String adminToken;
+    private User alice;
+    private BankCard aliceRich;
+    private BankCard aliceBlocked;
+    private BankCard bobRich;
+    private YearMonth soon;
+
+    @BeforeEach
+    void setUp() {
+        bankCardRepository.deleteAll();
+        userRepository.deleteAll();
+
+        Role userRole = roleRepository.findByName(Role.RoleName.USER)
+                .orElseGet(() -> roleRepository.save(new Role(Role.RoleName.USER)));
+        Role adminRole = roleRepository.findByName(Role.RoleName.ADMIN)
+                .orElseGet(() -> roleRepository.save(new Role(Role.RoleName.ADMIN)));
+
+        User admin = new User("admin", "admin@example.com", "hash");
+        admin.setRoles(Set.of(adminRole));
+        userRepository.save(admin);
+
+        alice = new User("alice", "alice@example.com", "hash");
+        alice.setRoles(Set.of(userRole));
+        alice = userRepository.save(alice);
+        User bob = new User("bob", "bob@example.com", "hash");
+        bob.setRoles(Set.of(userRole));
+        bob = userRepository.save(bob);
+
+        soon = YearMonth.now().plusMonths(2);
+        String soonExpiry = soon.format(DateTimeFormatter.ofPattern("MM/yy"));
+        String laterExpiry = LocalDate.now().plusYears(3).format(DateTimeFormatter.ofPattern("MM/yy"));
+
+        // Баланс 5 000 руб. - диапазон 1 (1 000 - 10 000), 50 руб. - диапазон 0
+        aliceRich = saveCard("enc-filter-1", soonExpiry, BankCardStatus.ACTIVE, 500_000L, alice);
+        aliceBlocked = saveCard("enc-filter-2", soonExpiry, BankCardStatus.BLOCKED, 5_000L, alice);
+        saveCard("enc-filter-3", laterExpiry, BankCardStatus.ACTIVE, 500_000L, alice);
+        bobRich = saveCard("enc-filter-4", soonExpiry, BankCardStatus.ACTIVE, 500_000L, bob);
+
+        // Данные записаны в обход сервиса - пересобираем индекс
+        cardFilterIndex.load();
+        adminToken = jwtUtils.generateTokenFromUsername("admin");
+    }
+
+    private BankCard saveCard(String number, String expiry, BankCardStatus status, long balance, User owner) {
+        BankCard card = new BankCard(number, owner.getUsername(), expiry, status, owner);
+        card.setBalance(balance);
+        return bankCardRepository.save(card);
+    }
+
+    @Test
+    void getAllCards_WithFilters_ShouldReturnIntersection() throws Exception {
+        // Статус и месяц окончания: по умолчанию по убыванию id
+        mockMvc.perform(get("/api/cards")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .param("status", "ACTIVE")
+                        .param("expiryMonth", soon.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(2))
+                .andExpect(jsonPath("$.content[*].id").value(contains(bobRich.getId().intValue(), aliceRich.getId().intValue())));
+
+        // Диапазон баланса и владелец
+        mockMvc.perform(get("/api/cards")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .param("balanceBand", "1")
+                        .param("expiryMonth", soon.toString())
+                        .param("ownerId", alice.getId().toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(1))
+                .andExpect(jsonPath("$.content[0].id").value(aliceRich.getId()));
+
+        // Act: блокировка через API доходит до индекса событием после коммита
+        mockMvc.perform(put("/api/cards/{cardId}/block", aliceRich.getId())
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk());
+
+        // Assert
+        mockMvc.perform(get("/api/cards")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .param("status", "BLOCKED")
+                        .param("ownerId", alice.getId().toString())
+                        .param("direction", "asc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(2))
+                .andExpect(jsonPath("$.content[*].id").value(contains(aliceRich.getId().intValue(), aliceBlocked.getId().intValue())));
+    }
+
+    @Test
+    void getAllCards_WithUnknownBandOrSort_ShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(get("/api/cards")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .param("balanceBand", "99"))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get("/api/cards")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .param("status", "ACTIVE")
+                        .param("sortBy", "cardHolder"))
+                .andExpect(status().isBadRequest());
+
+        // Порядок индекса по id не совпадает с createdAt у загруженных данных
+        mockMvc.perform(get("/api/cards")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .param("status", "ACTIVE")
+                        .param("sortBy", "createdAt"))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.bankcards.controller;
+
+import com.example.bankcards.entity.BankCard;
+import com.example.bankcards.entity.BankCardStatus;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.BankCardRepository;
+import com.example.bankcards.repository.RoleRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.jwt.JwtUtils;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// Список карт с владельцами: число SQL-выражений не зависит от размера страницы и числа разных владельцев
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(locations = "classpath:application-test.yml")
+class AdminCardListingIntegrationTest {
+
+    private static final int OWNERS = 30;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BankCardRepository bankCardRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private HibernateQueryCounter queryCounter;
+    private String adminToken;
+
+    @BeforeEach
+    void setUp() {
+        bankCardRepository.deleteAll();
+        userRepository.deleteAll();
+
+        Role userRole = roleRepository.findByName(Role.RoleName.USER)
+                .orElseGet(() -> roleRepository.save(new Role(Role.RoleName.USER)));
+        Role adminRole = roleRepository.findByName(Role.RoleName.ADMIN)
+                .orElseGet(() -> roleRepository.save(new Role(Role.RoleName.ADMIN)));
+
+        User admin = new User("admin", "admin@example.com", "hash");
+        admin.setRoles(Set.of(adminRole));
+        userRepository.save(admin);
+
+        // Каждая карта у своего владельца: при ленивой загрузке User это дало бы запрос на строку
+        for (int i = 0; i < OWNERS; i++) {
+            User owner = new User(String.format("owner%02d", i), String.format("owner%02d@example.com", i), "hash");
+            owner.setRoles(Set.of(userRole));
+            owner = userRepository.save(owner);
+
+            BankCard card = new BankCard(String.format("encrypted%016d", i), "Owner " + i, "12/30",
+                    BankCardStatus.ACTIVE, owner);
+            card.setBalance(i * 100L);
+            bankCardRepository.save(card);
+        }
+
+        adminToken = jwtUtils.generateTokenFromUsername("admin");
+        queryCounter = new HibernateQueryCounter(entityManagerFactory);
+    }
+
+    private HibernateQueryCounter.Snapshot listPage(int size) throws Exception {
+        queryCounter.reset();
+        mockMvc.perform(get("/api/cards/with-owners")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .param("size", String.valueOf(size))
+                        .param("sortBy", "balance")
+                        .param("direction", "asc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(size)))
+                .andExpect(jsonPath("$.content[0].ownerUsername").value("owner00"))
+                .andExpect(jsonPath("$.content[0].ownerEmail").value("owner00@example.com"))
+                .andExpect(jsonPath("$.content[1].card.balance").value(1.00))
+                .andExpect(jsonPath("$.totalElements").value(OWNERS));
+        return queryCounter.snapshot();
+    }
+
+    @Test
+    void getAllCardsWithOwners_ShouldUseConstantQueryCount() throws Exception {
+        // Act
+        HibernateQueryCounter.Snapshot small = listPage(5);
+        HibernateQueryCounter.Snapshot large = listPage(25);
+
+        // Assert: пользователь в фильтре + страница с владельцами + count
+        assertThat(small.statements()).as("страница из 5: %s", small).isEqualTo(3);
+        assertThat(large.statements()).as("страница из 25: %s", large).isEqualTo(small.statements());
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.bankcards.controller;
+
+import com.example.bankcards.entity.BankCard;
+import com.example.bankcards.entity.BankCardBalanceStripe;
+import com.example.bankcards.entity.BankCardStatus;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.BankCardBalanceStripeRepository;
+import com.example.bankcards.repository.BankCardRepository;
+import com.example.bankcards.repository.RoleRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.jwt.JwtUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Set;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(locations = "classpath:application-test.yml")
+class AdminUserControllerIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BankCardRepository bankCardRepository;
+
+    @Autowired
+    private BankCardBalanceStripeRepository stripeRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    private Role userRole;
+    private String adminToken;
+    private String userToken;
+    private User alice;
+    private User bob;
+
+    @BeforeEach
+    void setUp() {
+        stripeRepository.deleteAll();
+        bankCardRepository.deleteAll();
+        userRepository.deleteAll();
+
+        userRole = roleRepository.findByName(Role.RoleName.USER)
+                .orElseGet(() -> roleRepository.save(new Role(Role.RoleName.USER)));
+        Role adminRole = roleRepository.findByName(Role.RoleName.ADMIN)
+                .orElseGet(() -> roleRepository.save(new Role(Role.RoleName.ADMIN)));
+
+        User admin = new User("admin", "admin@example.com", "hash");
+        admin.setRoles(Set.of(adminRole));
+        userRepository.save(admin);
+
+        alice = saveUser("client_alice");
+        bob = saveUser("client_bob");
+        saveUser("clientXcarol");
+
+        saveCard(alice, BankCardStatus.ACTIVE, 100_050L);
+        saveCard(alice, BankCardStatus.BLOCKED, 20_000L);
+        BankCard striped = saveCard(bob, BankCardStatus.ACTIVE, 1_000L);
+        striped.setBalanceStripes(2);
+        bankCardRepository.save(striped);
+        stripeRepository.save(new BankCardBalanceStripe(striped.getId(), 0, 500L));
+        stripeRepository.save(new BankCardBalanceStripe(striped.getId(), 1, 250L));
+
+        adminToken = jwtUtils.generateTokenFromUsername("admin");
+        userToken = jwtUtils.generateTokenFromUsername("client_alice");
+    }
+
+    private User saveUser(String username) {
+        User user = new User(username, username + "@example.com", "hash");
+        user.setRoles(Set.of(userRole));
+        return userRepository.save(user);
+    }
+
+    private BankCard saveCard(User owner, BankCardStatus status, long balance) {
+        BankCard card = new BankCard("encrypted-" + owner.getUsername() + "-" + balance, owner.getUsername(),
+                "12/30", status, owner);
+        card.setBalance(balance);
+        return bankCardRepository.save(card);
+    }
+
+    @Test
+    void getUsers_ShouldReturnCardStatsPerUser() throws Exception {
+        mockMvc.perform(get("/api/admin/users")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .param("usernamePrefix", "client_"))
+                .andExpect(status().isOk())
+                // '_' в префиксе ищется буквально: clientXcarol не подходит
+                .andExpect(jsonPath("$.content", hasSize(2)))
+                .andExpect(jsonPath("$.content[0].username").value("client_alice"))
+                .andExpect(jsonPath("$.content[0].cardCount").value(2))
+                .andExpect(jsonPath("$.content[0].activeCardCount").value(1))
+                .andExpect(jsonPath("$.content[0].totalBalance").value(1200.50))
+                .andExpect(jsonPath("$.content[1].username").value("client_bob"))
+                .andExpect(jsonPath("$.content[1].cardCount").value(1))
+                .andExpect(jsonPath("$.content[1].totalBalance").value(17.50))
+                .andExpect(jsonPath("$.nextAfterId", nullValue()))
+                .andExpect(jsonPath("$.last").value(true));
+    }
+
+    @Test
+    void getUsers_ShouldPageByCursor() throws Exception {
+        mockMvc.perform(get("/api/admin/users")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .param("usernamePrefix", "client")
+                        .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(1)))
+                .andExpect(jsonPath("$.content[0].username").value("client_alice"))
+                .andExpect(jsonPath("$.nextAfterId").value(alice.getId()));
+
+        mockMvc.perform(get("/api/admin/users")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .param("usernamePrefix", "client")
+                        .param("afterId", String.valueOf(alice.getId()))
+                        .param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(2)))
+                .andExpect(jsonPath("$.content[0].username").value("client_bob"))
+                .andExpect(jsonPath("$.content[1].username").value("clientXcarol"))
+                .andExpect(jsonPath("$.content[1].cardCount").value(0))
+                .andExpect(jsonPath("$.content[1].totalBalance").value(0))
+                .andExpect(jsonPath("$.last").value(true));
+    }
+
+    @Test
+    void getUsers_WithInvalidSizeOrUserRole_ShouldBeRejected() throws Exception {
+        mockMvc.perform(get("/api/admin/users")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .param("size", "0"))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get("/api/admin/users")
+                        .header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isForbidden());
+    }
+}
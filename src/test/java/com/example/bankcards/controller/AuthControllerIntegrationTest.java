@@ -15,22 +15,27 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.util.HashSet;
 import java.util.Set;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
-@SpringBootTest
+// Цена BCrypt задана явно: проверка перехеширования ниже ожидает $2a$10$
+@SpringBootTest(properties = "app.password.strength=10")
 @AutoConfigureMockMvc
 @TestPropertySource(locations = "classpath:application-test.yml")
-@Transactional // Добавляем транзакционность для автоматического отката
+// Без @Transactional: логин выполняется в отдельном пуле и должен видеть закоммиченных пользователей,
+// очистка выполняется в setUp
 class AuthControllerIntegrationTest {
 
     @Autowired
@@ -163,9 +168,13 @@ class AuthControllerIntegrationTest {
 
         LoginRequest loginRequest = new LoginRequest("loginuser", "password123");
 
-        mockMvc.perform(post("/api/auth/login")
+        MvcResult result = mockMvc.perform(post("/api/auth/login")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(loginRequest)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.token", notNullValue()))
                 .andExpect(jsonPath("$.username").value("loginuser"))
@@ -176,9 +185,13 @@ class AuthControllerIntegrationTest {
     void login_WithInvalidCredentials_ShouldReturnUnauthorized() throws Exception {
         LoginRequest loginRequest = new LoginRequest("nonexistent", "wrongpassword");
 
-        mockMvc.perform(post("/api/auth/login")
+        MvcResult result = mockMvc.perform(post("/api/auth/login")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(loginRequest)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isUnauthorized());
     }
 
@@ -200,9 +213,40 @@ class AuthControllerIntegrationTest {
 
         LoginRequest loginRequest = new LoginRequest("passworduser", "wrongpassword");
 
-        mockMvc.perform(post("/api/auth/login")
+        MvcResult result = mockMvc.perform(post("/api/auth/login")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(loginRequest)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isUnauthorized());
     }
-}
\ No newline at end of file
+
+    @Test
+    void login_WithLegacyHash_ShouldRehashWithCurrentEncoder() throws Exception {
+        // Arrange: хеш без префикса алгоритма и с ценой ниже текущей
+        User user = new User("legacyuser", "legacy@example.com", new BCryptPasswordEncoder(4).encode("password123"));
+        user.addRole(roleRepository.findByName(Role.RoleName.USER)
+                .orElseThrow(() -> new RuntimeException("Role not found")));
+        userRepository.save(user);
+
+        LoginRequest loginRequest = new LoginRequest("legacyuser", "password123");
+
+        // Act
+        MvcResult result = mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(loginRequest)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk());
+
+        // Assert
+        String rehashed = userRepository.findByUsername("legacyuser").orElseThrow().getPassword();
+        assertThat(rehashed).startsWith("{bcrypt}$2a$10$");
+        assertThat(passwordEncoder.matches("password123", rehashed)).isTrue();
+        assertThat(passwordEncoder.upgradeEncoding(rehashed)).isFalse();
+    }
+}
@@ -6,6 +6,7 @@ import com.example.bankcards.entity.BankCard;
 import com.example.bankcards.entity.BankCardStatus;
 import com.example.bankcards.entity.Role;
 import com.example.bankcards.entity.User;
+import com.example.bankcards.monitoring.QueryStats;
 import com.example.bankcards.repository.BankCardRepository;
 import com.example.bankcards.repository.RoleRepository;
 import com.example.bankcards.repository.UserRepository;
@@ -20,6 +21,7 @@ import org.springframework.http.MediaType;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -27,6 +29,7 @@ import java.time.format.DateTimeFormatter;
 import java.util.HashSet;
 import java.util.Set;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -106,7 +109,7 @@ class BankCardControllerIntegrationTest {
         userCard1.setCardHolder("Test User");
         userCard1.setExpiryDate("12/30");
         userCard1.setStatus(BankCardStatus.ACTIVE);
-        userCard1.setBalance(new BigDecimal("1000.00"));
+        userCard1.setBalance(100_000L);
         userCard1.setUser(testUser);
         userCard1 = bankCardRepository.save(userCard1);
 
@@ -115,7 +118,7 @@ class BankCardControllerIntegrationTest {
         userCard2.setCardHolder("Test User");
         userCard2.setExpiryDate("12/30");
         userCard2.setStatus(BankCardStatus.ACTIVE);
-        userCard2.setBalance(new BigDecimal("500.00"));
+        userCard2.setBalance(50_000L);
         userCard2.setUser(testUser);
         userCard2 = bankCardRepository.save(userCard2);
     }
@@ -131,6 +134,23 @@ class BankCardControllerIntegrationTest {
                 .andExpect(jsonPath("$.content[0].maskedCardNumber", containsString("****")));
     }
 
+    @Test
+    void getMyCards_ShouldStayWithinQueryBudget() throws Exception {
+        // Act
+        MvcResult result = mockMvc.perform(get("/api/cards/my")
+                        .header("Authorization", "Bearer " + userToken)
+                        .param("page", "0")
+                        .param("size", "10"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        // Assert
+        // Пользователь с ролями в фильтре и страница карт - без запросов на каждую карту
+        QueryStats stats = (QueryStats) result.getRequest().getAttribute(QueryStats.REQUEST_ATTRIBUTE);
+        assertThat(stats.getQueryCount()).isLessThanOrEqualTo(2);
+        assertThat(stats.getRepeatedQueries()).isEmpty();
+    }
+
     @Test
     void getMyCard_WithValidCardId_ShouldReturnCard() throws Exception {
         mockMvc.perform(get("/api/cards/my/{cardId}", userCard1.getId())
@@ -157,7 +177,7 @@ class BankCardControllerIntegrationTest {
         otherUserCard.setCardHolder("Other User");
         otherUserCard.setExpiryDate("12/30");
         otherUserCard.setStatus(BankCardStatus.ACTIVE);
-        otherUserCard.setBalance(new BigDecimal("300.00"));
+        otherUserCard.setBalance(30_000L);
         otherUserCard.setUser(otherUser);
         otherUserCard = bankCardRepository.save(otherUserCard);
 
@@ -182,6 +202,37 @@ class BankCardControllerIntegrationTest {
                 .andExpect(content().string("Перевод успешно выполнен"));
     }
 
+    @Test
+    void transferBetweenCards_WithStripedCards_ShouldAggregateBalances() throws Exception {
+        // Arrange
+        mockMvc.perform(put("/api/cards/{cardId}/balance-stripes", userCard2.getId())
+                        .header("Authorization", "Bearer " + adminToken)
+                        .param("stripes", "4"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balance").value(500.00));
+
+        TransferRequest credit = new TransferRequest(userCard1.getId(), userCard2.getId(), new BigDecimal("300.00"));
+        TransferRequest debit = new TransferRequest(userCard2.getId(), userCard1.getId(), new BigDecimal("700.00"));
+
+        // Act
+        for (TransferRequest transfer : new TransferRequest[]{credit, debit}) {
+            mockMvc.perform(post("/api/cards/transfer")
+                            .header("Authorization", "Bearer " + userToken)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(transfer)))
+                    .andExpect(status().isOk());
+        }
+
+        // Assert
+        mockMvc.perform(get("/api/cards/my/{cardId}", userCard2.getId())
+                        .header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balance").value(100.00));
+        mockMvc.perform(get("/api/cards/my/{cardId}", userCard1.getId())
+                        .header("Authorization", "Bearer " + userToken))
+                .andExpect(jsonPath("$.balance").value(1400.00));
+    }
+
     @Test
     void transferBetweenCards_WithInsufficientFunds_ShouldReturnError() throws Exception {
         TransferRequest transferRequest = new TransferRequest(
@@ -0,0 +1,207 @@
+package com.example.bankcards.controller;
+
+import com.example.bankcards.entity.BankCard;
+import com.example.bankcards.entity.BankCardStatus;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.event.CardChangedEvent;
+import com.example.bankcards.repository.BankCardRepository;
+import com.example.bankcards.repository.RoleRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.jwt.JwtUtils;
+import com.example.bankcards.service.CardStreamService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// GET /api/cards/my/stream: изменения своих карт приходят событиями SSE после коммита, чужие - нет
+@SpringBootTest(properties = {
+        "app.card-stream.max-connections-per-user=1",
+        "app.card-stream.buffer-size=2",
+        "app.card-stream.loader-threads=1"
+})
+@AutoConfigureMockMvc
+@TestPropertySource(locations = "classpath:application-test.yml")
+class CardStreamIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BankCardRepository bankCardRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Autowired
+    private CardStreamService cardStreamService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private String aliceToken;
+    private String adminToken;
+    private User alice;
+    private BankCard aliceCard;
+    private BankCard bobCard;
+    private String expiry;
+
+    @BeforeEach
+    void setUp() {
+        bankCardRepository.deleteAll();
+        userRepository.deleteAll();
+
+        Role userRole = roleRepository.findByName(Role.RoleName.USER)
+                .orElseGet(() -> roleRepository.save(new Role(Role.RoleName.USER)));
+        Role adminRole = roleRepository.findByName(Role.RoleName.ADMIN)
+                .orElseGet(() -> roleRepository.save(new Role(Role.RoleName.ADMIN)));
+
+        User admin = new User("admin", "admin@example.com", "hash");
+        admin.setRoles(Set.of(adminRole));
+        userRepository.save(admin);
+
+        alice = new User("alice", "alice@example.com", "hash");
+        alice.setRoles(Set.of(userRole));
+        alice = userRepository.save(alice);
+        User bob = new User("bob", "bob@example.com", "hash");
+        bob.setRoles(Set.of(userRole));
+        bob = userRepository.save(bob);
+
+        expiry = LocalDate.now().plusYears(3).format(DateTimeFormatter.ofPattern("MM/yy"));
+        aliceCard = bankCardRepository.save(new BankCard("enc-stream-1", "ALICE", expiry, BankCardStatus.ACTIVE, alice));
+        bobCard = bankCardRepository.save(new BankCard("enc-stream-2", "BOB", expiry, BankCardStatus.ACTIVE, bob));
+
+        aliceToken = jwtUtils.generateTokenFromUsername("alice");
+        adminToken = jwtUtils.generateTokenFromUsername("admin");
+    }
+
+    @Test
+    void streamMyCards_ShouldPushOwnCardChangesOnly() throws Exception {
+        // Arrange
+        MvcResult stream = openStream();
+
+        // Act: сначала меняется чужая карта, потом своя
+        mockMvc.perform(put("/api/cards/{cardId}/block", bobCard.getId())
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk());
+        mockMvc.perform(put("/api/cards/my/{cardId}/block", aliceCard.getId())
+                        .header("Authorization", "Bearer " + aliceToken))
+                .andExpect(status().isOk());
+
+        // Assert
+        String events = awaitContent(stream, "\"status\":\"BLOCKED\"");
+        assertTrue(events.contains("event:" + CardStreamService.CARD_EVENT), events);
+        assertTrue(events.contains("\"id\":" + aliceCard.getId()), events);
+        assertFalse(events.contains("\"id\":" + bobCard.getId()), events);
+    }
+
+    @Test
+    void streamMyCards_AboveConnectionLimit_ShouldCloseOldestConnection() throws Exception {
+        // Arrange
+        MvcResult first = openStream();
+        int connections = cardStreamService.getConnectionCount();
+
+        // Act
+        MvcResult second = openStream();
+
+        // Assert: лимит 1 - первое соединение завершено (асинхронный результат выставлен), открытых не прибавилось
+        assertDoesNotThrow(() -> first.getAsyncResult(1000));
+        assertThrows(IllegalStateException.class, () -> second.getAsyncResult(100));
+        assertEquals(connections, cardStreamService.getConnectionCount());
+    }
+
+    @Test
+    void streamMyCards_WhenBufferOverflows_ShouldSendResync() throws Exception {
+        // Arrange: единственный поток чтения занят - изменения копятся в буфере соединения (2 карты)
+        MvcResult stream = openStream();
+        BankCard second = bankCardRepository.save(new BankCard("enc-stream-3", "ALICE", expiry, BankCardStatus.ACTIVE, alice));
+        BankCard third = bankCardRepository.save(new BankCard("enc-stream-4", "ALICE", expiry, BankCardStatus.ACTIVE, alice));
+        ExecutorService loader = (ExecutorService) ReflectionTestUtils.getField(cardStreamService, "loader");
+        CountDownLatch release = new CountDownLatch(1);
+        loader.execute(() -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        // Act
+        for (BankCard card : Set.of(aliceCard, second, third)) {
+            eventPublisher.publishEvent(CardChangedEvent.statusChanged(card));
+        }
+        release.countDown();
+
+        // Assert: вместо карт - одно событие resync
+        String events = awaitContent(stream, "event:" + CardStreamService.RESYNC_EVENT);
+        assertTrue(events.contains("event:" + CardStreamService.RESYNC_EVENT), events);
+        assertFalse(events.contains("event:" + CardStreamService.CARD_EVENT + "\n"), events);
+    }
+
+    @Test
+    void streamMyCards_WhenCardDeleted_ShouldSendCardDeleted() throws Exception {
+        // Arrange
+        MvcResult stream = openStream();
+
+        // Act
+        mockMvc.perform(delete("/api/cards/{cardId}", aliceCard.getId())
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk());
+
+        // Assert
+        String events = awaitContent(stream, "event:" + CardStreamService.CARD_DELETED_EVENT);
+        assertTrue(events.contains("event:" + CardStreamService.CARD_DELETED_EVENT), events);
+        assertTrue(events.contains("\"id\":" + aliceCard.getId()), events);
+    }
+
+    private MvcResult openStream() throws Exception {
+        return mockMvc.perform(get("/api/cards/my/stream")
+                        .header("Authorization", "Bearer " + aliceToken)
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+    }
+
+    // События отправляются пулом потока карт после коммита
+    private String awaitContent(MvcResult stream, String expected) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        String content = stream.getResponse().getContentAsString();
+        while (!content.contains(expected) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            content = stream.getResponse().getContentAsString();
+        }
+        return content;
+    }
+}
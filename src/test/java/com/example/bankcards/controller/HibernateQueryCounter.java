@@ -0,0 +1,35 @@
+package com.example.bankcards.controller;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+// Снимает счетчики Hibernate Statistics вокруг одного MockMvc-вызова.
+// Статистика общая для SessionFactory, поэтому тесты с ней не должны выполняться параллельно.
+class HibernateQueryCounter {
+
+    private final Statistics statistics;
+
+    HibernateQueryCounter(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        this.statistics.setStatisticsEnabled(true);
+    }
+
+    void reset() {
+        statistics.clear();
+    }
+
+    Snapshot snapshot() {
+        return new Snapshot(
+                statistics.getPrepareStatementCount(),
+                statistics.getEntityLoadCount() + statistics.getCollectionLoadCount(),
+                statistics.getFlushCount());
+    }
+
+    record Snapshot(long statements, long entityLoads, long flushes) {
+        @Override
+        public String toString() {
+            return statements + " statements, " + entityLoads + " entity/collection loads, " + flushes + " flushes";
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.example.bankcards.controller;
+
+import com.example.bankcards.dto.BankCardCreateRequest;
+import com.example.bankcards.dto.LoginRequest;
+import com.example.bankcards.dto.SignupRequest;
+import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.entity.BankCard;
+import com.example.bankcards.entity.BankCardStatus;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.BankCardRepository;
+import com.example.bankcards.repository.RoleRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.jwt.JwtUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Бюджеты SQL на каждый endpoint: тест падает, если изменение в сервисах добавило запросы
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(locations = "classpath:application-test.yml")
+class QueryBudgetIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BankCardRepository bankCardRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private HibernateQueryCounter queryCounter;
+    private User testUser;
+    private String userToken;
+    private String adminToken;
+    private BankCard userCard1;
+    private BankCard userCard2;
+
+    @BeforeEach
+    void setUp() {
+        bankCardRepository.deleteAll();
+        userRepository.deleteAll();
+
+        Role userRole = roleRepository.findByName(Role.RoleName.USER)
+                .orElseGet(() -> roleRepository.save(new Role(Role.RoleName.USER)));
+        Role adminRole = roleRepository.findByName(Role.RoleName.ADMIN)
+                .orElseGet(() -> roleRepository.save(new Role(Role.RoleName.ADMIN)));
+
+        testUser = new User("testuser", "test@example.com", passwordEncoder.encode("password123"));
+        testUser.setRoles(Set.of(userRole));
+        testUser = userRepository.save(testUser);
+
+        User adminUser = new User("admin", "admin@example.com", passwordEncoder.encode("admin123"));
+        adminUser.setRoles(Set.of(adminRole));
+        userRepository.save(adminUser);
+
+        userToken = jwtUtils.generateTokenFromUsername(testUser.getUsername());
+        adminToken = jwtUtils.generateTokenFromUsername(adminUser.getUsername());
+
+        userCard1 = bankCardRepository.save(newCard("encrypted1111111111111111", BankCardStatus.ACTIVE, 100_000L));
+        userCard2 = bankCardRepository.save(newCard("encrypted2222222222222222", BankCardStatus.ACTIVE, 50_000L));
+
+        queryCounter = new HibernateQueryCounter(entityManagerFactory);
+    }
+
+    private BankCard newCard(String cardNumber, BankCardStatus status, long balance) {
+        BankCard card = new BankCard(cardNumber, "Test User", "12/30", status, testUser);
+        card.setBalance(balance);
+        return card;
+    }
+
+    // Выполняет запрос и проверяет, что количество SQL-выражений и flush не превысило бюджет
+    private void assertWithinBudget(RequestBuilder requestBuilder, long maxStatements, long maxFlushes) throws Exception {
+        queryCounter.reset();
+
+        MvcResult result = mockMvc.perform(requestBuilder).andReturn();
+        if (result.getRequest().isAsyncStarted()) {
+            result = mockMvc.perform(asyncDispatch(result)).andReturn();
+        }
+
+        HibernateQueryCounter.Snapshot actual = queryCounter.snapshot();
+        assertThat(result.getResponse().getStatus())
+                .as("статус ответа")
+                .isLessThan(400);
+        assertThat(actual.statements())
+                .as("SQL-выражения: %s", actual)
+                .isLessThanOrEqualTo(maxStatements);
+        assertThat(actual.flushes())
+                .as("flush: %s", actual)
+                .isLessThanOrEqualTo(maxFlushes);
+    }
+
+    @Test
+    void getMyCards_ShouldStayWithinBudget() throws Exception {
+        // Пользователь с ролями в фильтре + страница карт (count не нужен для неполной первой страницы)
+        assertWithinBudget(get("/api/cards/my")
+                .header("Authorization", "Bearer " + userToken)
+                .param("page", "0")
+                .param("size", "10"), 2, 0);
+    }
+
+    @Test
+    void getMyCard_ShouldStayWithinBudget() throws Exception {
+        assertWithinBudget(get("/api/cards/my/{cardId}", userCard1.getId())
+                .header("Authorization", "Bearer " + userToken), 2, 0);
+    }
+
+    @Test
+    void requestBlockMyCard_ShouldStayWithinBudget() throws Exception {
+        assertWithinBudget(put("/api/cards/my/{cardId}/block", userCard1.getId())
+                .header("Authorization", "Bearer " + userToken), 3, 1);
+    }
+
+    @Test
+    void transferBetweenCards_ShouldStayWithinBudget() throws Exception {
+        TransferRequest transferRequest = new TransferRequest(userCard1.getId(), userCard2.getId(), new BigDecimal("100.00"));
+
+        assertWithinBudget(post("/api/cards/transfer")
+                .header("Authorization", "Bearer " + userToken)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(transferRequest)), 5, 1);
+    }
+
+    @Test
+    void getAllCards_ShouldStayWithinBudget() throws Exception {
+        assertWithinBudget(get("/api/cards")
+                .header("Authorization", "Bearer " + adminToken)
+                .param("page", "0")
+                .param("size", "10"), 2, 0);
+    }
+
+    @Test
+    void createCard_ShouldStayWithinBudget() throws Exception {
+        String futureDate = LocalDate.now().plusYears(2).format(DateTimeFormatter.ofPattern("MM/yy"));
+        BankCardCreateRequest createRequest = new BankCardCreateRequest(
+                "1234567812345678", "New Holder", futureDate, testUser.getId());
+
+        assertWithinBudget(post("/api/cards")
+                .header("Authorization", "Bearer " + adminToken)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(createRequest)), 4, 1);
+    }
+
+    @Test
+    void blockCard_ShouldStayWithinBudget() throws Exception {
+        assertWithinBudget(put("/api/cards/{cardId}/block", userCard1.getId())
+                .header("Authorization", "Bearer " + adminToken), 3, 1);
+    }
+
+    @Test
+    void activateCard_ShouldStayWithinBudget() throws Exception {
+        BankCard blocked = bankCardRepository.save(newCard("encrypted3333333333333333", BankCardStatus.BLOCKED, 0L));
+
+        assertWithinBudget(put("/api/cards/{cardId}/activate", blocked.getId())
+                .header("Authorization", "Bearer " + adminToken), 3, 1);
+    }
+
+    @Test
+    void deleteCard_ShouldStayWithinBudget() throws Exception {
+        assertWithinBudget(delete("/api/cards/{cardId}", userCard1.getId())
+                .header("Authorization", "Bearer " + adminToken), 3, 1);
+    }
+
+    @Test
+    void login_ShouldStayWithinBudget() throws Exception {
+        LoginRequest loginRequest = new LoginRequest("testuser", "password123");
+
+        assertWithinBudget(post("/api/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(loginRequest)), 1, 0);
+    }
+
+    @Test
+    void register_ShouldStayWithinBudget() throws Exception {
+        SignupRequest signupRequest = new SignupRequest("newuser", "new@example.com", "password123");
+
+        // Проверка имени и email одним запросом до хеширования пароля; saveAndFlush сбрасывает insert явно,
+        // чтобы поймать нарушение уникальности при гонке, плюс flush при коммите
+        assertWithinBudget(post("/api/auth/register")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(signupRequest)), 3, 2);
+    }
+
+    @Test
+    void getUsers_ShouldStayWithinBudget() throws Exception {
+        // Пользователь с ролями в фильтре + один группирующий запрос на всю страницу
+        assertWithinBudget(get("/api/admin/users")
+                .header("Authorization", "Bearer " + adminToken)
+                .param("size", "10"), 2, 0);
+    }
+
+    @Test
+    void importUsers_ShouldStayWithinBudget() throws Exception {
+        List<SignupRequest> requests = List.of(
+                new SignupRequest("imported1", "imported1@example.com", "password123"),
+                new SignupRequest("imported2", "imported2@example.com", "password123"));
+
+        // Фильтр + две IN-выборки занятых имен и email + по insert в users и user_roles на пользователя
+        assertWithinBudget(post("/api/admin/users/import")
+                .header("Authorization", "Bearer " + adminToken)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(requests)), 7, 1);
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.bankcards.controller;
+
+import com.example.bankcards.entity.BankCard;
+import com.example.bankcards.entity.BankCardStatus;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.monitoring.ServerTimingFilter;
+import com.example.bankcards.repository.BankCardRepository;
+import com.example.bankcards.repository.RoleRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.jwt.JwtUtils;
+import com.example.bankcards.service.EncryptionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "app.server-timing.enabled=true")
+@AutoConfigureMockMvc
+@TestPropertySource(locations = "classpath:application-test.yml")
+class ServerTimingIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BankCardRepository bankCardRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private EncryptionService encryptionService;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    private String userToken;
+
+    @BeforeEach
+    void setUp() {
+        bankCardRepository.deleteAll();
+        userRepository.deleteAll();
+
+        Role userRole = roleRepository.findByName(Role.RoleName.USER)
+                .orElseGet(() -> roleRepository.save(new Role(Role.RoleName.USER)));
+        User user = new User("timinguser", "timing@example.com", "hash");
+        user.setRoles(Set.of(userRole));
+        user = userRepository.save(user);
+        userToken = jwtUtils.generateTokenFromUsername(user.getUsername());
+
+        // Просроченная активная карта: чтение запишет статус EXPIRED
+        bankCardRepository.save(new BankCard(encryptionService.encrypt("4111111111111111"), "Timing User",
+                "01/20", BankCardStatus.ACTIVE, user));
+    }
+
+    @Test
+    void getMyCards_ShouldReportStagesInServerTimingHeader() throws Exception {
+        // Act
+        String header = mockMvc.perform(get("/api/cards/my")
+                        .header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getHeader(ServerTimingFilter.HEADER);
+
+        // Assert
+        assertThat(header)
+                .contains("jwt;dur=", "user;dur=", "db;dur=", "crypto;dur=", "status;dur=", "json;dur=")
+                .matches(".*total;dur=\\d+\\.\\d{2}");
+    }
+
+    @Test
+    void unauthenticatedRequest_ShouldStillCarryTotal() throws Exception {
+        // Act
+        String header = mockMvc.perform(get("/api/cards/my"))
+                .andReturn()
+                .getResponse()
+                .getHeader(ServerTimingFilter.HEADER);
+
+        // Assert
+        assertThat(header).contains("total;dur=").doesNotContain("user;dur=");
+    }
+}
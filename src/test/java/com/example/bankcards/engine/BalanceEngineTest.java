@@ -0,0 +1,193 @@
+package com.example.bankcards.engine;
+
+import com.example.bankcards.exception.BadRequestException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BalanceEngineTest {
+
+    // bank_cards в памяти
+    private static class InMemoryStore implements BalanceStore {
+        final Map<Long, Long> rows = new ConcurrentHashMap<>();
+        volatile long snapshotSeq;
+        // Сбой после коммита снимка, до отметки в заголовке журнала
+        volatile boolean failAfterSave;
+
+        @Override
+        public Map<Long, Long> loadBalances(Collection<Long> cardIds) {
+            Map<Long, Long> result = new HashMap<>();
+            cardIds.forEach(id -> result.put(id, rows.getOrDefault(id, 0L)));
+            return result;
+        }
+
+        @Override
+        public synchronized void saveBalances(Map<Long, Long> balances, long journalSeq) {
+            rows.putAll(balances);
+            snapshotSeq = journalSeq;
+            if (failAfterSave) {
+                throw new IllegalStateException("Сбой после записи снимка");
+            }
+        }
+
+        @Override
+        public long loadSnapshotSeq() {
+            return snapshotSeq;
+        }
+    }
+
+    @TempDir
+    Path tempDir;
+
+    private final InMemoryStore store = new InMemoryStore();
+    private BalanceEngine engine;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (engine != null) {
+            engine.shutdown();
+        }
+    }
+
+    private BalanceEngine startEngine(long snapshotIntervalMs) throws Exception {
+        return startEngine(snapshotIntervalMs, 1000);
+    }
+
+    private BalanceEngine startEngine(long snapshotIntervalMs, int maxCards) throws Exception {
+        BalanceJournal journal = new BalanceJournal(tempDir.resolve("balance.journal"), 64 * 1024, true);
+        return new BalanceEngine(store, journal, 1024, 64, snapshotIntervalMs, maxCards);
+    }
+
+    private void transfer(long from, long to, long amount) throws Exception {
+        engine.transfer(from, to, amount).get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void transfer_ShouldMoveBalanceInMemory() throws Exception {
+        // Arrange
+        store.rows.put(1L, 100_000L);
+        store.rows.put(2L, 0L);
+        engine = startEngine(60_000);
+
+        // Act
+        transfer(1, 2, 25_050L);
+
+        // Assert
+        assertEquals(74_950L, engine.getBalance(1L));
+        assertEquals(25_050L, engine.getBalance(2L));
+        assertEquals(100_000L, store.rows.get(1L));
+    }
+
+    @Test
+    void transfer_WithInsufficientFunds_ShouldFailOnlyThatTransfer() throws Exception {
+        // Arrange
+        store.rows.put(1L, 1_000L);
+        engine = startEngine(60_000);
+
+        // Act
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> transfer(1, 2, 2_000L));
+        transfer(1, 2, 500L);
+
+        // Assert
+        assertInstanceOf(BadRequestException.class, exception.getCause());
+        assertEquals(500L, engine.getBalance(1L));
+    }
+
+    @Test
+    void restart_AfterCrash_ShouldReplayJournal() throws Exception {
+        // Arrange
+        store.rows.put(1L, 100_000L);
+        engine = startEngine(60_000);
+        transfer(1, 2, 10_000L);
+        transfer(2, 3, 4_000L);
+        engine.halt();
+        engine.closeJournal();
+        assertEquals(100_000L, store.rows.get(1L));
+
+        // Act
+        engine = startEngine(60_000);
+
+        // Assert
+        assertEquals(90_000L, store.rows.get(1L));
+        assertEquals(6_000L, store.rows.get(2L));
+        assertEquals(4_000L, store.rows.get(3L));
+        assertEquals(6_000L, engine.getBalance(2L));
+    }
+
+    @Test
+    void restart_AfterSnapshotSavedButNotMarkedInJournal_ShouldNotReplayCoveredTransfers() throws Exception {
+        // Arrange: снимок закоммичен в базе, а отметка в заголовке журнала не записана
+        store.rows.put(1L, 100_000L);
+        store.failAfterSave = true;
+        engine = startEngine(10);
+        transfer(1, 2, 10_000L);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (store.snapshotSeq == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        engine.halt();
+        engine.closeJournal();
+        store.failAfterSave = false;
+        assertEquals(90_000L, store.rows.get(1L));
+
+        // Act
+        engine = startEngine(60_000);
+
+        // Assert: перевод не применен второй раз
+        assertEquals(90_000L, store.rows.get(1L));
+        assertEquals(10_000L, store.rows.get(2L));
+        transfer(1, 2, 1_000L);
+        assertEquals(89_000L, engine.getBalance(1L));
+    }
+
+    @Test
+    void snapshot_ShouldPersistBalancesPeriodically() throws Exception {
+        // Arrange
+        store.rows.put(1L, 10_000L);
+        engine = startEngine(10);
+
+        // Act
+        transfer(1, 2, 3_000L);
+
+        // Assert
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (store.rows.getOrDefault(2L, 0L) != 3_000L && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(7_000L, store.rows.get(1L));
+        assertEquals(3_000L, store.rows.get(2L));
+    }
+
+    @Test
+    void coldCards_AfterSnapshot_ShouldBeEvictedAndReloadedFromStore() throws Exception {
+        // Arrange
+        store.rows.put(1L, 10_000L);
+        store.rows.put(3L, 10_000L);
+        engine = startEngine(10, 2);
+        transfer(1, 2, 1_000L);
+
+        // Act: карты 3 и 4 вытесняют 1 и 2, как только их балансы попадут в снимок
+        transfer(3, 4, 2_000L);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (engine.getBalance(1L) != null && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        // Assert: баланс вытесненной карты читается из снимка
+        assertNull(engine.getBalance(1L));
+        assertEquals(9_000L, store.rows.get(1L));
+        transfer(1, 2, 500L);
+        assertEquals(8_500L, engine.getBalance(1L));
+        assertEquals(1_500L, engine.getBalance(2L));
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.bankcards.engine;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BalanceJournalTest {
+
+    private static final long SIZE = 4096;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void replay_AfterReopen_ShouldReturnAppendedEntries() throws Exception {
+        // Arrange
+        Path path = tempDir.resolve("balance.journal");
+        try (BalanceJournal journal = new BalanceJournal(path, SIZE, true)) {
+            journal.replay();
+            journal.append(1, 2, 100);
+            journal.append(2, 3, 50);
+            journal.flush();
+        }
+
+        // Act
+        List<BalanceJournal.Entry> entries;
+        try (BalanceJournal journal = new BalanceJournal(path, SIZE, true)) {
+            entries = journal.replay();
+        }
+
+        // Assert
+        assertEquals(List.of(
+                new BalanceJournal.Entry(1, 1, 2, 100),
+                new BalanceJournal.Entry(2, 2, 3, 50)), entries);
+    }
+
+    @Test
+    void replay_ShouldSkipEntriesCoveredBySnapshot() throws Exception {
+        // Arrange
+        Path path = tempDir.resolve("balance.journal");
+        try (BalanceJournal journal = new BalanceJournal(path, SIZE, true)) {
+            journal.replay();
+            journal.append(1, 2, 100);
+            journal.append(2, 3, 50);
+            journal.markSnapshot(1);
+        }
+
+        // Act
+        List<BalanceJournal.Entry> entries;
+        try (BalanceJournal journal = new BalanceJournal(path, SIZE, true)) {
+            entries = journal.replay();
+        }
+
+        // Assert
+        assertEquals(List.of(new BalanceJournal.Entry(2, 2, 3, 50)), entries);
+    }
+
+    @Test
+    void replay_ShouldStopAtTornRecord() throws Exception {
+        // Arrange
+        Path path = tempDir.resolve("balance.journal");
+        try (BalanceJournal journal = new BalanceJournal(path, SIZE, true)) {
+            journal.replay();
+            journal.append(1, 2, 100);
+            journal.append(2, 3, 50);
+        }
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            // Портим сумму второй записи, crc перестает сходиться
+            file.seek(BalanceJournal.HEADER_SIZE + BalanceJournal.RECORD_SIZE + 24);
+            file.writeLong(999);
+        }
+
+        // Act
+        List<BalanceJournal.Entry> entries;
+        try (BalanceJournal journal = new BalanceJournal(path, SIZE, true)) {
+            entries = journal.replay();
+            journal.append(3, 1, 10);
+        }
+
+        // Assert
+        assertEquals(List.of(new BalanceJournal.Entry(1, 1, 2, 100)), entries);
+    }
+
+    @Test
+    void reset_ShouldContinueSequenceFromFileStart() throws Exception {
+        // Arrange
+        Path path = tempDir.resolve("balance.journal");
+        try (BalanceJournal journal = new BalanceJournal(path, SIZE, true)) {
+            journal.replay();
+            journal.append(1, 2, 100);
+            journal.append(2, 3, 50);
+            journal.append(3, 1, 20);
+            journal.markSnapshot(3);
+            journal.reset();
+
+            // Act
+            journal.append(1, 3, 5);
+        }
+
+        // Assert
+        try (BalanceJournal journal = new BalanceJournal(path, SIZE, true)) {
+            assertEquals(List.of(new BalanceJournal.Entry(4, 1, 3, 5)), journal.replay());
+            assertEquals(4, journal.getLastSeq());
+        }
+    }
+}
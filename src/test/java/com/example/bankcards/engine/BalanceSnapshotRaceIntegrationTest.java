@@ -0,0 +1,112 @@
+package com.example.bankcards.engine;
+
+import com.example.bankcards.entity.BankCard;
+import com.example.bankcards.entity.BankCardStatus;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.BankCardRepository;
+import com.example.bankcards.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Смена статуса карты, загруженной до снимка движка, не должна возвращать в bank_cards старый баланс:
+// снимок покрыл журнал, и после перезапуска досчитывать уже нечего
+@SpringBootTest
+@TestPropertySource(locations = "classpath:application-test.yml")
+class BalanceSnapshotRaceIntegrationTest {
+
+    @Autowired
+    private BankCardRepository bankCardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path tempDir;
+
+    private BalanceEngine engine;
+    private BankCard from;
+    private BankCard to;
+
+    @BeforeEach
+    void setUp() {
+        bankCardRepository.deleteAll();
+        userRepository.deleteAll();
+
+        User owner = userRepository.save(new User("engine-owner", "engine-owner@example.com", "hash"));
+        from = new BankCard("enc-engine-1", "OWNER", "12/30", BankCardStatus.ACTIVE, owner);
+        from.setBalance(100_000L);
+        from = bankCardRepository.save(from);
+        to = bankCardRepository.save(new BankCard("enc-engine-2", "OWNER", "12/30", BankCardStatus.ACTIVE, owner));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (engine != null) {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    void blockCardLoadedBeforeSnapshot_ShouldKeepSnapshotBalanceAfterRecovery() throws Exception {
+        // Arrange
+        BalanceJournal journal = new BalanceJournal(tempDir.resolve("balance.journal"), 64 * 1024, true);
+        engine = new BalanceEngine(new JdbcBalanceStore(jdbcTemplate, namedJdbcTemplate, transactionManager), journal, 1024, 64, 10, 1000);
+
+        // Act: карта прочитана, затем перевод и снимок движка, затем блокировка прочитанной карты
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            BankCard staleCard = bankCardRepository.findById(from.getId()).orElseThrow();
+            try {
+                engine.transfer(from.getId(), to.getId(), 10_000L).get(5, TimeUnit.SECONDS);
+                awaitSnapshot(journal);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            staleCard.setStatus(BankCardStatus.BLOCKED);
+            bankCardRepository.save(staleCard);
+        });
+
+        // Перезапуск после сбоя: журнал досчитывается поверх bank_cards
+        engine.halt();
+        engine.closeJournal();
+        BalanceJournal reopened = new BalanceJournal(tempDir.resolve("balance.journal"), 64 * 1024, true);
+        engine = new BalanceEngine(new JdbcBalanceStore(jdbcTemplate, namedJdbcTemplate, transactionManager), reopened, 1024, 64, 60_000, 1000);
+
+        // Assert
+        BankCard saved = bankCardRepository.findById(from.getId()).orElseThrow();
+        assertEquals(BankCardStatus.BLOCKED, saved.getStatus());
+        assertEquals(90_000L, saved.getBalance());
+        assertEquals(10_000L, bankCardRepository.findById(to.getId()).orElseThrow().getBalance());
+    }
+
+    // Снимок записан в bank_cards и отмечен в журнале
+    private void awaitSnapshot(BalanceJournal journal) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (journal.getSnapshotSeq() != journal.getLastSeq() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(journal.getLastSeq(), journal.getSnapshotSeq());
+    }
+}
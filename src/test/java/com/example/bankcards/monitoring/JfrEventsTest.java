@@ -0,0 +1,76 @@
+package com.example.bankcards.monitoring;
+
+import com.example.bankcards.security.jwt.JwtUtils;
+import com.example.bankcards.service.EncryptionService;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JfrEventsTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void cryptoAndJwt_ShouldEmitEventsWhenEnabled() throws Exception {
+        // Arrange
+        EncryptionService encryptionService = new EncryptionService();
+        ReflectionTestUtils.setField(encryptionService, "encryptionKey", "testEncryptionKey12345678901234567890123456789012");
+        ReflectionTestUtils.setField(encryptionService, "keys", "1:testKeyOne");
+        ReflectionTestUtils.setField(encryptionService, "activeKeyId", 1);
+        ReflectionTestUtils.setField(encryptionService, "lookupKey", "testLookupKey");
+        encryptionService.init();
+        JwtUtils jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecret", "testSecretKeyForJwtThatIsLongEnoughForHS256Algorithm123");
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", 60_000);
+        Path file = tempDir.resolve("events.jfr");
+
+        // Act
+        try (Recording recording = new Recording()) {
+            recording.enable(CryptoEvent.class).withoutThreshold();
+            recording.enable(JwtVerifyEvent.class).withoutThreshold();
+            recording.start();
+
+            encryptionService.decrypt(encryptionService.encrypt("4111111111111111"));
+            jwtUtils.validateJwtToken(jwtUtils.generateTokenFromUsername("testuser"));
+            jwtUtils.validateJwtToken("not-a-token");
+
+            recording.stop();
+            recording.dump(file);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+
+        // Assert
+        List<RecordedEvent> crypto = events.stream()
+                .filter(event -> event.getEventType().getName().equals("com.example.bankcards.Crypto"))
+                .toList();
+        assertEquals(List.of("encrypt", "decrypt"), crypto.stream().map(event -> event.getString("operation")).toList());
+        assertTrue(crypto.stream().allMatch(event -> event.getBoolean("success")));
+
+        List<RecordedEvent> jwt = events.stream()
+                .filter(event -> event.getEventType().getName().equals("com.example.bankcards.JwtVerify"))
+                .toList();
+        assertEquals(2, jwt.size());
+        assertTrue(jwt.get(0).getBoolean("valid"));
+        assertFalse(jwt.get(1).getBoolean("valid"));
+        assertNotNull(jwt.get(1).getString("failure"));
+    }
+
+    @Test
+    void amountBucket_ShouldHideExactAmount() {
+        // Assert
+        assertEquals("<100", TransferEvent.amountBucket(9_999L));
+        assertEquals("100-1k", TransferEvent.amountBucket(10_000L));
+        assertEquals("1k-10k", TransferEvent.amountBucket(500_000L));
+        assertEquals("10k-100k", TransferEvent.amountBucket(1_000_000L));
+        assertEquals(">=100k", TransferEvent.amountBucket(10_000_000L));
+    }
+}
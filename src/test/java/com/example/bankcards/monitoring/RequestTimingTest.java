@@ -0,0 +1,58 @@
+package com.example.bankcards.monitoring;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestTimingTest {
+
+    @AfterEach
+    void tearDown() {
+        RequestTiming.clear();
+    }
+
+    @Test
+    void stage_WithoutCurrentRequest_ShouldBeIgnored() {
+        // Act
+        RequestTiming.start(RequestTiming.Stage.DB);
+        RequestTiming.stop(RequestTiming.Stage.DB);
+
+        // Assert
+        assertNull(RequestTiming.current());
+    }
+
+    @Test
+    void toServerTiming_ShouldListOnlyMeasuredStagesAndTotal() throws Exception {
+        // Arrange
+        RequestTiming timing = RequestTiming.start();
+
+        // Act
+        RequestTiming.start(RequestTiming.Stage.DB);
+        Thread.sleep(2);
+        RequestTiming.stop(RequestTiming.Stage.DB);
+        RequestTiming.start(RequestTiming.Stage.DB);
+        RequestTiming.stop(RequestTiming.Stage.DB);
+        String header = timing.toServerTiming();
+
+        // Assert
+        assertEquals(2, timing.getCount(RequestTiming.Stage.DB));
+        assertTrue(timing.getNanos(RequestTiming.Stage.DB) >= 2_000_000);
+        assertTrue(header.matches("db;dur=\\d+\\.\\d{2}, total;dur=\\d+\\.\\d{2}"), header);
+    }
+
+    @Test
+    void getNanos_ShouldIncludeStageStillInProgress() throws Exception {
+        // Arrange
+        RequestTiming timing = RequestTiming.start();
+
+        // Act
+        RequestTiming.start(RequestTiming.Stage.JSON);
+        Thread.sleep(2);
+
+        // Assert
+        assertTrue(timing.getNanos(RequestTiming.Stage.JSON) >= 2_000_000);
+        assertEquals(0, timing.getCount(RequestTiming.Stage.JSON));
+        assertTrue(timing.toLogFields().contains("json_count=0"));
+    }
+}
@@ -13,7 +13,6 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.test.context.TestPropertySource;
 
-import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
 
@@ -47,7 +46,7 @@ class BankCardRepositoryTest {
         card1.setCardHolder("Test User");
         card1.setExpiryDate("12/30");
         card1.setStatus(BankCardStatus.ACTIVE);
-        card1.setBalance(new BigDecimal("1000.00"));
+        card1.setBalance(100_000L);
         card1.setUser(savedUser);
         entityManager.persistAndFlush(card1);
 
@@ -56,7 +55,7 @@ class BankCardRepositoryTest {
         card2.setCardHolder("Test User");
         card2.setExpiryDate("12/30");
         card2.setStatus(BankCardStatus.ACTIVE);
-        card2.setBalance(new BigDecimal("500.00"));
+        card2.setBalance(50_000L);
         card2.setUser(savedUser);
         entityManager.persistAndFlush(card2);
 
@@ -83,7 +82,7 @@ class BankCardRepositoryTest {
             card.setCardHolder("Test User " + i);
             card.setExpiryDate("12/30");
             card.setStatus(BankCardStatus.ACTIVE);
-            card.setBalance(new BigDecimal("1000.00"));
+            card.setBalance(100_000L);
             card.setUser(savedUser);
             entityManager.persistAndFlush(card);
         }
@@ -113,7 +112,7 @@ class BankCardRepositoryTest {
         card.setCardHolder("Test User");
         card.setExpiryDate("12/30");
         card.setStatus(BankCardStatus.ACTIVE);
-        card.setBalance(new BigDecimal("1000.00"));
+        card.setBalance(100_000L);
         card.setUser(savedUser);
         BankCard savedCard = entityManager.persistAndFlush(card);
 
@@ -136,7 +135,7 @@ class BankCardRepositoryTest {
         card.setCardHolder("Test User");
         card.setExpiryDate("12/30");
         card.setStatus(BankCardStatus.ACTIVE);
-        card.setBalance(new BigDecimal("1000.00"));
+        card.setBalance(100_000L);
 
         User user = new User();
         user.setUsername("testuser");
@@ -0,0 +1,64 @@
+package com.example.bankcards.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoginExecutorTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private LoginExecutor loginExecutor;
+    private CountDownLatch release;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        loginExecutor = new LoginExecutor(meterRegistry, 1, 1);
+        release = new CountDownLatch(1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        loginExecutor.shutdown();
+    }
+
+    private String blockingTask() {
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "ok";
+    }
+
+    @Test
+    void submit_WhenQueueIsFull_ShouldRejectAndCount() throws Exception {
+        // Arrange
+        CountDownLatch started = new CountDownLatch(1);
+        CompletableFuture<String> running = loginExecutor.submit(() -> {
+            started.countDown();
+            return blockingTask();
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> queued = loginExecutor.submit(this::blockingTask);
+
+        // Act & Assert
+        assertThrows(RejectedExecutionException.class, () -> loginExecutor.submit(this::blockingTask));
+        assertEquals(1, loginExecutor.getQueueDepth());
+        assertEquals(1.0, meterRegistry.get("auth.login.rejected").counter().count());
+        assertEquals(1.0, meterRegistry.get("auth.login.queue.depth").gauge().value());
+
+        release.countDown();
+        assertEquals("ok", running.get(5, TimeUnit.SECONDS));
+        assertEquals("ok", queued.get(5, TimeUnit.SECONDS));
+    }
+}
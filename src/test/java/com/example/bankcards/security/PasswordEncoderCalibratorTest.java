@@ -0,0 +1,43 @@
+package com.example.bankcards.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordEncoderCalibratorTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    void strengthFor_ShouldPickHighestCostWithinTarget() {
+        // Act & Assert: 60 мс на цене 10 -> 120 (11) -> 240 (12) -> 480 (13) превышает 250
+        assertEquals(12, PasswordEncoderCalibrator.strengthFor(60 * MS, 250 * MS, 10, 16));
+        // Быстрое железо упирается в верхнюю границу
+        assertEquals(16, PasswordEncoderCalibrator.strengthFor(MS, 250 * MS, 10, 16));
+        // Медленное железо не опускается ниже минимальной цены
+        assertEquals(10, PasswordEncoderCalibrator.strengthFor(400 * MS, 250 * MS, 10, 16));
+    }
+
+    @Test
+    void delegatingEncoder_ShouldMatchLegacyHashAndRequestUpgrade() {
+        // Arrange
+        PasswordEncoder encoder = PasswordEncoderCalibrator.delegating(5);
+        String legacyHash = new BCryptPasswordEncoder(4).encode("password123");
+        String lowerCostHash = "{bcrypt}" + legacyHash;
+        String currentHash = encoder.encode("password123");
+
+        // Assert
+        assertTrue(currentHash.startsWith("{bcrypt}$2a$05$"));
+        assertTrue(encoder.matches("password123", legacyHash));
+        assertTrue(encoder.matches("password123", lowerCostHash));
+        assertFalse(encoder.matches("wrongpassword", legacyHash));
+
+        assertTrue(encoder.upgradeEncoding(legacyHash));
+        assertTrue(encoder.upgradeEncoding(lowerCostHash));
+        assertFalse(encoder.upgradeEncoding(currentHash));
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.bankcards.security.ratelimit;
+
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.BankCardRepository;
+import com.example.bankcards.repository.RoleRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.jwt.JwtUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import java.util.Set;
+
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// Лимит анонимных запросов - по IP клиента, аутентифицированных - по пользователю, даже с одного адреса
+@SpringBootTest(properties = {
+        "app.rate-limit.auth.capacity=2",
+        "app.rate-limit.auth.refill-per-second=0.01",
+        "app.rate-limit.card-reads.capacity=2",
+        "app.rate-limit.card-reads.refill-per-second=0.01"
+})
+@AutoConfigureMockMvc
+@TestPropertySource(locations = "classpath:application-test.yml")
+class RateLimitFilterIntegrationTest {
+
+    private static final String LOGIN_BODY = "{\"username\":\"nobody\",\"password\":\"wrong-password\"}";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BankCardRepository bankCardRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @BeforeEach
+    void setUp() {
+        bankCardRepository.deleteAll();
+        userRepository.deleteAll();
+
+        Role userRole = roleRepository.findByName(Role.RoleName.USER)
+                .orElseGet(() -> roleRepository.save(new Role(Role.RoleName.USER)));
+        for (String username : new String[]{"alice", "bob"}) {
+            User user = new User(username, username + "@example.com", "hash");
+            user.setRoles(Set.of(userRole));
+            userRepository.save(user);
+        }
+    }
+
+    @Test
+    void anonymousRequests_AboveLimit_ShouldReturn429WithRetryAfterPerClientAddress() throws Exception {
+        // Arrange: лимит клиента 10.0.0.1 исчерпан
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(login("10.0.0.1"));
+        }
+
+        // Act & Assert
+        mockMvc.perform(login("10.0.0.1"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().exists(HttpHeaders.RETRY_AFTER))
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, not("0")))
+                .andExpect(jsonPath("$.error").value("Too Many Requests"));
+
+        // Другой клиент - свой лимит
+        mockMvc.perform(login("10.0.0.2"))
+                .andExpect(status().is(not(429)));
+    }
+
+    @Test
+    void authenticatedUsers_FromSameAddress_ShouldHaveSeparateLimits() throws Exception {
+        // Arrange
+        String aliceToken = jwtUtils.generateTokenFromUsername("alice");
+        String bobToken = jwtUtils.generateTokenFromUsername("bob");
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(myCards(aliceToken)).andExpect(status().isOk());
+        }
+
+        // Act & Assert: тот же адрес прокси, но другой пользователь
+        mockMvc.perform(myCards(bobToken)).andExpect(status().isOk());
+        mockMvc.perform(myCards(aliceToken))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().exists(HttpHeaders.RETRY_AFTER));
+    }
+
+    private RequestBuilder login(String clientAddress) {
+        return post("/api/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(LOGIN_BODY)
+                .with(remoteAddr(clientAddress));
+    }
+
+    private RequestBuilder myCards(String token) {
+        return get("/api/cards/my")
+                .header("Authorization", "Bearer " + token)
+                .with(remoteAddr("10.0.0.100"));
+    }
+
+    private static RequestPostProcessor remoteAddr(String address) {
+        return request -> {
+            request.setRemoteAddr(address);
+            return request;
+        };
+    }
+}
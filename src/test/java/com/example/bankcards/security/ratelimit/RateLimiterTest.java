@@ -0,0 +1,72 @@
+package com.example.bankcards.security.ratelimit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final RateLimiter.Limit limit = new RateLimiter.Limit(3, 1.0);
+    private RateLimiter rateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        rateLimiter = new RateLimiter(TimeUnit.SECONDS.toNanos(60), now::get);
+    }
+
+    @Test
+    void tryAcquire_WithinCapacity_ShouldAllowBurst() {
+        // Act & Assert
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, rateLimiter.tryAcquire("user:testuser", limit));
+        }
+        assertTrue(rateLimiter.tryAcquire("user:testuser", limit) > 0);
+    }
+
+    @Test
+    void tryAcquire_AfterRefill_ShouldAllowAgain() {
+        // Arrange
+        for (int i = 0; i < 3; i++) {
+            rateLimiter.tryAcquire("user:testuser", limit);
+        }
+        long waitNanos = rateLimiter.tryAcquire("user:testuser", limit);
+
+        // Act
+        now.addAndGet(waitNanos);
+
+        // Assert
+        assertEquals(TimeUnit.SECONDS.toNanos(1), waitNanos);
+        assertEquals(0, rateLimiter.tryAcquire("user:testuser", limit));
+    }
+
+    @Test
+    void tryAcquire_WithDifferentKeys_ShouldUseSeparateBuckets() {
+        // Arrange
+        for (int i = 0; i < 3; i++) {
+            rateLimiter.tryAcquire("ip:127.0.0.1", limit);
+        }
+
+        // Act & Assert
+        assertTrue(rateLimiter.tryAcquire("ip:127.0.0.1", limit) > 0);
+        assertEquals(0, rateLimiter.tryAcquire("ip:10.0.0.1", limit));
+    }
+
+    @Test
+    void tryAcquire_AfterIdlePeriod_ShouldEvictRefilledBuckets() {
+        // Arrange
+        rateLimiter.tryAcquire("user:idle", limit);
+        assertEquals(1, rateLimiter.size());
+
+        // Act
+        now.addAndGet(TimeUnit.SECONDS.toNanos(120));
+        rateLimiter.tryAcquire("user:active", limit);
+
+        // Assert
+        assertEquals(1, rateLimiter.size());
+    }
+}
@@ -3,33 +3,43 @@ package com.example.bankcards.service;
 import com.example.bankcards.entity.BankCard;
 import com.example.bankcards.entity.BankCardStatus;
 import com.example.bankcards.entity.User;
+import com.example.bankcards.event.CardChangedEvent;
 import com.example.bankcards.exception.BadRequestException;
 import com.example.bankcards.exception.ResourceNotFoundException;
+import com.example.bankcards.monitoring.TransferEvent;
+import com.example.bankcards.repository.BankCardBalanceStripeRepository;
 import com.example.bankcards.repository.BankCardRepository;
 import com.example.bankcards.repository.UserRepository;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.Authentication;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 
-import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.TreeSet;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -44,6 +54,18 @@ class BankCardServiceTest {
     @Mock
     private EncryptionService encryptionService;
 
+    @Mock
+    private StripedBalanceService stripedBalanceService;
+
+    @Mock
+    private BankCardBalanceStripeRepository stripeRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     @Mock
     private SecurityContext securityContext;
 
@@ -71,7 +93,7 @@ class BankCardServiceTest {
         activeCard.setCardHolder("Test User");
         activeCard.setExpiryDate("12/50"); // Очень далекая дата
         activeCard.setStatus(BankCardStatus.ACTIVE);
-        activeCard.setBalance(new BigDecimal("1000.00"));
+        activeCard.setBalance(100_000L);
         activeCard.setUser(testUser);
         activeCard.setCreatedAt(LocalDateTime.now());
 
@@ -81,7 +103,7 @@ class BankCardServiceTest {
         blockedCard.setCardHolder("Test User");
         blockedCard.setExpiryDate("12/50"); // Очень далекая дата
         blockedCard.setStatus(BankCardStatus.BLOCKED);
-        blockedCard.setBalance(new BigDecimal("500.00"));
+        blockedCard.setBalance(50_000L);
         blockedCard.setUser(testUser);
         blockedCard.setCreatedAt(LocalDateTime.now());
     }
@@ -96,7 +118,7 @@ class BankCardServiceTest {
     void maskCardNumber_ShouldReturnMaskedNumber() {
         // Arrange
         String cardNumber = "1234567890123456";
-        when(encryptionService.isEncrypted(anyString())).thenReturn(false);
+        when(encryptionService.decryptIfEncrypted(cardNumber)).thenReturn(cardNumber);
 
         // Act
         String result = bankCardService.maskCardNumber(cardNumber);
@@ -114,7 +136,9 @@ class BankCardServiceTest {
         Long userId = 1L;
 
         when(encryptionService.encrypt(cardNumber)).thenReturn("encrypted123");
-        when(bankCardRepository.existsByCardNumber("encrypted123")).thenReturn(false);
+        when(encryptionService.lookupHash(cardNumber)).thenReturn("hash123");
+        when(encryptionService.encryptLegacy(cardNumber)).thenReturn("legacy123");
+        when(bankCardRepository.existsByCardNumberHashOrCardNumber("hash123", "legacy123")).thenReturn(false);
         when(userRepository.findById(userId)).thenReturn(Optional.of(testUser));
         when(bankCardRepository.save(any(BankCard.class))).thenReturn(activeCard);
 
@@ -136,7 +160,9 @@ class BankCardServiceTest {
         Long userId = 1L;
 
         when(encryptionService.encrypt(cardNumber)).thenReturn("encrypted123");
-        when(bankCardRepository.existsByCardNumber("encrypted123")).thenReturn(true);
+        when(encryptionService.lookupHash(cardNumber)).thenReturn("hash123");
+        when(encryptionService.encryptLegacy(cardNumber)).thenReturn("legacy123");
+        when(bankCardRepository.existsByCardNumberHashOrCardNumber("hash123", "legacy123")).thenReturn(true);
 
         // Act & Assert
         assertThrows(BadRequestException.class, () -> {
@@ -153,7 +179,9 @@ class BankCardServiceTest {
         Long userId = 1L;
 
         when(encryptionService.encrypt(cardNumber)).thenReturn("encrypted123");
-        when(bankCardRepository.existsByCardNumber("encrypted123")).thenReturn(false);
+        when(encryptionService.lookupHash(cardNumber)).thenReturn("hash123");
+        when(encryptionService.encryptLegacy(cardNumber)).thenReturn("legacy123");
+        when(bankCardRepository.existsByCardNumberHashOrCardNumber("hash123", "legacy123")).thenReturn(false);
 
         // Act & Assert
         assertThrows(BadRequestException.class, () -> {
@@ -253,25 +281,26 @@ class BankCardServiceTest {
         mockSecurityContext();
         Long fromCardId = 1L;
         Long toCardId = 2L;
-        BigDecimal amount = new BigDecimal("100.00");
+        long amount = 10_000L;
 
         BankCard fromCard = new BankCard();
         fromCard.setId(fromCardId);
-        fromCard.setBalance(new BigDecimal("500.00"));
+        fromCard.setBalance(50_000L);
         fromCard.setStatus(BankCardStatus.ACTIVE);
         fromCard.setExpiryDate("12/50"); // Очень далекая дата
         fromCard.setUser(testUser);
 
         BankCard toCard = new BankCard();
         toCard.setId(toCardId);
-        toCard.setBalance(new BigDecimal("200.00"));
+        toCard.setBalance(20_000L);
         toCard.setStatus(BankCardStatus.ACTIVE);
         toCard.setExpiryDate("12/50"); // Очень далекая дата
         toCard.setUser(testUser);
 
         when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
-        when(bankCardRepository.findByIdAndUser(fromCardId, testUser)).thenReturn(Optional.of(fromCard));
-        when(bankCardRepository.findByIdAndUser(toCardId, testUser)).thenReturn(Optional.of(toCard));
+        when(bankCardRepository.findRowModeIds(List.of(fromCardId, toCardId))).thenReturn(List.of(toCardId, fromCardId));
+        when(bankCardRepository.findAllByIdInForUpdate(new TreeSet<>(List.of(fromCardId, toCardId))))
+                .thenReturn(List.of(fromCard, toCard));
         when(bankCardRepository.save(any(BankCard.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         // Act
@@ -280,9 +309,19 @@ class BankCardServiceTest {
         });
 
         // Assert
-        assertEquals(new BigDecimal("400.00"), fromCard.getBalance());
-        assertEquals(new BigDecimal("300.00"), toCard.getBalance());
+        assertEquals(40_000L, fromCard.getBalance());
+        assertEquals(30_000L, toCard.getBalance());
         verify(bankCardRepository, times(2)).save(any(BankCard.class));
+        // Карты прочитаны под блокировкой, повторного чтения с проверкой владельца нет
+        verify(bankCardRepository, never()).findByIdAndUser(any(), any());
+
+        ArgumentCaptor<CardChangedEvent> events = ArgumentCaptor.forClass(CardChangedEvent.class);
+        verify(eventPublisher, times(2)).publishEvent(events.capture());
+        assertEquals(List.of(
+                new CardChangedEvent(CardChangedEvent.Type.BALANCE_CHANGED, fromCardId, testUser.getId(),
+                        BankCardStatus.ACTIVE, "12/50", -amount),
+                new CardChangedEvent(CardChangedEvent.Type.BALANCE_CHANGED, toCardId, testUser.getId(),
+                        BankCardStatus.ACTIVE, "12/50", amount)), events.getAllValues());
     }
 
     @Test
@@ -291,30 +330,70 @@ class BankCardServiceTest {
         mockSecurityContext();
         Long fromCardId = 1L;
         Long toCardId = 2L;
-        BigDecimal amount = new BigDecimal("600.00");
+        long amount = 60_000L;
 
         BankCard fromCard = new BankCard();
         fromCard.setId(fromCardId);
-        fromCard.setBalance(new BigDecimal("500.00"));
+        fromCard.setBalance(50_000L);
         fromCard.setStatus(BankCardStatus.ACTIVE);
         fromCard.setExpiryDate("12/50");
         fromCard.setUser(testUser);
 
         BankCard toCard = new BankCard();
         toCard.setId(toCardId);
-        toCard.setBalance(new BigDecimal("200.00"));
+        toCard.setBalance(20_000L);
         toCard.setStatus(BankCardStatus.ACTIVE);
         toCard.setExpiryDate("12/50");
         toCard.setUser(testUser);
 
         when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
-        when(bankCardRepository.findByIdAndUser(fromCardId, testUser)).thenReturn(Optional.of(fromCard));
-        when(bankCardRepository.findByIdAndUser(toCardId, testUser)).thenReturn(Optional.of(toCard));
+        when(bankCardRepository.findRowModeIds(List.of(fromCardId, toCardId))).thenReturn(List.of(fromCardId, toCardId));
+        when(bankCardRepository.findAllByIdInForUpdate(new TreeSet<>(List.of(fromCardId, toCardId))))
+                .thenReturn(List.of(fromCard, toCard));
 
         // Act & Assert
-        assertThrows(BadRequestException.class, () -> {
+        BadRequestException exception = assertThrows(BadRequestException.class, () -> {
             bankCardService.transferBetweenUserCards(fromCardId, toCardId, amount);
         });
+        assertEquals("Недостаточно средств на карте отправителя", exception.getMessage());
+    }
+
+    @Test
+    void transferBetweenUserCards_WithInsufficientFunds_ShouldRecordRejectedJfrEvent() throws Exception {
+        // Arrange
+        mockSecurityContext();
+        BankCard toCard = new BankCard();
+        toCard.setId(2L);
+        toCard.setStatus(BankCardStatus.ACTIVE);
+        toCard.setExpiryDate("12/50");
+        toCard.setUser(testUser);
+
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
+        when(bankCardRepository.findRowModeIds(List.of(1L, 2L))).thenReturn(List.of(1L, 2L));
+        when(bankCardRepository.findAllByIdInForUpdate(new TreeSet<>(List.of(1L, 2L))))
+                .thenReturn(List.of(activeCard, toCard));
+        Path file = Files.createTempFile("transfer", ".jfr");
+
+        // Act
+        try (Recording recording = new Recording()) {
+            recording.enable(TransferEvent.class).withoutThreshold();
+            recording.start();
+            assertThrows(BadRequestException.class,
+                    () -> bankCardService.transferBetweenUserCards(1L, 2L, 200_000L));
+            recording.stop();
+            recording.dump(file);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        Files.delete(file);
+
+        // Assert
+        assertEquals(1, events.size());
+        RecordedEvent event = events.get(0);
+        assertEquals(1L, event.getLong("fromCardId"));
+        assertEquals(2L, event.getLong("toCardId"));
+        assertEquals("1k-10k", event.getString("amountBucket"));
+        assertEquals("row", event.getString("mode"));
+        assertEquals(TransferEvent.OUTCOME_REJECTED, event.getString("outcome"));
     }
 
     @Test
@@ -322,7 +401,7 @@ class BankCardServiceTest {
         // Arrange
         mockSecurityContext();
         Long cardId = 1L;
-        BigDecimal amount = new BigDecimal("100.00");
+        long amount = 10_000L;
 
         when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
         when(bankCardRepository.findByIdAndUser(cardId, testUser)).thenReturn(Optional.of(activeCard));
@@ -339,7 +418,7 @@ class BankCardServiceTest {
         mockSecurityContext();
         Long fromCardId = 2L;
         Long toCardId = 1L;
-        BigDecimal amount = new BigDecimal("100.00");
+        long amount = 10_000L;
 
         when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
         when(bankCardRepository.findByIdAndUser(fromCardId, testUser)).thenReturn(Optional.of(blockedCard));
@@ -350,4 +429,30 @@ class BankCardServiceTest {
             bankCardService.transferBetweenUserCards(fromCardId, toCardId, amount);
         });
     }
-}
\ No newline at end of file
+
+    @Test
+    void applyTransferBatch_ShouldApplyNetDeltasAndFailOnlyOverdraft() {
+        // Arrange
+        BankCard otherCard = new BankCard();
+        otherCard.setId(3L);
+        otherCard.setExpiryDate("12/50");
+        otherCard.setStatus(BankCardStatus.ACTIVE);
+        otherCard.setBalance(10_000L);
+        otherCard.setUser(testUser);
+        when(bankCardRepository.findAllByIdInForUpdate(any())).thenReturn(List.of(activeCard, otherCard));
+
+        TransferBatcher.PendingTransfer first = new TransferBatcher.PendingTransfer(1L, 3L, 60_000L);
+        TransferBatcher.PendingTransfer overdraft = new TransferBatcher.PendingTransfer(1L, 3L, 50_000L);
+        TransferBatcher.PendingTransfer back = new TransferBatcher.PendingTransfer(3L, 1L, 5_000L);
+
+        // Act
+        bankCardService.applyTransferBatch(List.of(first, overdraft, back));
+
+        // Assert
+        assertNull(first.getFailure());
+        assertEquals("Недостаточно средств на карте отправителя", overdraft.getFailure().getMessage());
+        assertNull(back.getFailure());
+        assertEquals(45_000L, activeCard.getBalance());
+        assertEquals(65_000L, otherCard.getBalance());
+    }
+}
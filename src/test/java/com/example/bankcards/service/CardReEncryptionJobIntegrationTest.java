@@ -0,0 +1,155 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.BankCard;
+import com.example.bankcards.entity.BankCardStatus;
+import com.example.bankcards.entity.CardKeyRotation;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.repository.BankCardRepository;
+import com.example.bankcards.repository.CardKeyRotationRepository;
+import com.example.bankcards.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Перешифрование карт, записанных старым ключом (AES/ECB без префикса версии), на активный ключ
+@SpringBootTest(properties = {
+        "app.encryption.re-encrypt.chunk-size=2",
+        "app.encryption.re-encrypt.rows-per-second=0"
+})
+@TestPropertySource(locations = "classpath:application-test.yml")
+class CardReEncryptionJobIntegrationTest {
+
+    @Autowired
+    private CardReEncryptionJob reEncryptionJob;
+
+    @Autowired
+    private EncryptionService encryptionService;
+
+    @Autowired
+    private BankCardService bankCardService;
+
+    @Autowired
+    private BankCardRepository bankCardRepository;
+
+    @Autowired
+    private CardKeyRotationRepository rotationRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User owner;
+
+    @BeforeEach
+    void setUp() {
+        rotationRepository.deleteAll();
+        bankCardRepository.deleteAll();
+        userRepository.deleteAll();
+        owner = userRepository.save(new User("rotation-owner", "rotation@example.com", "hash"));
+    }
+
+    private BankCard saveLegacyCard(String cardNumber) {
+        BankCard card = new BankCard(encryptionService.encryptLegacy(cardNumber), "Owner", "12/40", BankCardStatus.ACTIVE, owner);
+        return bankCardRepository.save(card);
+    }
+
+    private BankCard saveCurrentCard(String cardNumber) {
+        BankCard card = new BankCard(encryptionService.encrypt(cardNumber), "Owner", "12/40", BankCardStatus.ACTIVE, owner);
+        card.setCardNumberHash(encryptionService.lookupHash(cardNumber));
+        return bankCardRepository.save(card);
+    }
+
+    @Test
+    void run_ShouldReEncryptAllCardsAndRecordProgress() {
+        // Arrange
+        List<String> numbers = List.of("4000000000000001", "4000000000000002", "4000000000000003", "4000000000000004", "4000000000000005");
+        List<BankCard> cards = numbers.stream().map(this::saveLegacyCard).toList();
+
+        // Act
+        reEncryptionJob.run();
+
+        // Assert
+        for (int i = 0; i < cards.size(); i++) {
+            BankCard card = bankCardRepository.findById(cards.get(i).getId()).orElseThrow();
+            assertThat(encryptionService.isCurrent(card.getCardNumber())).isTrue();
+            assertThat(encryptionService.decrypt(card.getCardNumber())).isEqualTo(numbers.get(i));
+            assertThat(card.getCardNumberHash()).isEqualTo(encryptionService.lookupHash(numbers.get(i)));
+        }
+        CardKeyRotation rotation = rotationRepository.findById(encryptionService.getActiveKeyId()).orElseThrow();
+        assertThat(rotation.isCompleted()).isTrue();
+        assertThat(rotation.getCardsReencrypted()).isEqualTo(5);
+        assertThat(rotation.getLastCardId()).isEqualTo(cards.get(4).getId());
+
+        // Дубликат ищется по хешу номера
+        assertThrows(BadRequestException.class,
+                () -> bankCardService.createCard(numbers.get(0), "Owner", "12/40", owner.getId()));
+    }
+
+    @Test
+    void run_ShouldResumeAfterLastProcessedCard() {
+        // Arrange: прошлый запуск остановился после первой карты
+        BankCard processed = saveCurrentCard("4000000000000011");
+        BankCard pending = saveLegacyCard("4000000000000012");
+        CardKeyRotation rotation = new CardKeyRotation(encryptionService.getActiveKeyId());
+        rotation.setLastCardId(processed.getId());
+        rotationRepository.save(rotation);
+
+        // Дубликат еще не перешифрованной карты ищется по старому шифртексту
+        assertThrows(BadRequestException.class,
+                () -> bankCardService.createCard("4000000000000012", "Owner", "12/40", owner.getId()));
+
+        // Act
+        reEncryptionJob.run();
+
+        // Assert
+        assertThat(bankCardRepository.findById(processed.getId()).orElseThrow().getCardNumber())
+                .isEqualTo(processed.getCardNumber());
+        assertThat(encryptionService.isCurrent(bankCardRepository.findById(pending.getId()).orElseThrow().getCardNumber()))
+                .isTrue();
+        assertThat(rotationRepository.findById(encryptionService.getActiveKeyId()).orElseThrow().getCardsReencrypted())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void run_WithOldKeyBehindCursor_ShouldRescanBeforeCompleting() {
+        // Arrange: карта со старым ключом оказалась позади курсора (например, сохранена после прохода по ней)
+        BankCard behindCursor = saveLegacyCard("4000000000000031");
+        BankCard processed = saveCurrentCard("4000000000000032");
+        CardKeyRotation rotation = new CardKeyRotation(encryptionService.getActiveKeyId());
+        rotation.setLastCardId(processed.getId());
+        rotationRepository.save(rotation);
+
+        // Act
+        reEncryptionJob.run();
+
+        // Assert
+        assertThat(encryptionService.isCurrent(bankCardRepository.findById(behindCursor.getId()).orElseThrow().getCardNumber()))
+                .isTrue();
+        assertThat(rotationRepository.findById(encryptionService.getActiveKeyId()).orElseThrow().isCompleted()).isTrue();
+    }
+
+    @Test
+    void saveOfCardLoadedBeforeRun_ShouldKeepReEncryptedNumber() {
+        // Arrange: карта прочитана до перешифрования
+        BankCard card = saveLegacyCard("4000000000000021");
+        BankCard stale = bankCardRepository.findById(card.getId()).orElseThrow();
+        reEncryptionJob.run();
+
+        // Act
+        stale.setStatus(BankCardStatus.BLOCKED);
+        bankCardRepository.save(stale);
+
+        // Assert
+        BankCard saved = bankCardRepository.findById(card.getId()).orElseThrow();
+        assertThat(saved.getStatus()).isEqualTo(BankCardStatus.BLOCKED);
+        assertThat(encryptionService.isCurrent(saved.getCardNumber())).isTrue();
+        assertThat(saved.getCardNumberHash()).isEqualTo(encryptionService.lookupHash("4000000000000021"));
+    }
+}
@@ -17,6 +17,10 @@ class EncryptionServiceTest {
     void setUp() {
         encryptionService = new EncryptionService();
         ReflectionTestUtils.setField(encryptionService, "encryptionKey", "testEncryptionKey12345678901234567890123456789012");
+        ReflectionTestUtils.setField(encryptionService, "keys", "1:testKeyOne,2:testKeyTwo");
+        ReflectionTestUtils.setField(encryptionService, "activeKeyId", 1);
+        ReflectionTestUtils.setField(encryptionService, "lookupKey", "testLookupKey");
+        encryptionService.init();
     }
 
     @Test
@@ -78,4 +82,55 @@ class EncryptionServiceTest {
             encryptionService.decrypt(invalidEncryptedData);
         });
     }
-}
\ No newline at end of file
+
+    @Test
+    void encrypt_ShouldUseActiveKeyWithRandomIv() {
+        // Arrange
+        String originalText = "4111111111111111";
+
+        // Act
+        String first = encryptionService.encrypt(originalText);
+        String second = encryptionService.encrypt(originalText);
+
+        // Assert
+        assertTrue(first.startsWith("v1:"));
+        assertNotEquals(first, second);
+        assertEquals(1, encryptionService.keyIdOf(first));
+        assertTrue(encryptionService.isCurrent(first));
+        assertEquals(encryptionService.lookupHash(originalText), encryptionService.lookupHash(originalText));
+    }
+
+    @Test
+    void decrypt_AfterKeyRotation_ShouldReadOldAndLegacyValues() {
+        // Arrange
+        String originalText = "4111111111111111";
+        String legacy = encryptionService.encryptLegacy(originalText);
+        String underKeyOne = encryptionService.encrypt(originalText);
+
+        // Act: активным становится ключ 2
+        ReflectionTestUtils.setField(encryptionService, "activeKeyId", 2);
+        encryptionService.init();
+        String underKeyTwo = encryptionService.encrypt(originalText);
+
+        // Assert
+        assertEquals(EncryptionService.LEGACY_KEY_ID, encryptionService.keyIdOf(legacy));
+        assertFalse(encryptionService.isCurrent(legacy));
+        assertFalse(encryptionService.isCurrent(underKeyOne));
+        assertTrue(underKeyTwo.startsWith("v2:"));
+        assertEquals(originalText, encryptionService.decrypt(legacy));
+        assertEquals(originalText, encryptionService.decrypt(underKeyOne));
+        assertEquals(originalText, encryptionService.decrypt(underKeyTwo));
+    }
+
+    @Test
+    void decrypt_WithTamperedCiphertext_ShouldThrowException() {
+        // Arrange: тег GCM не сходится после изменения одного символа
+        String encrypted = encryptionService.encrypt("4111111111111111");
+        char last = encrypted.charAt(encrypted.length() - 3);
+        String tampered = encrypted.substring(0, encrypted.length() - 3) + (last == 'A' ? 'B' : 'A')
+                + encrypted.substring(encrypted.length() - 2);
+
+        // Act & Assert
+        assertThrows(RuntimeException.class, () -> encryptionService.decrypt(tampered));
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.BankCard;
+import com.example.bankcards.entity.BankCardBalanceStripe;
+import com.example.bankcards.entity.BankCardStatus;
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.repository.BankCardBalanceStripeRepository;
+import com.example.bankcards.repository.BankCardRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StripedBalanceServiceTest {
+
+    @Mock
+    private BankCardRepository bankCardRepository;
+
+    @Mock
+    private BankCardBalanceStripeRepository stripeRepository;
+
+    @InjectMocks
+    private StripedBalanceService stripedBalanceService;
+
+    private BankCard hotCard;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(stripedBalanceService, "maxStripes", 64);
+
+        hotCard = new BankCard();
+        hotCard.setId(10L);
+        hotCard.setStatus(BankCardStatus.ACTIVE);
+        hotCard.setBalance(0L);
+        hotCard.setBalanceStripes(4);
+    }
+
+    @Test
+    void setStripes_ShouldMoveBalanceIntoFirstStripe() {
+        // Arrange
+        BankCard card = new BankCard();
+        card.setId(10L);
+        card.setBalance(100_000L);
+        when(bankCardRepository.findByIdForUpdate(10L)).thenReturn(Optional.of(card));
+        when(stripeRepository.findAllForUpdate(10L)).thenReturn(List.of());
+        when(bankCardRepository.save(card)).thenReturn(card);
+
+        // Act
+        BankCard result = stripedBalanceService.setStripes(10L, 4);
+
+        // Assert
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<BankCardBalanceStripe>> captor = ArgumentCaptor.forClass(List.class);
+        verify(stripeRepository).saveAll(captor.capture());
+        List<BankCardBalanceStripe> stripes = captor.getValue();
+        assertEquals(4, stripes.size());
+        assertEquals(100_000L, stripes.get(0).getBalance());
+        assertEquals(0L, result.getBalance());
+        assertEquals(100_000L, result.getAvailableBalance());
+        assertTrue(result.isStriped());
+    }
+
+    @Test
+    void setStripes_ShouldLockCardAndStripes() {
+        // Arrange
+        BankCard card = new BankCard();
+        card.setId(10L);
+        card.setBalance(100_000L);
+        when(bankCardRepository.findByIdForUpdate(10L)).thenReturn(Optional.of(card));
+        when(stripeRepository.findAllForUpdate(10L)).thenReturn(List.of());
+        when(bankCardRepository.save(card)).thenReturn(card);
+
+        // Act
+        stripedBalanceService.setStripes(10L, 0);
+
+        // Assert
+        verify(bankCardRepository).findByIdForUpdate(10L);
+        verify(bankCardRepository, never()).findById(any());
+        verify(stripeRepository).findAllForUpdate(10L);
+    }
+
+    @Test
+    void credit_WhenStripeWasRemovedConcurrently_ShouldThrow() {
+        // Arrange: раскладку сменили после чтения карты - части с таким номером больше нет
+        when(stripeRepository.credit(eq(10L), anyInt(), eq(5_000L))).thenReturn(0);
+
+        // Act & Assert
+        assertThrows(BadRequestException.class, () -> stripedBalanceService.credit(hotCard, 5_000L));
+    }
+
+    @Test
+    void setStripes_WithTooManyStripes_ShouldThrow() {
+        // Act & Assert
+        assertThrows(BadRequestException.class, () -> stripedBalanceService.setStripes(10L, 65));
+        verifyNoInteractions(bankCardRepository);
+    }
+
+    @Test
+    void debit_WhenOneStripeHasEnough_ShouldNotLockAllStripes() {
+        // Arrange
+        when(stripeRepository.debitIfSufficient(eq(10L), anyInt(), anyLong())).thenReturn(0, 1);
+
+        // Act
+        stripedBalanceService.debit(hotCard, 5_000L);
+
+        // Assert
+        verify(stripeRepository, times(2)).debitIfSufficient(eq(10L), anyInt(), anyLong());
+        verify(stripeRepository, never()).findAllForUpdate(any());
+    }
+
+    @Test
+    void debit_WhenSpreadAcrossStripes_ShouldDrainInOrder() {
+        // Arrange
+        List<BankCardBalanceStripe> stripes = List.of(
+                new BankCardBalanceStripe(10L, 0, 3_000L),
+                new BankCardBalanceStripe(10L, 1, 3_000L),
+                new BankCardBalanceStripe(10L, 2, 3_000L),
+                new BankCardBalanceStripe(10L, 3, 3_000L));
+        when(stripeRepository.debitIfSufficient(eq(10L), anyInt(), anyLong())).thenReturn(0);
+        when(stripeRepository.findAllForUpdate(10L)).thenReturn(stripes);
+
+        // Act
+        stripedBalanceService.debit(hotCard, 7_000L);
+
+        // Assert
+        assertEquals(0L, stripes.get(0).getBalance());
+        assertEquals(0L, stripes.get(1).getBalance());
+        assertEquals(2_000L, stripes.get(2).getBalance());
+        assertEquals(3_000L, stripes.get(3).getBalance());
+    }
+
+    @Test
+    void debit_WhenTotalInsufficient_ShouldThrow() {
+        // Arrange
+        when(stripeRepository.debitIfSufficient(eq(10L), anyInt(), anyLong())).thenReturn(0);
+        when(stripeRepository.findAllForUpdate(10L)).thenReturn(List.of(
+                new BankCardBalanceStripe(10L, 0, 1_000L)));
+
+        // Act & Assert
+        BadRequestException exception = assertThrows(BadRequestException.class,
+                () -> stripedBalanceService.debit(hotCard, 7_000L));
+        assertEquals("Недостаточно средств на карте отправителя", exception.getMessage());
+    }
+
+    @Test
+    void loadBalances_WithoutStripedCards_ShouldNotQuery() {
+        // Arrange
+        BankCard plainCard = new BankCard();
+        plainCard.setId(1L);
+        plainCard.setBalance(500L);
+
+        // Act
+        stripedBalanceService.loadBalances(List.of(plainCard));
+
+        // Assert
+        verifyNoInteractions(stripeRepository);
+        assertEquals(500L, plainCard.getAvailableBalance());
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.BankCard;
+import com.example.bankcards.entity.BankCardStatus;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.BankCardBalanceStripeRepository;
+import com.example.bankcards.repository.BankCardRepository;
+import com.example.bankcards.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Перевод по строке карты, начатый до коммита setStripes, не должен записать прочитанный раньше полный баланс
+// поверх обнуленной строки: иначе сумма оказалась бы и в частях, и в bank_cards
+@SpringBootTest
+@TestPropertySource(locations = "classpath:application-test.yml")
+class StripedTransferRaceIntegrationTest {
+
+    @Autowired
+    private BankCardService bankCardService;
+
+    @Autowired
+    private StripedBalanceService stripedBalanceService;
+
+    @Autowired
+    private BankCardRepository bankCardRepository;
+
+    @Autowired
+    private BankCardBalanceStripeRepository stripeRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private BankCard from;
+    private BankCard to;
+
+    @BeforeEach
+    void setUp() {
+        stripeRepository.deleteAll();
+        bankCardRepository.deleteAll();
+        userRepository.deleteAll();
+
+        User owner = userRepository.save(new User("stripes-owner", "stripes-owner@example.com", "hash"));
+        from = new BankCard("enc-stripes-1", "OWNER", "12/50", BankCardStatus.ACTIVE, owner);
+        from.setBalance(100_000L);
+        from = bankCardRepository.save(from);
+        to = bankCardRepository.save(new BankCard("enc-stripes-2", "OWNER", "12/50", BankCardStatus.ACTIVE, owner));
+    }
+
+    @AfterEach
+    void tearDown() {
+        stripeRepository.deleteAll();
+    }
+
+    @Test
+    void rowModeTransfer_DuringSetStripes_ShouldNotDuplicateBalance() throws Exception {
+        // Arrange: setStripes выполнен, но не закоммичен
+        CountDownLatch striped = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        CompletableFuture<Void> restripe = CompletableFuture.runAsync(() ->
+                new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                    stripedBalanceService.setStripes(from.getId(), 4);
+                    striped.countDown();
+                    await(commit);
+                }));
+        assertTrue(striped.await(5, TimeUnit.SECONDS));
+
+        // Act: перевод читает карту в режиме строки и ждет коммита
+        CompletableFuture<Void> transfer = CompletableFuture.runAsync(() -> {
+            SecurityContextHolder.getContext().setAuthentication(
+                    new UsernamePasswordAuthenticationToken("stripes-owner", null, List.of()));
+            try {
+                bankCardService.transferBetweenUserCards(from.getId(), to.getId(), 10_000L);
+            } finally {
+                SecurityContextHolder.clearContext();
+            }
+        });
+        Thread.sleep(300);
+        assertFalse(transfer.isDone());
+        commit.countDown();
+        restripe.get(5, TimeUnit.SECONDS);
+        transfer.get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertEquals(90_000L, totalBalance(from.getId()));
+        assertEquals(0L, rowBalance(from.getId()));
+        assertEquals(10_000L, totalBalance(to.getId()));
+    }
+
+    private long rowBalance(Long cardId) {
+        return jdbcTemplate.queryForObject("SELECT balance_minor FROM bank_cards WHERE id = ?", Long.class, cardId);
+    }
+
+    private long totalBalance(Long cardId) {
+        return rowBalance(cardId) + jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(balance_minor), 0) FROM bank_card_balance_stripes WHERE card_id = ?",
+                Long.class, cardId);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
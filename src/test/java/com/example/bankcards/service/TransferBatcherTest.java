@@ -0,0 +1,141 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.exception.BadRequestException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransferBatcherTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+    private TransferBatcher transferBatcher;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        transferBatcher.shutdown();
+    }
+
+    private TransferBatcher batcher(Consumer<List<TransferBatcher.PendingTransfer>> applier, int queueCapacity) {
+        return new TransferBatcher(batch -> {
+            batchSizes.add(batch.size());
+            applier.accept(batch);
+        }, meterRegistry, 16, 200, queueCapacity);
+    }
+
+    @Test
+    void submit_ShouldCommitQueuedTransfersInOneBatch() throws Exception {
+        // Arrange
+        transferBatcher = batcher(batch -> { }, 100);
+
+        // Act
+        CompletableFuture<Void> first = transferBatcher.submit(1L, 2L, 100L);
+        CompletableFuture<Void> second = transferBatcher.submit(2L, 3L, 100L);
+        CompletableFuture<Void> third = transferBatcher.submit(3L, 1L, 100L);
+        CompletableFuture.allOf(first, second, third).get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertEquals(List.of(3), batchSizes);
+        assertEquals(1, meterRegistry.get("transfer.batch.size").summary().count());
+    }
+
+    @Test
+    void submit_ShouldCompleteEachFutureWithItsOwnOutcome() throws Exception {
+        // Arrange
+        transferBatcher = batcher(batch -> batch.stream()
+                .filter(transfer -> transfer.getAmount() > 10_000L)
+                .forEach(transfer -> transfer.setFailure(new BadRequestException("Недостаточно средств на карте отправителя"))), 100);
+
+        // Act
+        CompletableFuture<Void> accepted = transferBatcher.submit(1L, 2L, 1_000L);
+        CompletableFuture<Void> declined = transferBatcher.submit(1L, 2L, 100_000L);
+
+        // Assert
+        assertNull(accepted.get(5, TimeUnit.SECONDS));
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> declined.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(BadRequestException.class, exception.getCause());
+    }
+
+    @Test
+    void submit_WhenBatchCommitFails_ShouldFailEveryTransferInBatch() {
+        // Arrange
+        transferBatcher = batcher(batch -> {
+            throw new IllegalStateException("commit failed");
+        }, 100);
+
+        // Act
+        CompletableFuture<Void> first = transferBatcher.submit(1L, 2L, 100L);
+        CompletableFuture<Void> second = transferBatcher.submit(2L, 1L, 100L);
+
+        // Assert
+        for (CompletableFuture<Void> future : List.of(first, second)) {
+            ExecutionException exception = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, exception.getCause());
+        }
+    }
+
+    @Test
+    void submit_WhenQueueIsFull_ShouldReject() throws Exception {
+        // Arrange
+        CountDownLatch applying = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        transferBatcher = batcher(batch -> {
+            applying.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, 1);
+        CompletableFuture<Void> inFlight = transferBatcher.submit(1L, 2L, 100L);
+        assertTrue(applying.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Void> queued = transferBatcher.submit(1L, 2L, 100L);
+
+        // Act & Assert
+        assertThrows(RejectedExecutionException.class, () -> transferBatcher.submit(1L, 2L, 100L));
+        assertEquals(1.0, meterRegistry.get("transfer.batch.rejected").counter().count());
+
+        release.countDown();
+        CompletableFuture.allOf(inFlight, queued).get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void transfer_WhenNotBatchedWithinTimeout_ShouldWithdrawAndReject() throws Exception {
+        // Arrange: поток пакетов занят первым переводом
+        CountDownLatch applying = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Long> applied = new CopyOnWriteArrayList<>();
+        transferBatcher = batcher(batch -> {
+            batch.forEach(transfer -> applied.add(transfer.getAmount()));
+            applying.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, 100);
+        CompletableFuture<Void> inFlight = transferBatcher.submit(1L, 2L, 100L);
+        assertTrue(applying.await(5, TimeUnit.SECONDS));
+
+        // Act & Assert
+        assertThrows(RejectedExecutionException.class, () -> transferBatcher.transfer(1L, 2L, 200L, 50));
+        assertEquals(1.0, meterRegistry.get("transfer.batch.withdrawn").counter().count());
+
+        // Снятый перевод не применяется и после освобождения потока пакетов
+        release.countDown();
+        inFlight.get(5, TimeUnit.SECONDS);
+        transferBatcher.transfer(1L, 2L, 300L, 5_000);
+        assertEquals(List.of(100L, 300L), applied);
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.SignupRequest;
+import com.example.bankcards.dto.UserImportResponse;
 import com.example.bankcards.entity.Role;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.exception.BadRequestException;
@@ -11,12 +13,17 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -31,6 +38,9 @@ class UserServiceTest {
     @Mock
     private PasswordEncoder passwordEncoder;
 
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     @InjectMocks
     private UserService userService;
 
@@ -101,11 +111,9 @@ class UserServiceTest {
 
         User newUser = new User(username, email, encodedPassword);
 
-        when(userRepository.existsByUsername(username)).thenReturn(false);
-        when(userRepository.existsByEmail(email)).thenReturn(false);
         when(passwordEncoder.encode(password)).thenReturn(encodedPassword);
         when(roleRepository.findByName(Role.RoleName.USER)).thenReturn(Optional.of(userRole));
-        when(userRepository.save(any(User.class))).thenReturn(newUser);
+        when(userRepository.saveAndFlush(any(User.class))).thenReturn(newUser);
 
         // Act
         User result = userService.createUser(username, email, password);
@@ -114,8 +122,27 @@ class UserServiceTest {
         assertNotNull(result);
         assertEquals(username, result.getUsername());
         assertEquals(email, result.getEmail());
-        verify(userRepository).save(any(User.class));
+        verify(userRepository).saveAndFlush(any(User.class));
         verify(passwordEncoder).encode(password);
+        // На успешном пути одна проверка до хеширования
+        verify(userRepository).existsByUsernameOrEmail(username, email);
+        verify(userRepository, never()).existsByUsername(any());
+        verify(userRepository, never()).existsByEmail(any());
+    }
+
+    @Test
+    void createUser_CalledTwice_ShouldLoadRoleOnce() {
+        // Arrange
+        when(passwordEncoder.encode(anyString())).thenReturn("encodedPassword");
+        when(roleRepository.findByName(Role.RoleName.USER)).thenReturn(Optional.of(userRole));
+        when(userRepository.saveAndFlush(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        userService.createUser("user1", "user1@example.com", "password123");
+        userService.createUser("user2", "user2@example.com", "password123");
+
+        // Assert
+        verify(roleRepository, times(1)).findByName(Role.RoleName.USER);
     }
 
     @Test
@@ -125,6 +152,8 @@ class UserServiceTest {
         String email = "new@example.com";
         String password = "password123";
 
+        when(roleRepository.findByName(Role.RoleName.USER)).thenReturn(Optional.of(userRole));
+        when(userRepository.existsByUsernameOrEmail(username, email)).thenReturn(true);
         when(userRepository.existsByUsername(username)).thenReturn(true);
 
         // Act & Assert
@@ -132,6 +161,29 @@ class UserServiceTest {
             userService.createUser(username, email, password);
         });
 
+        assertTrue(exception.getMessage().contains("Username is already taken"));
+        // Занятое имя отсекается до хеширования пароля
+        verify(passwordEncoder, never()).encode(any());
+        verify(userRepository, never()).saveAndFlush(any(User.class));
+    }
+
+    @Test
+    void createUser_WithUsernameTakenConcurrently_ShouldThrowOnConstraintViolation() {
+        // Arrange: имя занято между проверкой и вставкой
+        String username = "raceuser";
+        String email = "race@example.com";
+
+        when(roleRepository.findByName(Role.RoleName.USER)).thenReturn(Optional.of(userRole));
+        when(userRepository.existsByUsernameOrEmail(username, email)).thenReturn(false);
+        when(userRepository.existsByUsername(username)).thenReturn(true);
+        when(passwordEncoder.encode("password123")).thenReturn("encodedPassword");
+        when(userRepository.saveAndFlush(any(User.class))).thenThrow(new DataIntegrityViolationException("duplicate"));
+
+        // Act & Assert
+        BadRequestException exception = assertThrows(BadRequestException.class, () -> {
+            userService.createUser(username, email, "password123");
+        });
+
         assertTrue(exception.getMessage().contains("Username is already taken"));
     }
 
@@ -142,8 +194,9 @@ class UserServiceTest {
         String email = "existing@example.com";
         String password = "password123";
 
+        when(roleRepository.findByName(Role.RoleName.USER)).thenReturn(Optional.of(userRole));
+        when(userRepository.existsByUsernameOrEmail(username, email)).thenReturn(true);
         when(userRepository.existsByUsername(username)).thenReturn(false);
-        when(userRepository.existsByEmail(email)).thenReturn(true);
 
         // Act & Assert
         BadRequestException exception = assertThrows(BadRequestException.class, () -> {
@@ -151,6 +204,7 @@ class UserServiceTest {
         });
 
         assertTrue(exception.getMessage().contains("Email is already in use"));
+        verify(passwordEncoder, never()).encode(any());
     }
 
     @Test
@@ -160,9 +214,6 @@ class UserServiceTest {
         String email = "new@example.com";
         String password = "password123";
 
-        when(userRepository.existsByUsername(username)).thenReturn(false);
-        when(userRepository.existsByEmail(email)).thenReturn(false);
-        when(passwordEncoder.encode(password)).thenReturn("encodedPassword");
         when(roleRepository.findByName(Role.RoleName.USER)).thenReturn(Optional.empty());
 
         // Act & Assert
@@ -172,4 +223,42 @@ class UserServiceTest {
 
         assertTrue(exception.getMessage().contains("Role USER not found"));
     }
+
+    @Test
+    void importUsers_ShouldCommitEachChunkSeparately() {
+        // Arrange: порции по 2 пользователя, вторая порция не проходит ограничение уникальности
+        ReflectionTestUtils.setField(userService, "importChunkSize", 2);
+        ReflectionTestUtils.setField(userService, "importHashThreads", 2);
+        userService.init();
+        when(roleRepository.findByName(Role.RoleName.USER)).thenReturn(Optional.of(userRole));
+        when(passwordEncoder.encode(anyString())).thenReturn("encodedPassword");
+        when(userRepository.findExistingUsernames(any())).thenReturn(List.of("taken"));
+        when(userRepository.findExistingEmails(any())).thenReturn(List.of());
+        when(userRepository.saveAll(any()))
+                .thenReturn(List.of())
+                .thenThrow(new DataIntegrityViolationException("duplicate"))
+                .thenReturn(List.of());
+        List<SignupRequest> requests = List.of(
+                new SignupRequest("user1", "user1@example.com", "password123"),
+                new SignupRequest("taken", "taken@example.com", "password123"),
+                new SignupRequest("user2", "user2@example.com", "password123"),
+                new SignupRequest("user3", "user3@example.com", "password123"),
+                new SignupRequest("user4", "user4@example.com", "password123"),
+                new SignupRequest("user5", "user5@example.com", "password123"));
+
+        try {
+            // Act
+            UserImportResponse response = userService.importUsers(requests);
+
+            // Assert
+            assertEquals(3, response.getImported());
+            assertEquals(List.of(
+                    "Строка 2: Username is already taken!",
+                    "Строки 4-5: не сохранены, имя или email заняты во время импорта"), response.getErrors());
+            verify(userRepository, times(3)).saveAll(any());
+            verify(transactionManager, times(3)).getTransaction(any());
+        } finally {
+            userService.shutdown();
+        }
+    }
 }
\ No newline at end of file
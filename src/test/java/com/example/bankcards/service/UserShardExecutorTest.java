@@ -0,0 +1,118 @@
+package com.example.bankcards.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserShardExecutorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private UserShardExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        executor.shutdown();
+    }
+
+    @Test
+    void execute_ForSameUser_ShouldRunOneAtATime() throws Exception {
+        // Arrange
+        executor = new UserShardExecutor(meterRegistry, true, 4, 100);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        Runnable mutation = () -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            running.decrementAndGet();
+        };
+
+        // Act
+        List<CompletableFuture<Void>> callers = IntStream.range(0, 8)
+                .mapToObj(i -> CompletableFuture.runAsync(() -> executor.execute(() -> 42L, mutation)))
+                .toList();
+        CompletableFuture.allOf(callers.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertEquals(1, maxRunning.get());
+        int shard = executor.shardFor(42L);
+        assertEquals(8, meterRegistry.get("card.mutations.shard.latency").tag("shard", String.valueOf(shard)).timer().count());
+    }
+
+    @Test
+    void execute_ForDifferentShards_ShouldRunInParallel() throws Exception {
+        // Arrange
+        executor = new UserShardExecutor(meterRegistry, true, 4, 100);
+        long otherUser = LongStream.range(2, 100)
+                .filter(id -> executor.shardFor(id) != executor.shardFor(1L))
+                .findFirst().orElseThrow();
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        Runnable mutation = () -> {
+            bothStarted.countDown();
+            try {
+                assertTrue(bothStarted.await(5, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        // Act
+        CompletableFuture<Void> first = CompletableFuture.runAsync(() -> executor.execute(() -> 1L, mutation));
+        CompletableFuture<Void> second = CompletableFuture.runAsync(() -> executor.execute(() -> otherUser, mutation));
+
+        // Assert
+        CompletableFuture.allOf(first, second).get(5, TimeUnit.SECONDS);
+        assertEquals(0, bothStarted.getCount());
+    }
+
+    @Test
+    void execute_ShouldPropagateSecurityContextAndExceptions() {
+        // Arrange
+        executor = new UserShardExecutor(meterRegistry, true, 2, 100);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("testuser", null, List.of()));
+
+        // Act
+        String username = executor.execute(() -> 1L,
+                () -> SecurityContextHolder.getContext().getAuthentication().getName());
+
+        // Assert
+        assertEquals("testuser", username);
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+                () -> executor.execute(() -> 1L, () -> {
+                    throw new IllegalStateException("Карта не найдена");
+                }));
+        assertEquals("Карта не найдена", exception.getMessage());
+    }
+
+    @Test
+    void execute_WhenDisabled_ShouldRunInCallerThreadWithoutComputingKey() {
+        // Arrange
+        executor = new UserShardExecutor(meterRegistry, false, 4, 100);
+        Thread caller = Thread.currentThread();
+
+        // Act
+        Thread worker = executor.execute(() -> {
+            throw new AssertionError("ключ не нужен");
+        }, Thread::currentThread);
+
+        // Assert
+        assertSame(caller, worker);
+    }
+}
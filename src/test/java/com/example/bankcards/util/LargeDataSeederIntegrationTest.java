@@ -0,0 +1,99 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Загрузка небольшого объема через пакетные INSERT (H2) при старте контекста
+@SpringBootTest(properties = {
+        "app.seed.enabled=true",
+        "app.seed.users=120",
+        "app.seed.chunk-size=50",
+        "app.seed.threads=2",
+        "app.seed.username-prefix=seedtest"
+})
+@TestPropertySource(locations = "classpath:application-test.yml")
+class LargeDataSeederIntegrationTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private LargeDataSeeder largeDataSeeder;
+
+    @Test
+    void seeder_ShouldLoadUsersRolesAndCards() {
+        // Arrange
+        SeedDataGenerator generator = new SeedDataGenerator(42, "seedtest", LocalDate.now());
+        long expectedCards = 0;
+        for (long index = 0; index < 120; index++) {
+            expectedCards += generator.user(index).cards().size();
+        }
+
+        // Act
+        Long users = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM users WHERE username LIKE 'seedtest\\_%'", Long.class);
+        Long roles = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM user_roles ur JOIN users u ON u.id = ur.user_id " +
+                        "JOIN roles r ON r.id = ur.role_id WHERE u.username LIKE 'seedtest\\_%' AND r.name = 'USER'",
+                Long.class);
+        Long cards = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM bank_cards c JOIN users u ON u.id = c.user_id WHERE u.username LIKE 'seedtest\\_%'",
+                Long.class);
+
+        // Assert
+        assertThat(users).isEqualTo(120);
+        assertThat(roles).isEqualTo(120);
+        assertThat(cards).isEqualTo(expectedCards);
+    }
+
+    @Test
+    void seeder_AfterFailedChunk_ShouldLoadMissingChunkOnRerun() throws Exception {
+        // Arrange: порция 50-99 не загружена (сбой прошлого запуска)
+        SeedDataGenerator generator = new SeedDataGenerator(42, "seedtest", LocalDate.now());
+        List<String> usernames = LongStream.range(50, 100).mapToObj(generator::username).toList();
+        String chunkUsers = "SELECT id FROM users WHERE username IN ("
+                + String.join(",", Collections.nCopies(usernames.size(), "?")) + ")";
+        Object[] args = usernames.toArray();
+        jdbcTemplate.update("DELETE FROM bank_cards WHERE user_id IN (" + chunkUsers + ")", args);
+        jdbcTemplate.update("DELETE FROM user_roles WHERE user_id IN (" + chunkUsers + ")", args);
+        jdbcTemplate.update("DELETE FROM users WHERE id IN (" + chunkUsers + ")", args);
+
+        // Act
+        largeDataSeeder.run();
+        User saved = userRepository.save(new User("after_rerun_user", "after_rerun@example.com", "hash"));
+
+        // Assert
+        Long users = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM users WHERE username LIKE 'seedtest\\_%'", Long.class);
+        Long maxSeededId = jdbcTemplate.queryForObject(
+                "SELECT MAX(id) FROM users WHERE username LIKE 'seedtest\\_%'", Long.class);
+        assertThat(users).isEqualTo(120);
+        assertThat(saved.getId()).isGreaterThan(maxSeededId);
+    }
+
+    @Test
+    void seeder_ShouldLeaveIdentityUsableForNewUsers() {
+        // Act
+        User saved = userRepository.save(new User("after_seed_user", "after_seed@example.com", "hash"));
+
+        // Assert
+        Long maxSeededId = jdbcTemplate.queryForObject(
+                "SELECT MAX(id) FROM users WHERE username LIKE 'seedtest\\_%'", Long.class);
+        assertThat(saved.getId()).isGreaterThan(maxSeededId);
+    }
+}
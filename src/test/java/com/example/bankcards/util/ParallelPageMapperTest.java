@@ -0,0 +1,113 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.dto.PageResponse;
+import com.example.bankcards.monitoring.RequestTiming;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelPageMapperTest {
+
+    private ParallelPageMapper parallelPageMapper;
+
+    @BeforeEach
+    void setUp() {
+        parallelPageMapper = new ParallelPageMapper();
+        ReflectionTestUtils.setField(parallelPageMapper, "threshold", 100);
+        ReflectionTestUtils.setField(parallelPageMapper, "parallelism", 4);
+        parallelPageMapper.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        parallelPageMapper.shutdown();
+    }
+
+    @Test
+    void map_AboveThreshold_ShouldMapInPoolAndKeepOrder() {
+        // Arrange
+        List<Integer> content = IntStream.range(0, 1000).boxed().toList();
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+
+        // Act
+        PageResponse<String> response = parallelPageMapper.map(
+                new PageImpl<>(content, PageRequest.of(2, 1000), 5000),
+                value -> {
+                    threads.add(Thread.currentThread().getName());
+                    return "card-" + value;
+                });
+
+        // Assert
+        assertEquals(IntStream.range(0, 1000).mapToObj(value -> "card-" + value).toList(), response.getContent());
+        assertEquals(2, response.getPage());
+        assertEquals(5000, response.getTotalElements());
+        assertTrue(threads.stream().allMatch(name -> name.startsWith("page-mapper-")), threads.toString());
+    }
+
+    @Test
+    void map_BelowThreshold_ShouldMapOnceInCallerThread() {
+        // Arrange
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        AtomicInteger calls = new AtomicInteger();
+
+        // Act
+        PageResponse<String> response = parallelPageMapper.map(
+                new PageImpl<>(List.of(1, 2, 3), PageRequest.of(0, 10), 3),
+                value -> {
+                    threads.add(Thread.currentThread().getName());
+                    calls.incrementAndGet();
+                    return "card-" + value;
+                });
+
+        // Assert: преобразование сделано до сериализации и не повторяется при чтении
+        assertEquals(Set.of(Thread.currentThread().getName()), threads);
+        assertEquals(List.of("card-1", "card-2", "card-3"), response.getContent());
+        assertEquals(List.of("card-1", "card-2", "card-3"), response.getContent());
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    void map_WhenMapperFails_ShouldThrowFromMap() {
+        // Arrange
+        PageImpl<Integer> page = new PageImpl<>(List.of(1, 2, 3), PageRequest.of(0, 10), 3);
+
+        // Act & Assert: ошибка видна контроллеру, а не сериализатору уже начатого ответа
+        assertThrows(IllegalStateException.class, () -> parallelPageMapper.map(page, value -> {
+            throw new IllegalStateException("Ошибка расшифровки");
+        }));
+    }
+
+    @Test
+    void map_AboveThreshold_ShouldRecordPoolTimeAsCryptoStageOfCaller() {
+        // Arrange
+        RequestTiming timing = RequestTiming.start();
+        List<Integer> content = IntStream.range(0, 1000).boxed().toList();
+
+        // Act
+        try {
+            parallelPageMapper.map(new PageImpl<>(content, PageRequest.of(0, 1000), 1000), value -> {
+                // Потоки пула не пишут в RequestTiming запроса
+                RequestTiming.start(RequestTiming.Stage.CRYPTO);
+                RequestTiming.stop(RequestTiming.Stage.CRYPTO);
+                return "card-" + value;
+            });
+        } finally {
+            RequestTiming.clear();
+        }
+
+        // Assert
+        assertEquals(1, timing.getCount(RequestTiming.Stage.CRYPTO));
+        assertTrue(timing.getNanos(RequestTiming.Stage.CRYPTO) > 0);
+    }
+}
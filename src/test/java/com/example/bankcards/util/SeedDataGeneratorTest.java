@@ -0,0 +1,81 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.entity.BankCardStatus;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SeedDataGeneratorTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2026, 6, 15);
+
+    @Test
+    void user_WithSameSeed_ShouldBeReproducible() {
+        // Arrange
+        SeedDataGenerator first = new SeedDataGenerator(42, "seed", TODAY);
+        SeedDataGenerator second = new SeedDataGenerator(42, "seed", TODAY);
+        SeedDataGenerator other = new SeedDataGenerator(43, "seed", TODAY);
+
+        // Act & Assert
+        for (long index = 0; index < 100; index++) {
+            assertEquals(first.user(index), second.user(index));
+        }
+        assertNotEquals(first.user(7).cards(), other.user(7).cards());
+    }
+
+    @Test
+    void user_ShouldGenerateUniqueValidPans() {
+        // Arrange
+        SeedDataGenerator generator = new SeedDataGenerator(42, "seed", TODAY);
+        Set<String> pans = new HashSet<>();
+
+        // Act
+        for (long index = 0; index < 2000; index++) {
+            for (SeedDataGenerator.SeedCard card : generator.user(index).cards()) {
+                // Assert
+                assertTrue(card.pan().matches("\\d{16}"));
+                assertEquals(card.pan().charAt(15) - '0', SeedDataGenerator.luhnCheckDigit(card.pan().substring(0, 15)));
+                assertTrue(pans.add(card.pan()));
+            }
+        }
+    }
+
+    @Test
+    void user_ShouldKeepExpiryConsistentWithStatus() {
+        // Arrange
+        SeedDataGenerator generator = new SeedDataGenerator(7, "seed", TODAY);
+        DateTimeFormatter format = DateTimeFormatter.ofPattern("MM/yy");
+        YearMonth current = YearMonth.from(TODAY);
+        int cards = 0;
+
+        // Act
+        for (long index = 0; index < 2000; index++) {
+            SeedDataGenerator.SeedUser user = generator.user(index);
+            assertTrue(user.cards().size() <= SeedDataGenerator.MAX_CARDS_PER_USER);
+            for (SeedDataGenerator.SeedCard card : user.cards()) {
+                cards++;
+                YearMonth expiry = YearMonth.parse(card.expiryDate(), format);
+
+                // Assert
+                assertEquals(card.status() == BankCardStatus.EXPIRED, expiry.isBefore(current));
+                assertTrue(card.balance() >= 0);
+            }
+        }
+        assertTrue(cards > 2000);
+    }
+
+    @Test
+    void pan_ShouldPassLuhnCheck() {
+        // Act
+        String pan = SeedDataGenerator.pan(0);
+
+        // Assert
+        assertEquals("4900000000000003", pan);
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.repository.BankCardRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Прогрев при старте контекста: readiness открывается после него, в базу ничего не пишется
+@SpringBootTest(properties = {
+        "app.warmup.enabled=true",
+        "app.warmup.iterations=200",
+        "app.warmup.database-iterations=5"
+})
+@TestPropertySource(locations = "classpath:application-test.yml")
+class WarmupRunnerIntegrationTest {
+
+    @Autowired
+    private WarmupRunner warmupRunner;
+
+    @Autowired
+    private ApplicationAvailability applicationAvailability;
+
+    @Autowired
+    private BankCardRepository bankCardRepository;
+
+    @Test
+    void warmup_ShouldCompleteBeforeReadiness() {
+        // Assert
+        assertThat(warmupRunner.getCompletedIterations()).isEqualTo(200);
+        assertThat(applicationAvailability.getReadinessState()).isEqualTo(ReadinessState.ACCEPTING_TRAFFIC);
+        assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
+    }
+
+    @Test
+    void warmup_ShouldNotWriteCards() {
+        // Assert
+        assertThat(bankCardRepository.findAll())
+                .noneMatch(card -> "WARMUP USER".equals(card.getCardHolder()));
+    }
+}